@@ -0,0 +1,424 @@
+package uk.ac.newcastle.enterprisemiddleware.dataset;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Fills the application's database with a large, realistic set of hotels, customers and bookings, for
+ * performance work.</p>
+ *
+ * <p>The same settings and seed always produce the same rows:</p>
+ * <ul>
+ *     <li>Hotels are spread over cities by a Zipf distribution, so a few cities have most of them.</li>
+ *     <li>Customers have unique emails and unique phone numbers in the (NXX) NXX-XXXX format, with real area codes
+ *     from the bundled {@code area-codes.json}, so they pass the application's own checks.</li>
+ *     <li>Bookings pick their hotel by a Zipf distribution over hotels in a shuffled order, so popularity isn't tied
+ *     to the id, and their check-in date by a Zipf distribution over the days from {@code dataset.first-checkin},
+ *     so the nearest days are the busiest. Most stays are short.</li>
+ *     <li>Each customer has a Poisson distributed number of bookings, and never two at the same hotel on the same
+ *     check-in date: a pick that would repeat one is drawn again. Booking ids are spread so that a customer's
+ *     bookings aren't stored together.</li>
+ * </ul>
+ *
+ * <p>The rows are written with batched JDBC inserts, over the H2 TCP server the application starts, to the schema
+ * Hibernate created; so the application must be running. Rows are added after any already there: the ids start past
+ * the current ones, and the id sequences and the hotel identity are moved past the new rows, so the application can
+ * go on creating its own.</p>
+ *
+ * <p>It is run by {@code mvn -Pdataset verify -DskipTests}, with the {@code dataset.*} settings read below given as
+ * -D system properties.</p>
+ *
+ * @author aryamanpatronia
+ */
+public class DatasetGenerator
+{
+    private static final String[] CITIES = {
+            "London", "Manchester", "Edinburgh", "Birmingham", "Glasgow", "Liverpool", "Newcastle", "Bristol",
+            "York", "Leeds", "Cardiff", "Belfast", "Oxford", "Cambridge", "Bath", "Brighton", "Nottingham",
+            "Sheffield", "Aberdeen", "Inverness", "Durham", "Norwich", "Exeter", "Plymouth", "Canterbury",
+            "Chester", "Lincoln", "Swansea", "Dundee", "Leicester", "Southampton", "Portsmouth", "Harrogate",
+            "Whitby", "Keswick", "Windermere", "St Ives", "Stirling", "Cheltenham", "Salisbury"};
+
+    private static final String[] HOTEL_PREFIXES = {
+            "Grand", "Royal", "Park", "Station", "Riverside", "Castle", "Harbour", "City", "Old Town", "Abbey"};
+
+    private static final String[] HOTEL_SUFFIXES = {"Hotel", "Inn", "Lodge", "House", "Suites", "Resort"};
+
+    private static final String[] FIRST_NAMES = {
+            "Oliver", "Amelia", "George", "Isla", "Harry", "Ava", "Noah", "Mia", "Jack", "Ivy", "Leo", "Lily",
+            "Arthur", "Isabella", "Muhammad", "Rosie", "Oscar", "Sophia", "Charlie", "Grace", "Jacob", "Freya",
+            "Thomas", "Olivia", "Henry", "Emily", "William", "Ella", "James", "Poppy", "Aryaman", "Priya",
+            "Ravi", "Ananya", "Wei", "Mei", "Kwame", "Ama", "Sean", "Siobhan", "Connor", "Niamh"};
+
+    private static final String[] LAST_NAMES = {
+            "smith", "jones", "taylor", "brown", "williams", "wilson", "johnson", "davies", "patel", "wright",
+            "robinson", "thompson", "evans", "walker", "white", "roberts", "green", "hall", "wood", "jackson",
+            "clarke", "khan", "singh", "chen", "okafor", "murphy", "kelly", "oconnor", "campbell", "stewart"};
+
+    private static final String[] EMAIL_DOMAINS = {
+            "example.com", "example.org", "example.net", "mail.example.com", "inbox.example.org"};
+
+    // Each area code has 10^7 local numbers; customers step through them by a stride with no common factor with 10^7,
+    // so every customer of an area code gets a different, scattered number...
+    private static final long LOCAL_NUMBERS = 10_000_000L;
+    private static final long LOCAL_STRIDE = 7_919L;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int hotels;
+    private final int customers;
+    private final long bookings;
+    private final long seed;
+    private final int batchSize;
+    private final double hotelSkew;
+    private final double citySkew;
+    private final double dateSkew;
+    private final LocalDate firstCheckin;
+    private final int checkinDays;
+    private final int[] areaCodes;
+
+    DatasetGenerator() throws IOException
+    {
+        url = property("dataset.url", "jdbc:h2:tcp://localhost/mem:quarkus");
+        user = property("dataset.user", "");
+        password = property("dataset.password", "");
+        hotels = Integer.parseInt(property("dataset.hotels", "10000"));
+        customers = Integer.parseInt(property("dataset.customers", "1000000"));
+        bookings = Long.parseLong(property("dataset.bookings", "10000000"));
+        seed = Long.parseLong(property("dataset.seed", "1"));
+        batchSize = Integer.parseInt(property("dataset.batch-size", "5000"));
+        hotelSkew = Double.parseDouble(property("dataset.hotel-skew", "1.0"));
+        citySkew = Double.parseDouble(property("dataset.city-skew", "1.0"));
+        dateSkew = Double.parseDouble(property("dataset.date-skew", "0.8"));
+        firstCheckin = LocalDate.parse(property("dataset.first-checkin", "2027-01-01"));
+        checkinDays = Integer.parseInt(property("dataset.checkin-days", "730"));
+        areaCodes = areaCodes();
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        new DatasetGenerator().generate();
+    }
+
+    void generate() throws SQLException
+    {
+        try (Connection connection = DriverManager.getConnection(url, user, password))
+        {
+            connection.setAutoCommit(false);
+            long hotelStart = timed("hotels", hotels, () -> writeHotels(connection));
+            long customerStart = timed("customers", customers, () -> writeCustomers(connection));
+            timed("bookings", bookings, () -> writeBookings(connection, hotelStart, customerStart));
+        }
+    }
+
+    private long writeHotels(Connection connection) throws SQLException
+    {
+        long start = nextIdentity(connection, "hotels", "hotelID");
+        SplittableRandom random = new SplittableRandom(seed);
+        ZipfDistribution cities = new ZipfDistribution(CITIES.length, citySkew);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO hotels (hotelID, hotel_name, hotel_location) VALUES (?, ?, ?)"))
+        {
+            for (int i = 0; i < hotels; i++)
+            {
+                String city = CITIES[cities.sample(random)];
+                insert.setLong(1, start + i);
+                insert.setString(2, HOTEL_PREFIXES[random.nextInt(HOTEL_PREFIXES.length)] + " " + city + " "
+                        + HOTEL_SUFFIXES[random.nextInt(HOTEL_SUFFIXES.length)] + " " + (start + i));
+                insert.setString(3, city);
+                batch(connection, insert, i);
+            }
+            flush(connection, insert);
+        }
+        try (Statement statement = connection.createStatement())
+        {
+            statement.execute("ALTER TABLE hotels ALTER COLUMN hotelID RESTART WITH " + (start + hotels));
+        }
+        connection.commit();
+        return start;
+    }
+
+    private long writeCustomers(Connection connection) throws SQLException
+    {
+        long start = nextSequenceId(connection, "customer_sequence");
+        SplittableRandom random = new SplittableRandom(seed + 1);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO Customer (customerID, customer_name, customer_email, customer_phone_number) VALUES (?, ?, ?, ?)"))
+        {
+            for (int i = 0; i < customers; i++)
+            {
+                long id = start + i;
+                String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+                String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+                insert.setLong(1, id);
+                insert.setString(2, firstName);
+                // The id makes the email unique...
+                insert.setString(3, firstName.toLowerCase() + "." + lastName + "." + id + "@"
+                        + EMAIL_DOMAINS[random.nextInt(EMAIL_DOMAINS.length)]);
+                insert.setString(4, phoneNumber(id));
+                batch(connection, insert, i);
+            }
+            flush(connection, insert);
+        }
+        restartSequence(connection, "customer_sequence", start + customers);
+        return start;
+    }
+
+    private long writeBookings(Connection connection, long hotelStart, long customerStart) throws SQLException
+    {
+        long start = nextSequenceId(connection, "booking_sequence");
+        SplittableRandom random = new SplittableRandom(seed + 2);
+        ZipfDistribution hotelPopularity = new ZipfDistribution(hotels, hotelSkew);
+        ZipfDistribution checkinPopularity = new ZipfDistribution(checkinDays, dateSkew);
+        int[] hotelsByPopularity = shuffled(hotels, random);
+        LocalDate[] checkins = new LocalDate[checkinDays];
+        for (int day = 0; day < checkinDays; day++)
+        {
+            checkins[day] = firstCheckin.plusDays(day);
+        }
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO bookings (id, customer_id, hotel_id, checkin_date, booking_duration_days) VALUES (?, ?, ?, ?, ?)"))
+        {
+            long stride = stride(bookings);
+            long i = 0;
+            for (int customer = 0; customer < customers; customer++)
+            {
+                long count = bookingsOf(bookings - i, customers - customer, random);
+                if (count > (long) hotels * checkinDays)
+                {
+                    throw new IllegalStateException("A customer can't have " + count + " bookings without two at the"
+                            + " same hotel on the same day; give more customers, hotels or dataset.checkin-days");
+                }
+                long[] stays = new long[(int) count];
+                for (int b = 0; b < count; b++, i++)
+                {
+                    int hotel;
+                    int day;
+                    do
+                    {
+                        hotel = hotelsByPopularity[hotelPopularity.sample(random)];
+                        day = checkinPopularity.sample(random);
+                    } while (contains(stays, b, (long) hotel * checkinDays + day));
+                    stays[b] = (long) hotel * checkinDays + day;
+
+                    insert.setLong(1, start + Math.floorMod(i * stride, bookings));
+                    insert.setLong(2, customerStart + customer);
+                    insert.setLong(3, hotelStart + hotel);
+                    insert.setObject(4, checkins[day]);
+                    insert.setInt(5, stay(random));
+                    batch(connection, insert, i);
+                }
+            }
+            flush(connection, insert);
+        }
+        restartSequence(connection, "booking_sequence", start + bookings);
+        return start;
+    }
+
+    /**
+     * @return The phone number of the customer with the id; no two ids below 3.6 billion share one
+     */
+    private String phoneNumber(long id)
+    {
+        int areaCode = areaCodes[(int) (id % areaCodes.length)];
+        long local = Math.floorMod((id / areaCodes.length) * LOCAL_STRIDE + seed, LOCAL_NUMBERS);
+        return String.format("(%03d) %03d-%04d", areaCode, local / 10_000, local % 10_000);
+    }
+
+    /**
+     * <p>How many of the remaining bookings the next customer has: Poisson distributed with the mean number left per
+     * customer, as near enough it would be if each booking picked its customer at random, and the last customer takes
+     * what is left.</p>
+     */
+    private static long bookingsOf(long remaining, int customersLeft, SplittableRandom random)
+    {
+        if (customersLeft == 1)
+        {
+            return remaining;
+        }
+        double mean = (double) remaining / customersLeft;
+        long count;
+        if (mean < 500)
+        {
+            // Counts uniforms until their product falls below e^-mean
+            double limit = Math.exp(-mean);
+            double product = random.nextDouble();
+            count = 0;
+            while (product > limit)
+            {
+                product *= random.nextDouble();
+                count++;
+            }
+        } else
+        {
+            // e^-mean would underflow; a Poisson this large is near enough normal (Box-Muller)
+            double normal = Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+            count = Math.max(0, Math.round(mean + Math.sqrt(mean) * normal));
+        }
+        return Math.min(count, remaining);
+    }
+
+    // Whether the first n of the customer's stays hold the (hotel, check-in day) key...
+    private static boolean contains(long[] stays, int n, long stay)
+    {
+        for (int i = 0; i < n; i++)
+        {
+            if (stays[i] == stay)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * <p>A step with no common factor with n, about 0.618 of the way through it, so i x step mod n visits every id
+     * from 0 to n - 1 once, in an order that scatters each customer's bookings over the table rather than writing
+     * them next to each other. Fine for fewer than 3 billion bookings.</p>
+     */
+    private static long stride(long n)
+    {
+        long stride = Math.max(1, (long) (n * 0.6180339887));
+        while (gcd(stride, n) != 1)
+        {
+            stride++;
+        }
+        return stride;
+    }
+
+    private static long gcd(long a, long b)
+    {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    // From 1 to 14 nights, each a third less likely than the one before...
+    private static int stay(SplittableRandom random)
+    {
+        int nights = 1;
+        while (nights < 14 && random.nextInt(3) != 0)
+        {
+            nights++;
+        }
+        return nights;
+    }
+
+    private static int[] shuffled(int n, SplittableRandom random)
+    {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++)
+        {
+            order[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--)
+        {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        return order;
+    }
+
+    private void batch(Connection connection, PreparedStatement insert, long i) throws SQLException
+    {
+        insert.addBatch();
+        if (i % batchSize == batchSize - 1)
+        {
+            flush(connection, insert);
+        }
+    }
+
+    private static void flush(Connection connection, PreparedStatement insert) throws SQLException
+    {
+        insert.executeBatch();
+        connection.commit();
+    }
+
+    private static long nextIdentity(Connection connection, String table, String column) throws SQLException
+    {
+        try (Statement statement = connection.createStatement();
+             ResultSet max = statement.executeQuery("SELECT COALESCE(MAX(" + column + "), 0) FROM " + table))
+        {
+            max.next();
+            return max.getLong(1) + 1;
+        }
+    }
+
+    /**
+     * <p>Reserves ids from a sequence. The sequences go up by 50 and Hibernate takes a block of 50 ids for each value
+     * it reads, so no block the application holds reaches past the value read now.</p>
+     */
+    private static long nextSequenceId(Connection connection, String sequence) throws SQLException
+    {
+        try (Statement statement = connection.createStatement();
+             ResultSet next = statement.executeQuery("SELECT NEXT VALUE FOR " + sequence))
+        {
+            next.next();
+            long id = next.getLong(1) + 1;
+            connection.commit();
+            return id;
+        }
+    }
+
+    // Whichever end of its block Hibernate takes the value read to be, the whole block comes after the rows written...
+    private static void restartSequence(Connection connection, String sequence, long firstFree) throws SQLException
+    {
+        try (Statement statement = connection.createStatement())
+        {
+            statement.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + (firstFree + 49));
+        }
+        connection.commit();
+    }
+
+    private static int[] areaCodes() throws IOException
+    {
+        try (InputStream in = DatasetGenerator.class.getClassLoader().getResourceAsStream("area-codes.json"))
+        {
+            if (in == null)
+            {
+                throw new IllegalStateException("area-codes.json is missing from the classpath");
+            }
+            List<Integer> codes = new ArrayList<>();
+            for (JsonNode area : new ObjectMapper().readTree(in))
+            {
+                codes.add(area.path("id").asInt());
+            }
+            return codes.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    private static long timed(String rows, long count, Step step) throws SQLException
+    {
+        long started = System.nanoTime();
+        long result = step.run();
+        long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        System.out.printf("Wrote %,d %s in %.1fs (%,d a second)%n", count, rows, millis / 1000.0, count * 1000 / millis);
+        return result;
+    }
+
+    private static String property(String name, String defaultValue)
+    {
+        String value = System.getProperty(name);
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+
+    private interface Step
+    {
+        long run() throws SQLException;
+    }
+}
@@ -0,0 +1,47 @@
+package uk.ac.newcastle.enterprisemiddleware.dataset;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * <p>Picks ranks from 0 to n - 1 with probability falling as a power of the rank, as popularity does: rank 0 is the
+ * most likely, rank 1 half as likely when the exponent is 1, and so on.</p>
+ *
+ * <p>The cumulative probabilities are worked out once, so each pick is a binary search.</p>
+ *
+ * @author aryamanpatronia
+ */
+class ZipfDistribution
+{
+    private final double[] cumulative;
+
+    /**
+     * @param n How many ranks there are
+     * @param exponent How steeply popularity falls with rank; 0 makes every rank equally likely
+     */
+    ZipfDistribution(int n, double exponent)
+    {
+        if (n < 1)
+        {
+            throw new IllegalArgumentException("A Zipf distribution needs at least one rank, not " + n);
+        }
+        cumulative = new double[n];
+        double total = 0;
+        for (int rank = 0; rank < n; rank++)
+        {
+            total += 1 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = total;
+        }
+        for (int rank = 0; rank < n; rank++)
+        {
+            cumulative[rank] /= total;
+        }
+    }
+
+    int sample(SplittableRandom random)
+    {
+        int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+        // Not found gives -(insertion point) - 1, and the insertion point is the rank...
+        return Math.min(rank < 0 ? -rank - 1 : rank, cumulative.length - 1);
+    }
+}
@@ -0,0 +1,250 @@
+package uk.ac.newcastle.enterprisemiddleware.benchmark;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import uk.ac.newcastle.enterprisemiddleware.booking.Booking;
+import uk.ac.newcastle.enterprisemiddleware.contact.Contact;
+import uk.ac.newcastle.enterprisemiddleware.customer.Customer;
+import uk.ac.newcastle.enterprisemiddleware.hotel.Hotel;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>An embedded, in-memory H2 database holding the Hotel, Customer, Booking and Contact tables, for the benchmarks.</p>
+ *
+ * <p>Hibernate is started on its own rather than through Quarkus, with the same entities and the schema generated from
+ * them, so the queries are the ones the application runs. There is no second-level cache, so every read reaches the
+ * database.</p>
+ *
+ * <p>{@link #seed} fills it with {@code size} hotels, customers and bookings. The i-th of each is built by
+ * {@link #hotel}, {@link #customer} and {@link #booking}, so a benchmark can ask for a row it knows is there, or make
+ * one it knows isn't. {@link #seedContacts} does the same for contacts, built by {@link #contact}.</p>
+ *
+ * @author aryamanpatronia
+ */
+public class BenchmarkDatabase implements AutoCloseable
+{
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    // Rows are written in batches of this many, and the persistence context cleared after each...
+    private static final int BATCH = 500;
+
+    static final LocalDate FIRST_CHECKIN = LocalDate.of(2030, 1, 1);
+
+    private final JdbcConnectionPool pool;
+    private final SessionFactory sessionFactory;
+
+    private final List<Hotel> hotels = new ArrayList<>();
+    private final List<Customer> customers = new ArrayList<>();
+    private final List<Booking> bookings = new ArrayList<>();
+    private final List<Contact> contacts = new ArrayList<>();
+
+    public BenchmarkDatabase()
+    {
+        pool = JdbcConnectionPool.create("jdbc:h2:mem:benchmark" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.DATASOURCE, pool)
+                .applySetting(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+                .applySetting(AvailableSettings.STATEMENT_BATCH_SIZE, "50")
+                .applySetting(AvailableSettings.ORDER_INSERTS, "true")
+                .build();
+        sessionFactory = new MetadataSources(registry)
+                .addAnnotatedClass(Hotel.class)
+                .addAnnotatedClass(Customer.class)
+                .addAnnotatedClass(Booking.class)
+                .addAnnotatedClass(Contact.class)
+                .buildMetadata()
+                .buildSessionFactory();
+    }
+
+    /**
+     * @return A new EntityManager, with an empty persistence context, on this database
+     */
+    public EntityManager entityManager()
+    {
+        return sessionFactory.createEntityManager();
+    }
+
+    /**
+     * <p>Writes {@code size} hotels, customers and bookings. Booking i is for customer i at one of the hotels.</p>
+     *
+     * @param size How many of each to write
+     * @return This database
+     */
+    public BenchmarkDatabase seed(int size)
+    {
+        EntityManager em = entityManager();
+        em.getTransaction().begin();
+        for (int i = 0; i < size; i++)
+        {
+            Hotel hotel = hotel(i);
+            Customer customer = customer(i);
+            em.persist(hotel);
+            em.persist(customer);
+            hotels.add(hotel);
+            customers.add(customer);
+            if (i % BATCH == BATCH - 1)
+            {
+                em.flush();
+                em.clear();
+            }
+        }
+        for (int i = 0; i < size; i++)
+        {
+            Booking booking = booking(customers.get(i), hotels.get((int) ((i * 7L) % size)), i);
+            em.persist(booking);
+            bookings.add(booking);
+            if (i % BATCH == BATCH - 1)
+            {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.getTransaction().commit();
+        em.close();
+        return this;
+    }
+
+    /**
+     * <p>Writes {@code size} contacts.</p>
+     *
+     * @param size How many to write
+     * @return This database
+     */
+    public BenchmarkDatabase seedContacts(int size)
+    {
+        EntityManager em = entityManager();
+        em.getTransaction().begin();
+        for (int i = 0; i < size; i++)
+        {
+            Contact contact = contact(i);
+            em.persist(contact);
+            contacts.add(contact);
+            if (i % BATCH == BATCH - 1)
+            {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.getTransaction().commit();
+        em.close();
+        return this;
+    }
+
+    /**
+     * @return The hotels written by {@link #seed}, detached, in the order written
+     */
+    public List<Hotel> hotels()
+    {
+        return hotels;
+    }
+
+    /**
+     * @return The customers written by {@link #seed}, detached, in the order written
+     */
+    public List<Customer> customers()
+    {
+        return customers;
+    }
+
+    /**
+     * @return The bookings written by {@link #seed}, detached, in the order written
+     */
+    public List<Booking> bookings()
+    {
+        return bookings;
+    }
+
+    /**
+     * @return The contacts written by {@link #seedContacts}, detached, in the order written
+     */
+    public List<Contact> contacts()
+    {
+        return contacts;
+    }
+
+    /**
+     * @param i Any number
+     * @return A valid Hotel, with a name no other i gives
+     */
+    public static Hotel hotel(int i)
+    {
+        Hotel hotel = new Hotel();
+        hotel.setHotelName("Hotel " + i);
+        hotel.setHotelLocation("Location " + (i % 100));
+        return hotel;
+    }
+
+    /**
+     * @param i A number from 0 to 9,999,999
+     * @return A valid Customer, with an email, name and phone number no other i gives
+     */
+    public static Customer customer(int i)
+    {
+        Customer customer = new Customer();
+        customer.setCustomerName("Guest" + letters(i));
+        customer.setCustomerEmail("guest" + i + "@example.com");
+        customer.setCustomerPhoneNumber(String.format("(201) %03d-%04d", 100 + i / 10000, i % 10000));
+        return customer;
+    }
+
+    /**
+     * @return A valid Booking for the customer at the hotel, checking in i days after {@link #FIRST_CHECKIN}
+     */
+    public static Booking booking(Customer customer, Hotel hotel, int i)
+    {
+        Booking booking = new Booking();
+        booking.setCustomer(customer);
+        booking.setHotel(hotel);
+        booking.setCheckinDate(FIRST_CHECKIN.plusDays(i % 365));
+        booking.setBookingDurationDays(1 + i % 14);
+        return booking;
+    }
+
+    /**
+     * @param i A number from 0 to 9,999,999
+     * @return A valid Contact, with an email and last name no other i gives; one in 100 share a first name
+     */
+    public static Contact contact(int i)
+    {
+        Calendar birthDate = Calendar.getInstance();
+        birthDate.set(1980 + i % 30, Calendar.JANUARY, 1 + i % 28);
+
+        Contact contact = new Contact();
+        contact.setFirstName("First" + letters(i % 100));
+        contact.setLastName("Last" + letters(i));
+        contact.setEmail("contact" + i + "@example.com");
+        contact.setPhoneNumber(String.format("(201) %03d-%04d", 100 + i / 10000, i % 10000));
+        contact.setBirthDate(birthDate.getTime());
+        contact.setState("New Jersey");
+        return contact;
+    }
+
+    // Names may only hold letters, so the number is written in them...
+    private static String letters(int i)
+    {
+        StringBuilder letters = new StringBuilder();
+        do
+        {
+            letters.append((char) ('a' + i % 26));
+            i /= 26;
+        } while (i > 0);
+        return letters.toString();
+    }
+
+    @Override
+    public void close()
+    {
+        sessionFactory.close();
+        pool.dispose();
+    }
+}
@@ -0,0 +1,108 @@
+package uk.ac.newcastle.enterprisemiddleware.benchmark;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import uk.ac.newcastle.enterprisemiddleware.area.AreaCodeDirectory;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.logging.Logger;
+
+/**
+ * <p>Builds the beans the benchmarks run, without CDI.</p>
+ *
+ * <p>The application's beans take their dependencies in package scope fields, so {@link #inject} sets them by
+ * reflection, once, while the benchmark is set up. The code measured then calls the beans directly, with no
+ * interceptors around them.</p>
+ *
+ * @author aryamanpatronia
+ */
+public final class Fixtures
+{
+    private Fixtures()
+    {
+    }
+
+    /**
+     * <p>Sets a field of a bean, as CDI would have injected it.</p>
+     *
+     * @param bean The bean
+     * @param field The name of the field
+     * @param value The value to set it to
+     * @return The bean
+     */
+    public static <T> T inject(T bean, String field, Object value)
+    {
+        try
+        {
+            Field injected = bean.getClass().getDeclaredField(field);
+            injected.setAccessible(true);
+            injected.set(bean, value);
+            return bean;
+        } catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException("Can't inject " + field + " into " + bean.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * @return A new bean of the class, with its logger injected as {@code Resources} would
+     */
+    public static <T> T bean(Class<T> type)
+    {
+        try
+        {
+            return inject(type.getDeclaredConstructor().newInstance(), "log", Logger.getLogger(type.getName()));
+        } catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException("Can't create " + type.getName(), e);
+        }
+    }
+
+    /**
+     * @return A Bean Validation Validator
+     */
+    public static Validator validator()
+    {
+        return Validation.buildDefaultValidatorFactory().getValidator();
+    }
+
+    /**
+     * @return An ObjectMapper set up like the one Quarkus gives the REST endpoints
+     */
+    public static ObjectMapper objectMapper()
+    {
+        return new ObjectMapper()
+                .findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    /**
+     * @return An AreaCodeDirectory holding the bundled snapshot; it never calls the area service
+     */
+    public static AreaCodeDirectory areaCodes()
+    {
+        AreaCodeDirectory areaCodes = bean(AreaCodeDirectory.class);
+        inject(areaCodes, "mapper", objectMapper());
+        inject(areaCodes, "registry", new SimpleMeterRegistry());
+        try
+        {
+            Method loadSnapshot = AreaCodeDirectory.class.getDeclaredMethod("loadSnapshot");
+            loadSnapshot.setAccessible(true);
+            loadSnapshot.invoke(areaCodes);
+        } catch (InvocationTargetException e)
+        {
+            throw new IllegalStateException("Can't load the area codes", e.getCause());
+        } catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException("Can't load the area codes", e);
+        }
+        return areaCodes;
+    }
+}
@@ -0,0 +1,72 @@
+package uk.ac.newcastle.enterprisemiddleware.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import uk.ac.newcastle.enterprisemiddleware.booking.Booking;
+import uk.ac.newcastle.enterprisemiddleware.customer.Customer;
+import uk.ac.newcastle.enterprisemiddleware.hotel.Hotel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Measures writing lists of {@code size} Bookings, Hotels and Customers as JSON, as the list endpoints do.</p>
+ *
+ * @author aryamanpatronia
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark
+{
+    @Param({"10", "100", "1000"})
+    int size;
+
+    private ObjectWriter writer;
+    private List<Booking> bookings;
+    private List<Hotel> hotels;
+    private List<Customer> customers;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        writer = Fixtures.objectMapper().writer();
+        hotels = new ArrayList<>(size);
+        customers = new ArrayList<>(size);
+        bookings = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+        {
+            Hotel hotel = BenchmarkDatabase.hotel(i);
+            hotel.setId((long) i);
+            Customer customer = BenchmarkDatabase.customer(i);
+            customer.setCustomerID((long) i);
+            Booking booking = BenchmarkDatabase.booking(customer, hotel, i);
+            booking.setId((long) i);
+            hotels.add(hotel);
+            customers.add(customer);
+            bookings.add(booking);
+        }
+    }
+
+    @Benchmark
+    public byte[] bookings() throws Exception
+    {
+        return writer.writeValueAsBytes(bookings);
+    }
+
+    @Benchmark
+    public byte[] hotels() throws Exception
+    {
+        return writer.writeValueAsBytes(hotels);
+    }
+
+    @Benchmark
+    public byte[] customers() throws Exception
+    {
+        return writer.writeValueAsBytes(customers);
+    }
+}
@@ -0,0 +1,86 @@
+package uk.ac.newcastle.enterprisemiddleware.booking;
+
+import org.openjdk.jmh.annotations.*;
+import uk.ac.newcastle.enterprisemiddleware.benchmark.BenchmarkDatabase;
+import uk.ac.newcastle.enterprisemiddleware.benchmark.Fixtures;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Measures {@link BookingValidator#bookingAlreadyExists} and the {@link BookingRepository} reads and writes, against
+ * tables of {@code size} rows.</p>
+ *
+ * <p>The persistence context is cleared after each operation, as each request in the application starts with an
+ * empty one; otherwise every read after the first would be answered from it.</p>
+ *
+ * @author aryamanpatronia
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookingBenchmark
+{
+    @Param({"100", "1000", "10000"})
+    int size;
+
+    private BenchmarkDatabase database;
+    private EntityManager em;
+    private BookingRepository repository;
+    private BookingValidator validator;
+
+    private Booking existing;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        database = new BenchmarkDatabase().seed(size);
+        em = database.entityManager();
+        repository = Fixtures.inject(Fixtures.bean(BookingRepository.class), "em", em);
+        validator = new BookingValidator();
+        Fixtures.inject(validator, "validator", Fixtures.validator());
+        Fixtures.inject(validator, "bookingRepository", repository);
+        existing = database.bookings().get(size / 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        em.close();
+        database.close();
+    }
+
+    @Benchmark
+    public boolean bookingAlreadyExists()
+    {
+        boolean exists = validator.bookingAlreadyExists(existing.getCustomer(), existing.getHotel(),
+                existing.getCheckinDate(), existing.getBookingDurationDays());
+        em.clear();
+        return exists;
+    }
+
+    @Benchmark
+    public Booking findById()
+    {
+        Booking booking = repository.findById(existing.getId());
+        em.clear();
+        return booking;
+    }
+
+    @Benchmark
+    public Booking createAndDelete() throws Exception
+    {
+        em.getTransaction().begin();
+        Booking booking = repository.create(BenchmarkDatabase.booking(existing.getCustomer(), existing.getHotel(), next++));
+        // Write the row before deleting it, so both statements are measured...
+        em.flush();
+        repository.delete(booking);
+        em.getTransaction().commit();
+        em.clear();
+        return booking;
+    }
+}
@@ -0,0 +1,87 @@
+package uk.ac.newcastle.enterprisemiddleware.contact;
+
+import org.openjdk.jmh.annotations.*;
+import uk.ac.newcastle.enterprisemiddleware.benchmark.BenchmarkDatabase;
+import uk.ac.newcastle.enterprisemiddleware.benchmark.Fixtures;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Measures the {@link ContactRepository#findAllByName} search behind {@code GET /contacts}, against tables of
+ * {@code size} contacts: by last name prefix, by both prefixes, and paging through every contact, at the first page
+ * and at the last.</p>
+ *
+ * <p>With the name indexes a prefix search should cost about the same at every size. The unfiltered pages show what
+ * an offset costs: the last page reads every row before it.</p>
+ *
+ * @author aryamanpatronia
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContactBenchmark
+{
+    private static final int PAGE = 20;
+
+    @Param({"1000", "10000", "100000"})
+    int size;
+
+    private BenchmarkDatabase database;
+    private EntityManager em;
+    private ContactRepository repository;
+
+    private Contact existing;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        database = new BenchmarkDatabase().seedContacts(size);
+        em = database.entityManager();
+        repository = Fixtures.inject(Fixtures.bean(ContactRepository.class), "em", em);
+        existing = database.contacts().get(size / 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        em.close();
+        database.close();
+    }
+
+    @Benchmark
+    public List<Contact> byLastNamePrefix()
+    {
+        List<Contact> contacts = repository.findAllByName(null, existing.getLastName(), 0, PAGE);
+        em.clear();
+        return contacts;
+    }
+
+    @Benchmark
+    public List<Contact> byBothPrefixes()
+    {
+        List<Contact> contacts = repository.findAllByName(existing.getFirstName(), existing.getLastName(), 0, PAGE);
+        em.clear();
+        return contacts;
+    }
+
+    @Benchmark
+    public List<Contact> firstPage()
+    {
+        List<Contact> contacts = repository.findAllByName(null, null, 0, PAGE);
+        em.clear();
+        return contacts;
+    }
+
+    @Benchmark
+    public List<Contact> lastPage()
+    {
+        List<Contact> contacts = repository.findAllByName(null, null, size - PAGE, PAGE);
+        em.clear();
+        return contacts;
+    }
+}
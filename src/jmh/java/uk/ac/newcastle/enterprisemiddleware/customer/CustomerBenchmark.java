@@ -0,0 +1,99 @@
+package uk.ac.newcastle.enterprisemiddleware.customer;
+
+import org.openjdk.jmh.annotations.*;
+import uk.ac.newcastle.enterprisemiddleware.benchmark.BenchmarkDatabase;
+import uk.ac.newcastle.enterprisemiddleware.benchmark.Fixtures;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Measures {@link CustomerValidator#validateCustomer} and the {@link CustomerRepository} reads and writes, against
+ * tables of {@code size} rows.</p>
+ *
+ * <p>The persistence context is cleared after each operation, as each request in the application starts with an
+ * empty one; otherwise every read after the first would be answered from it.</p>
+ *
+ * @author aryamanpatronia
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerBenchmark
+{
+    @Param({"100", "1000", "10000"})
+    int size;
+
+    private BenchmarkDatabase database;
+    private EntityManager em;
+    private CustomerRepository repository;
+    private CustomerValidator validator;
+
+    private Customer existing;
+    private Customer created;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        database = new BenchmarkDatabase().seed(size);
+        em = database.entityManager();
+        repository = Fixtures.inject(Fixtures.bean(CustomerRepository.class), "em", em);
+        validator = new CustomerValidator();
+        Fixtures.inject(validator, "validator", Fixtures.validator());
+        Fixtures.inject(validator, "crud", repository);
+        Fixtures.inject(validator, "areaCodes", Fixtures.areaCodes());
+        existing = database.customers().get(size / 2);
+        created = BenchmarkDatabase.customer(size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        em.close();
+        database.close();
+    }
+
+    /**
+     * A new customer, who passes every check...
+     */
+    @Benchmark
+    public Customer validateCustomer()
+    {
+        validator.validateCustomer(created);
+        em.clear();
+        return created;
+    }
+
+    @Benchmark
+    public Customer findById()
+    {
+        Customer customer = repository.findById(existing.getCustomerID());
+        em.clear();
+        return customer;
+    }
+
+    @Benchmark
+    public Customer findByEmail()
+    {
+        Customer customer = repository.findByEmail(existing.getCustomerEmail());
+        em.clear();
+        return customer;
+    }
+
+    @Benchmark
+    public Customer createAndDelete() throws Exception
+    {
+        em.getTransaction().begin();
+        Customer customer = repository.create(BenchmarkDatabase.customer(size + 1 + next++));
+        // Write the row before deleting it, so both statements are measured...
+        em.flush();
+        repository.delete(customer);
+        em.getTransaction().commit();
+        em.clear();
+        return customer;
+    }
+}
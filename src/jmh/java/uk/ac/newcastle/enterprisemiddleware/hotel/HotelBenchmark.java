@@ -0,0 +1,93 @@
+package uk.ac.newcastle.enterprisemiddleware.hotel;
+
+import org.openjdk.jmh.annotations.*;
+import uk.ac.newcastle.enterprisemiddleware.benchmark.BenchmarkDatabase;
+import uk.ac.newcastle.enterprisemiddleware.benchmark.Fixtures;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Measures {@link HotelValidator#nameAlreadyExists} and the {@link HotelRepository} reads and writes, against
+ * tables of {@code size} rows.</p>
+ *
+ * <p>The persistence context is cleared after each operation, as each request in the application starts with an
+ * empty one; otherwise every read after the first would be answered from it.</p>
+ *
+ * @author aryamanpatronia
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HotelBenchmark
+{
+    @Param({"100", "1000", "10000"})
+    int size;
+
+    private BenchmarkDatabase database;
+    private EntityManager em;
+    private HotelRepository repository;
+    private HotelValidator validator;
+
+    private Hotel existing;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        database = new BenchmarkDatabase().seed(size);
+        em = database.entityManager();
+        repository = Fixtures.inject(Fixtures.bean(HotelRepository.class), "em", em);
+        validator = new HotelValidator();
+        Fixtures.inject(validator, "validator", Fixtures.validator());
+        Fixtures.inject(validator, "hotelRepository", repository);
+        existing = database.hotels().get(size / 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        em.close();
+        database.close();
+    }
+
+    @Benchmark
+    public boolean nameAlreadyExistsTaken()
+    {
+        boolean exists = validator.nameAlreadyExists(existing.getHotelName(), null);
+        em.clear();
+        return exists;
+    }
+
+    @Benchmark
+    public boolean nameAlreadyExistsFree()
+    {
+        boolean exists = validator.nameAlreadyExists("Hotel new", null);
+        em.clear();
+        return exists;
+    }
+
+    @Benchmark
+    public Hotel findById()
+    {
+        Hotel hotel = repository.findById(existing.getId());
+        em.clear();
+        return hotel;
+    }
+
+    @Benchmark
+    public Hotel createAndDelete() throws Exception
+    {
+        em.getTransaction().begin();
+        Hotel hotel = repository.create(BenchmarkDatabase.hotel(size + next++));
+        // Write the row before deleting it, so both statements are measured...
+        em.flush();
+        repository.delete(hotel);
+        em.getTransaction().commit();
+        em.clear();
+        return hotel;
+    }
+}
@@ -0,0 +1,114 @@
+package uk.ac.newcastle.enterprisemiddleware.util;
+
+import org.openjdk.jmh.annotations.*;
+import uk.ac.newcastle.enterprisemiddleware.benchmark.Fixtures;
+
+import javax.ws.rs.core.Response;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Measures a 404 as a {@link RestServiceException}, which fills in its stack trace, against a
+ * {@link RequestRejectedException}, which doesn't, and against the shared {@link RequestRejectedException#SIMULATOR_DISABLED}:
+ * creating one, and throwing it and mapping it to a response with {@link RestServiceExceptionMapper}.</p>
+ *
+ * <p>They are created {@code depth} frames down, as the cost of a stack trace grows with the stack, and a request is
+ * always some way down one. The mapper is set to log no client errors, as under a flood of them it logs only the first
+ * few each second.</p>
+ *
+ * @author aryamanpatronia
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExceptionBenchmark
+{
+    @Param({"10", "100"})
+    int depth;
+
+    private RestServiceExceptionMapper mapper;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        mapper = Fixtures.inject(Fixtures.bean(RestServiceExceptionMapper.class), "clientErrorsPerSecond", 0);
+    }
+
+    @Benchmark
+    public RestServiceException createRestServiceException()
+    {
+        return down(depth, Kind.TRACED);
+    }
+
+    @Benchmark
+    public RestServiceException createRequestRejectedException()
+    {
+        return down(depth, Kind.UNTRACED);
+    }
+
+    @Benchmark
+    public Response mapRestServiceException()
+    {
+        return throwAndMap(Kind.TRACED);
+    }
+
+    @Benchmark
+    public Response mapRequestRejectedException()
+    {
+        return throwAndMap(Kind.UNTRACED);
+    }
+
+    @Benchmark
+    public Response mapSharedRequestRejectedException()
+    {
+        return throwAndMap(Kind.SHARED);
+    }
+
+    private Response throwAndMap(Kind kind)
+    {
+        try
+        {
+            throw down(depth, kind);
+        } catch (RestServiceException e)
+        {
+            return mapper.toResponse(e);
+        }
+    }
+
+    private static RestServiceException down(int frames, Kind kind)
+    {
+        return frames == 0 ? kind.create() : down(frames - 1, kind);
+    }
+
+    private enum Kind
+    {
+        TRACED
+        {
+            @Override
+            RestServiceException create()
+            {
+                return new RestServiceException("No Booking with the id 42 was found", Response.Status.NOT_FOUND);
+            }
+        },
+        UNTRACED
+        {
+            @Override
+            RestServiceException create()
+            {
+                return new RequestRejectedException("No Booking with the id 42 was found", Response.Status.NOT_FOUND);
+            }
+        },
+        SHARED
+        {
+            @Override
+            RestServiceException create()
+            {
+                return RequestRejectedException.SIMULATOR_DISABLED;
+            }
+        };
+
+        abstract RestServiceException create();
+    }
+}
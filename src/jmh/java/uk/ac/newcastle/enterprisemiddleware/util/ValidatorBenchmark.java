@@ -0,0 +1,154 @@
+package uk.ac.newcastle.enterprisemiddleware.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import uk.ac.newcastle.enterprisemiddleware.benchmark.Fixtures;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import javax.validation.constraints.Pattern;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Measures {@link PersonNameValidator} and {@link PhoneNumberValidator} against the {@code @Pattern} regexes they
+ * replaced, on the same mix of valid inputs and near misses: the raw check on its own, and a full
+ * {@link Validator#validate} of a bean holding a name and a phone number, as a Customer or Contact write does.</p>
+ *
+ * <p>The set-up fails if the two ever disagree on an input, so a faster validator that accepts something different
+ * never gets measured.</p>
+ *
+ * @author aryamanpatronia
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidatorBenchmark
+{
+    private static final String NAME_REGEX = "[A-Za-z-']+";
+    private static final String PHONE_REGEX = "^\\([2-9][0-8][0-9]\\)\\s?[0-9]{3}\\-[0-9]{4}$";
+
+    private static final String[] NAMES = {
+            "Smith", "O'Neil", "Smith-Jones", "Bartholomew", "Smith2", "Smith Jones", "", "Zoë"
+    };
+    private static final String[] PHONES = {
+            "(201) 123-4567", "(201)123-4567", "(212)\t555-0100", "(191) 123-4567",
+            "(291) 123-4567", "(201) 123 4567", "201-123-4567", "(201) 123-456"
+    };
+
+    private final java.util.regex.Pattern name = java.util.regex.Pattern.compile(NAME_REGEX);
+    private final java.util.regex.Pattern phone = java.util.regex.Pattern.compile(PHONE_REGEX);
+    private final PersonNameValidator nameValidator = new PersonNameValidator();
+    private final PhoneNumberValidator phoneValidator = new PhoneNumberValidator();
+
+    private Validator validator;
+    private Checked[] checked;
+    private Matched[] matched;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        for (String value : NAMES)
+        {
+            if (nameValidator.isValid(value, null) != name.matcher(value).matches())
+            {
+                throw new IllegalStateException("PersonNameValidator and the regex disagree on " + value);
+            }
+        }
+        for (String value : PHONES)
+        {
+            if (phoneValidator.isValid(value, null) != phone.matcher(value).matches())
+            {
+                throw new IllegalStateException("PhoneNumberValidator and the regex disagree on " + value);
+            }
+        }
+
+        validator = Fixtures.validator();
+        checked = new Checked[NAMES.length];
+        matched = new Matched[NAMES.length];
+        for (int i = 0; i < NAMES.length; i++)
+        {
+            checked[i] = new Checked(NAMES[i], PHONES[i]);
+            matched[i] = new Matched(NAMES[i], PHONES[i]);
+        }
+    }
+
+    @Benchmark
+    public void validators(Blackhole blackhole)
+    {
+        for (int i = 0; i < NAMES.length; i++)
+        {
+            blackhole.consume(nameValidator.isValid(NAMES[i], null));
+            blackhole.consume(phoneValidator.isValid(PHONES[i], null));
+        }
+    }
+
+    @Benchmark
+    public void regexes(Blackhole blackhole)
+    {
+        for (int i = 0; i < NAMES.length; i++)
+        {
+            blackhole.consume(name.matcher(NAMES[i]).matches());
+            blackhole.consume(phone.matcher(PHONES[i]).matches());
+        }
+    }
+
+    @Benchmark
+    public void validateWithValidators(Blackhole blackhole)
+    {
+        for (Checked bean : checked)
+        {
+            Set<ConstraintViolation<Checked>> violations = validator.validate(bean);
+            blackhole.consume(violations);
+        }
+    }
+
+    @Benchmark
+    public void validateWithRegexes(Blackhole blackhole)
+    {
+        for (Matched bean : matched)
+        {
+            Set<ConstraintViolation<Matched>> violations = validator.validate(bean);
+            blackhole.consume(violations);
+        }
+    }
+
+    /**
+     * A name and phone number as Customer and Contact now check them.
+     */
+    public static class Checked
+    {
+        @PersonName
+        final String name;
+
+        @PhoneNumber
+        final String phoneNumber;
+
+        Checked(String name, String phoneNumber)
+        {
+            this.name = name;
+            this.phoneNumber = phoneNumber;
+        }
+    }
+
+    /**
+     * A name and phone number as Customer and Contact checked them before.
+     */
+    public static class Matched
+    {
+        @Pattern(regexp = NAME_REGEX)
+        final String name;
+
+        @Pattern(regexp = PHONE_REGEX)
+        final String phoneNumber;
+
+        Matched(String name, String phoneNumber)
+        {
+            this.name = name;
+            this.phoneNumber = phoneNumber;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package uk.ac.newcastle.enterprisemiddleware.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>The latencies a load test measured, per scenario.</p>
+ *
+ * <p>Each request's latency is taken from the time it was scheduled to be sent, not the time it was sent, so a
+ * request held up behind slow ones still counts the time it waited; this corrects for coordinated omission. The time
+ * from sending it is kept as well, as the service time, to show how much of the latency was queueing.</p>
+ *
+ * <p>Requests that fail, or get a response other than 2xx, are timed like any other and also counted as errors.
+ * Requests still unanswered a minute after the test ends are counted as errors too, timed until then. Requests the
+ * load generator couldn't send because too many were already waiting are counted as dropped.</p>
+ *
+ * @author aryamanpatronia
+ */
+class LatencyReport
+{
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final Map<Scenario, Endpoint> endpoints = new EnumMap<>(Scenario.class);
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    LatencyReport()
+    {
+        for (Scenario scenario : Scenario.values())
+        {
+            endpoints.put(scenario, new Endpoint());
+        }
+    }
+
+    void record(Scenario scenario, long scheduledNanos, long sentNanos, long doneNanos, boolean succeeded)
+    {
+        Endpoint endpoint = endpoints.get(scenario);
+        endpoint.latency.recordValue(micros(doneNanos - scheduledNanos));
+        endpoint.service.recordValue(micros(doneNanos - sentNanos));
+        if (!succeeded)
+        {
+            endpoint.errors.increment();
+        }
+    }
+
+    void dropped(Scenario scenario)
+    {
+        endpoints.get(scenario).dropped.increment();
+    }
+
+    /**
+     * <p>Takes the latencies recorded so far; call it once, when every request has completed.</p>
+     */
+    void finish()
+    {
+        for (Endpoint endpoint : endpoints.values())
+        {
+            endpoint.latencies = endpoint.latency.getIntervalHistogram();
+            endpoint.serviceTimes = endpoint.service.getIntervalHistogram();
+        }
+    }
+
+    /**
+     * @return How many requests were measured, over all scenarios
+     */
+    long completed()
+    {
+        long completed = 0;
+        for (Endpoint endpoint : endpoints.values())
+        {
+            completed += endpoint.latencies.getTotalCount();
+        }
+        return completed;
+    }
+
+    void print(PrintStream out)
+    {
+        out.printf("%-22s %8s %7s %7s %9s %9s %9s %9s %9s %12s%n", "scenario", "count", "errors", "dropped",
+                "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "svc p99 ms");
+        for (Map.Entry<Scenario, Endpoint> entry : endpoints.entrySet())
+        {
+            Endpoint endpoint = entry.getValue();
+            Histogram latencies = endpoint.latencies;
+            out.printf("%-22s %8d %7d %7d %9.1f %9.1f %9.1f %9.1f %9.1f %12.1f%n", entry.getKey().label(),
+                    latencies.getTotalCount(), endpoint.errors.sum(), endpoint.dropped.sum(),
+                    millis(latencies, 50), millis(latencies, 90), millis(latencies, 99), millis(latencies, 99.9),
+                    latencies.getMaxValue() / MICROS_PER_MILLI, millis(endpoint.serviceTimes, 99));
+        }
+    }
+
+    /**
+     * <p>Writes {@code summary.json}, which a later run can be checked against, and each scenario's full latency
+     * distribution as {@code <scenario>.hgrm}, in milliseconds.</p>
+     *
+     * @param directory The directory to write them to
+     * @param settings What the run was asked to do, recorded in the summary
+     */
+    void write(Path directory, Map<String, Object> settings) throws IOException
+    {
+        Files.createDirectories(directory);
+        ObjectNode summary = mapper.createObjectNode();
+        summary.set("settings", mapper.valueToTree(settings));
+        ObjectNode scenarios = summary.putObject("scenarios");
+        for (Map.Entry<Scenario, Endpoint> entry : endpoints.entrySet())
+        {
+            Endpoint endpoint = entry.getValue();
+            Histogram latencies = endpoint.latencies;
+            ObjectNode scenario = scenarios.putObject(entry.getKey().label());
+            scenario.put("count", latencies.getTotalCount());
+            scenario.put("errors", endpoint.errors.sum());
+            scenario.put("dropped", endpoint.dropped.sum());
+            scenario.put("p50Ms", millis(latencies, 50));
+            scenario.put("p90Ms", millis(latencies, 90));
+            scenario.put("p99Ms", millis(latencies, 99));
+            scenario.put("p999Ms", millis(latencies, 99.9));
+            scenario.put("maxMs", latencies.getMaxValue() / MICROS_PER_MILLI);
+            scenario.put("serviceP99Ms", millis(endpoint.serviceTimes, 99));
+
+            try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(entry.getKey().label() + ".hgrm"))))
+            {
+                latencies.outputPercentileDistribution(out, MICROS_PER_MILLI);
+            }
+        }
+        mapper.writerWithDefaultPrettyPrinter().writeValue(directory.resolve("summary.json").toFile(), summary);
+    }
+
+    /**
+     * <p>Checks the run against its limits, and against an earlier run's summary if there is one.</p>
+     *
+     * @param baseline The {@code summary.json} of an earlier run, or null
+     * @param maxRegression How much larger than the baseline's a scenario's p99 may be, as a fraction of it
+     * @param slackMillis How much larger than the baseline's a p99 may be in any case, so tiny latencies don't fail on
+     * noise
+     * @param maxP99Millis The largest p99 any scenario may have, or 0 for no limit
+     * @param maxErrorRate The largest fraction of a scenario's requests that may fail or be dropped
+     * @return A description of each limit broken; empty if the run passed
+     */
+    List<String> check(JsonNode baseline, double maxRegression, double slackMillis, double maxP99Millis, double maxErrorRate)
+    {
+        List<String> failures = new ArrayList<>();
+        for (Map.Entry<Scenario, Endpoint> entry : endpoints.entrySet())
+        {
+            String label = entry.getKey().label();
+            Endpoint endpoint = entry.getValue();
+            long count = endpoint.latencies.getTotalCount();
+            long failed = endpoint.errors.sum() + endpoint.dropped.sum();
+            if (count + endpoint.dropped.sum() == 0)
+            {
+                continue;
+            }
+            double errorRate = (double) failed / (count + endpoint.dropped.sum());
+            if (errorRate > maxErrorRate)
+            {
+                failures.add(String.format("%s: %.2f%% of requests failed or were dropped, more than %.2f%%", label,
+                        errorRate * 100, maxErrorRate * 100));
+            }
+            double p99 = millis(endpoint.latencies, 99);
+            if (maxP99Millis > 0 && p99 > maxP99Millis)
+            {
+                failures.add(String.format("%s: p99 of %.1f ms is over the %.1f ms limit", label, p99, maxP99Millis));
+            }
+            JsonNode before = baseline == null ? null : baseline.path("scenarios").path(label).get("p99Ms");
+            if (before != null && p99 > before.asDouble() * (1 + maxRegression) + slackMillis)
+            {
+                failures.add(String.format("%s: p99 of %.1f ms has regressed from %.1f ms, by more than %.0f%%", label,
+                        p99, before.asDouble(), maxRegression * 100));
+            }
+        }
+        return failures;
+    }
+
+    private static long micros(long nanos)
+    {
+        return Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    private static double millis(Histogram histogram, double percentile)
+    {
+        return histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+    }
+
+    private static class Endpoint
+    {
+        final Recorder latency = new Recorder(3);
+        final Recorder service = new Recorder(3);
+        final LongAdder errors = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+
+        Histogram latencies;
+        Histogram serviceTimes;
+    }
+}
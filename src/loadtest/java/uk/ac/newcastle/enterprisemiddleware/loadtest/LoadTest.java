@@ -0,0 +1,332 @@
+package uk.ac.newcastle.enterprisemiddleware.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>Sends a mix of requests to a running application at a fixed average rate, and reports the latencies of each
+ * kind.</p>
+ *
+ * <p>It is an open model: requests are scheduled at random (Poisson) arrival times worked out in advance, and each is
+ * sent when its time comes whether or not earlier ones have been answered, as users' requests would be. A slow
+ * response doesn't hold the next request back, and its latency is measured from when it was scheduled; see
+ * {@link LatencyReport}.</p>
+ *
+ * <p>With {@code loadtest.clients} set it runs a closed model instead, to find the throughput the application can
+ * sustain at a given concurrency: that many clients each send a request, wait for its response and send the next, for
+ * the whole test. The rate is then whatever the application manages, and latency is measured from sending.</p>
+ *
+ * <p>It is run by {@code mvn -Pload-test verify -DskipTests} against an application already started, normally with
+ * {@code -Dquarkus.profile=sim} so the taxi, flight and area services are simulated. Its settings are the
+ * {@code loadtest.*} system properties read below, which can be given to Maven with -D. It fails, and so fails the
+ * build, if any scenario breaks a limit: the p99 limit, the error rate limit, or a p99 regression against
+ * {@code loadtest.baseline}, the {@code summary.json} of an earlier run.</p>
+ *
+ * @author aryamanpatronia
+ */
+public class LoadTest
+{
+    private static final String DEFAULT_MIX =
+            "browse-hotels=40,view-hotel=25,signup=10,guest-booking=15,travel-agent-booking=10";
+
+    public static void main(String[] args) throws Exception
+    {
+        String url = property("loadtest.url", "http://localhost:8080");
+        double rate = Double.parseDouble(property("loadtest.rate", "50"));
+        Duration warmup = Duration.parse(property("loadtest.warmup", "PT10S"));
+        Duration duration = Duration.parse(property("loadtest.duration", "PT60S"));
+        Map<Scenario, Integer> mix = mix(property("loadtest.mix", DEFAULT_MIX));
+        long seed = Long.parseLong(property("loadtest.seed", "1"));
+        int maxOutstanding = Integer.parseInt(property("loadtest.max-outstanding", "1000"));
+        int clients = Integer.parseInt(property("loadtest.clients", "0"));
+        int hotels = Integer.parseInt(property("loadtest.hotels", "20"));
+        int customers = Integer.parseInt(property("loadtest.customers", "50"));
+        Path reports = Paths.get(property("loadtest.report", "target/loadtest"));
+        String baseline = property("loadtest.baseline", "");
+        double maxRegression = Double.parseDouble(property("loadtest.max-p99-regression", "0.25"));
+        double slackMillis = Double.parseDouble(property("loadtest.p99-slack-ms", "5"));
+        double maxP99Millis = Double.parseDouble(property("loadtest.max-p99-ms", "0"));
+        double maxErrorRate = Double.parseDouble(property("loadtest.max-error-rate", "0.01"));
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        Workload workload = new Workload(client, url, seed);
+        workload.prepare(hotels, customers);
+
+        LatencyReport report;
+        if (clients > 0)
+        {
+            System.out.printf("Load testing %s with %d clients for %s, after %s warming up%n", url, clients, duration, warmup);
+            report = runClients(client, workload, mix, clients, warmup, duration, seed);
+        } else
+        {
+            System.out.printf("Load testing %s at %.1f requests a second for %s, after %s warming up%n", url, rate, duration, warmup);
+            report = run(client, workload, mix, rate, warmup, duration, seed, maxOutstanding);
+        }
+        report.print(System.out);
+        System.out.printf("Throughput %.1f requests a second%n", report.completed() / (duration.toNanos() / 1e9));
+
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("url", url);
+        settings.put("rate", rate);
+        settings.put("clients", clients);
+        settings.put("warmup", warmup.toString());
+        settings.put("duration", duration.toString());
+        settings.put("mix", property("loadtest.mix", DEFAULT_MIX));
+        settings.put("seed", seed);
+        report.write(reports, settings);
+        System.out.println("Reports written to " + reports.toAbsolutePath());
+
+        JsonNode previous = baseline.isEmpty() ? null : new ObjectMapper().readTree(Files.readAllBytes(Paths.get(baseline)));
+        List<String> failures = report.check(previous, maxRegression, slackMillis, maxP99Millis, maxErrorRate);
+        if (!failures.isEmpty())
+        {
+            throw new IllegalStateException("The load test failed:" + System.lineSeparator()
+                    + String.join(System.lineSeparator(), failures));
+        }
+    }
+
+    static LatencyReport run(HttpClient client, Workload workload, Map<Scenario, Integer> mix, double rate,
+                             Duration warmup, Duration duration, long seed, int maxOutstanding) throws InterruptedException
+    {
+        LatencyReport report = new LatencyReport();
+        Random random = new Random(seed);
+        Scenario[] scenarios = mix.keySet().toArray(new Scenario[0]);
+        int[] weights = new int[scenarios.length];
+        int totalWeight = 0;
+        for (int i = 0; i < scenarios.length; i++)
+        {
+            totalWeight += mix.get(scenarios[i]);
+            weights[i] = totalWeight;
+        }
+        long[] sent = new long[Scenario.values().length];
+        Semaphore outstanding = new Semaphore(maxOutstanding);
+        Set<Sending> unanswered = ConcurrentHashMap.newKeySet();
+
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        double nanosPerRequest = TimeUnit.SECONDS.toNanos(1) / rate;
+        double scheduled = start;
+        while (true)
+        {
+            scheduled += -Math.log(1 - random.nextDouble()) * nanosPerRequest;
+            long at = (long) scheduled;
+            if (at >= end)
+            {
+                break;
+            }
+            int pick = random.nextInt(totalWeight);
+            int i = 0;
+            while (weights[i] <= pick)
+            {
+                i++;
+            }
+            Scenario scenario = scenarios[i];
+            HttpRequest request = scenario.request(workload, sent[scenario.ordinal()]++);
+
+            long wait;
+            while ((wait = at - System.nanoTime()) > 0)
+            {
+                LockSupport.parkNanos(wait);
+            }
+            boolean measured = at >= measureFrom;
+            if (!outstanding.tryAcquire())
+            {
+                if (measured)
+                {
+                    report.dropped(scenario);
+                }
+                continue;
+            }
+            Sending sending = new Sending(scenario, at, System.nanoTime());
+            if (measured)
+            {
+                unanswered.add(sending);
+            }
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) ->
+            {
+                long done = System.nanoTime();
+                outstanding.release();
+                // Whichever removes it records it: this, or the test giving up on it below
+                if (measured && unanswered.remove(sending))
+                {
+                    report.record(scenario, at, sending.sentAt, done, failure == null && response.statusCode() / 100 == 2);
+                }
+            });
+        }
+        if (!outstanding.tryAcquire(maxOutstanding, 60, TimeUnit.SECONDS))
+        {
+            // Leaving them out would hide the slowest requests of all, so they count as errors, timed until now
+            long now = System.nanoTime();
+            int abandoned = 0;
+            for (Sending sending : unanswered)
+            {
+                if (unanswered.remove(sending))
+                {
+                    report.record(sending.scenario, sending.at, sending.sentAt, now, false);
+                    abandoned++;
+                }
+            }
+            System.out.println(abandoned + " requests were still waiting for a response a minute after the test ended;"
+                    + " they are counted as errors");
+        }
+        report.finish();
+        return report;
+    }
+
+    static LatencyReport runClients(HttpClient client, Workload workload, Map<Scenario, Integer> mix, int clients,
+                                    Duration warmup, Duration duration, long seed) throws InterruptedException
+    {
+        LatencyReport report = new LatencyReport();
+        Scenario[] scenarios = mix.keySet().toArray(new Scenario[0]);
+        int[] weights = new int[scenarios.length];
+        int totalWeight = 0;
+        for (int i = 0; i < scenarios.length; i++)
+        {
+            totalWeight += mix.get(scenarios[i]);
+            weights[i] = totalWeight;
+        }
+        AtomicLongArray sent = new AtomicLongArray(Scenario.values().length);
+        CountDownLatch finished = new CountDownLatch(clients);
+
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        SplittableRandom seeds = new SplittableRandom(seed);
+        for (int c = 0; c < clients; c++)
+        {
+            new Client(client, workload, report, scenarios, weights, sent, seeds.split(), measureFrom, end, finished).next();
+        }
+        if (!finished.await(duration.toSeconds() + warmup.toSeconds() + 60, TimeUnit.SECONDS))
+        {
+            System.out.println("Some clients were still waiting for a response a minute after the test ended");
+        }
+        report.finish();
+        return report;
+    }
+
+    // A request of the open model that has been sent, kept until it is answered or given up on
+    private static final class Sending
+    {
+        private final Scenario scenario;
+        private final long at;
+        private final long sentAt;
+
+        Sending(Scenario scenario, long at, long sentAt)
+        {
+            this.scenario = scenario;
+            this.at = at;
+            this.sentAt = sentAt;
+        }
+    }
+
+    // One client of the closed model: sends its next request from the completion of the last one...
+    private static final class Client
+    {
+        private final HttpClient client;
+        private final Workload workload;
+        private final LatencyReport report;
+        private final Scenario[] scenarios;
+        private final int[] weights;
+        private final AtomicLongArray sent;
+        private final SplittableRandom random;
+        private final long measureFrom;
+        private final long end;
+        private final CountDownLatch finished;
+
+        Client(HttpClient client, Workload workload, LatencyReport report, Scenario[] scenarios, int[] weights,
+               AtomicLongArray sent, SplittableRandom random, long measureFrom, long end, CountDownLatch finished)
+        {
+            this.client = client;
+            this.workload = workload;
+            this.report = report;
+            this.scenarios = scenarios;
+            this.weights = weights;
+            this.sent = sent;
+            this.random = random;
+            this.measureFrom = measureFrom;
+            this.end = end;
+            this.finished = finished;
+        }
+
+        void next()
+        {
+            long sentAt = System.nanoTime();
+            if (sentAt >= end)
+            {
+                finished.countDown();
+                return;
+            }
+            int pick = random.nextInt(weights[weights.length - 1]);
+            int i = 0;
+            while (weights[i] <= pick)
+            {
+                i++;
+            }
+            Scenario scenario = scenarios[i];
+            HttpRequest request = scenario.request(workload, sent.getAndIncrement(scenario.ordinal()));
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) ->
+            {
+                long done = System.nanoTime();
+                if (sentAt >= measureFrom && done <= end)
+                {
+                    report.record(scenario, sentAt, sentAt, done, failure == null && response.statusCode() / 100 == 2);
+                }
+                next();
+            });
+        }
+    }
+
+    // The scenarios and their weights, as in "signup=10,guest-booking=15"...
+    private static Map<Scenario, Integer> mix(String mix)
+    {
+        Map<Scenario, Integer> weights = new EnumMap<>(Scenario.class);
+        for (String entry : mix.split(","))
+        {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2)
+            {
+                throw new IllegalArgumentException("loadtest.mix entries are scenario=weight, not " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0)
+            {
+                weights.put(Scenario.of(parts[0].trim()), weight);
+            }
+        }
+        if (weights.isEmpty())
+        {
+            throw new IllegalArgumentException("loadtest.mix gives no scenario a weight");
+        }
+        return weights;
+    }
+
+    private static String property(String name, String defaultValue)
+    {
+        String value = System.getProperty(name);
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+}
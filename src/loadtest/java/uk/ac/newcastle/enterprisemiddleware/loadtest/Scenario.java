@@ -0,0 +1,85 @@
+package uk.ac.newcastle.enterprisemiddleware.loadtest;
+
+import java.net.http.HttpRequest;
+
+/**
+ * <p>The kinds of request a load test sends, each timed on its own.</p>
+ *
+ * <p>Each one builds the n-th request of its kind from the {@link Workload}, so a run with the same seed sends the
+ * same requests in the same order.</p>
+ *
+ * @author aryamanpatronia
+ */
+enum Scenario
+{
+    BROWSE_HOTELS("browse-hotels")
+    {
+        @Override
+        HttpRequest request(Workload workload, long n)
+        {
+            return workload.get("/hotels");
+        }
+    },
+    VIEW_HOTEL("view-hotel")
+    {
+        @Override
+        HttpRequest request(Workload workload, long n)
+        {
+            return workload.get("/hotels/" + workload.hotelId(n));
+        }
+    },
+    SIGNUP("signup")
+    {
+        @Override
+        HttpRequest request(Workload workload, long n)
+        {
+            return workload.post("/customers", workload.newCustomer());
+        }
+    },
+    GUEST_BOOKING("guest-booking")
+    {
+        @Override
+        HttpRequest request(Workload workload, long n)
+        {
+            return workload.post("/guest-booking", "{\"customer\":" + workload.newCustomer()
+                    + ",\"booking\":" + workload.booking(n) + "}");
+        }
+    },
+    TRAVEL_AGENT_BOOKING("travel-agent-booking")
+    {
+        @Override
+        HttpRequest request(Workload workload, long n)
+        {
+            return workload.post("/travelagent/bookings", workload.travelAgentBooking(n));
+        }
+    };
+
+    private final String label;
+
+    Scenario(String label)
+    {
+        this.label = label;
+    }
+
+    /**
+     * @return The name the scenario is given in {@code loadtest.mix} and in the reports
+     */
+    String label()
+    {
+        return label;
+    }
+
+    abstract HttpRequest request(Workload workload, long n);
+
+    static Scenario of(String label)
+    {
+        for (Scenario scenario : values())
+        {
+            if (scenario.label.equals(label))
+            {
+                return scenario;
+            }
+        }
+        throw new IllegalArgumentException("No load test scenario called " + label);
+    }
+}
@@ -0,0 +1,171 @@
+package uk.ac.newcastle.enterprisemiddleware.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>The data a load test's requests are made from: the hotels and customers it books for, and new customers'
+ * details.</p>
+ *
+ * <p>{@link #prepare} creates the hotels and customers before the test starts. New customers' emails carry a run id
+ * and their phone numbers start from a random offset, so runs against the same database don't collide; a collision is
+ * possible, and would show up as a client error.</p>
+ *
+ * @author aryamanpatronia
+ */
+class Workload
+{
+    // Phone numbers are (NXX) XXX-XXXX with an area code from 201 to 999, all of which the partner simulator knows...
+    private static final long PHONE_NUMBERS = 799L * 10_000_000L;
+    private static final LocalDate FIRST_CHECKIN = LocalDate.of(2030, 1, 1);
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient client;
+    private final String url;
+    private final String runId;
+    private final long phoneOffset;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final List<Long> hotelIds = new ArrayList<>();
+    private final List<Long> customerIds = new ArrayList<>();
+
+    // The closed model builds requests on the HTTP client's threads, so this is shared between them...
+    private final AtomicLong newCustomers = new AtomicLong();
+
+    Workload(HttpClient client, String url, long seed)
+    {
+        this.client = client;
+        this.url = url;
+        this.runId = Long.toString(System.currentTimeMillis(), 36);
+        this.phoneOffset = Math.floorMod(seed * 0x9E3779B97F4A7C15L + System.nanoTime(), PHONE_NUMBERS);
+    }
+
+    /**
+     * <p>Creates the hotels and customers the requests will use.</p>
+     *
+     * @param hotels How many hotels to create
+     * @param customers How many customers to create, for travel agent bookings
+     */
+    void prepare(int hotels, int customers) throws IOException, InterruptedException
+    {
+        for (int i = 0; i < hotels; i++)
+        {
+            send(post("/hotels", "{\"hotelName\":\"Load " + runId + " " + i + "\",\"hotelLocation\":\"Location " + i + "\"}"));
+        }
+        // The create responses don't all carry the new id, so the ids are read back...
+        for (JsonNode hotel : mapper.readTree(send(get("/hotels"))))
+        {
+            if (hotel.path("hotelName").asText().startsWith("Load " + runId + " "))
+            {
+                hotelIds.add(hotel.path("id").asLong());
+            }
+        }
+        for (int i = 0; i < customers; i++)
+        {
+            // Negative numbers, so they never share a phone number with the customers the test signs up...
+            String customer = customer(-1 - i);
+            send(post("/customers", customer));
+            String email = mapper.readTree(customer).path("customerEmail").asText();
+            JsonNode created = mapper.readTree(send(get("/customers/email/" + URLEncoder.encode(email, StandardCharsets.UTF_8))));
+            customerIds.add(created.path("customerID").asLong());
+        }
+        if (hotelIds.size() != hotels || customerIds.size() != customers)
+        {
+            throw new IllegalStateException("Only " + hotelIds.size() + " hotels and " + customerIds.size()
+                    + " customers could be created");
+        }
+    }
+
+    HttpRequest get(String path)
+    {
+        return HttpRequest.newBuilder(URI.create(url + path)).timeout(TIMEOUT).GET().build();
+    }
+
+    HttpRequest post(String path, String json)
+    {
+        return HttpRequest.newBuilder(URI.create(url + path))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    long hotelId(long n)
+    {
+        return hotelIds.get((int) Math.floorMod(n, (long) hotelIds.size()));
+    }
+
+    long customerId(long n)
+    {
+        return customerIds.get((int) Math.floorMod(n, (long) customerIds.size()));
+    }
+
+    /**
+     * @return The JSON of a customer who doesn't exist yet; each call gives a different one
+     */
+    String newCustomer()
+    {
+        return customer(newCustomers.getAndIncrement());
+    }
+
+    private String customer(long n)
+    {
+        long phone = Math.floorMod(phoneOffset + n, PHONE_NUMBERS);
+        long area = 201 + phone / 10_000_000L;
+        long number = phone % 10_000_000L;
+        return "{\"customerName\":\"Load" + letters(n) + "\",\"customerEmail\":\"load" + runId + "." + n
+                + "@example.com\",\"customerPhoneNumber\":\"" + String.format("(%03d) %03d-%04d", area, number / 10_000, number % 10_000) + "\"}";
+    }
+
+    String booking(long n)
+    {
+        return "{\"hotel\":{\"id\":" + hotelId(n) + "},\"checkinDate\":\"" + FIRST_CHECKIN.plusDays(Math.floorMod(n, 365L))
+                + "\",\"bookingDurationDays\":" + (1 + Math.floorMod(n, 14L)) + "}";
+    }
+
+    String travelAgentBooking(long n)
+    {
+        return "{\"customerId\":" + customerId(n) + ",\"hotelId\":" + hotelId(n)
+                + ",\"taxiBookingRequest\":{\"registration\":\"LT" + Math.floorMod(n, 100L) + "\",\"numberOfSeats\":2}"
+                + ",\"flightBookingRequest\":{\"flightNumber\":\"LT" + Math.floorMod(n, 1000L)
+                + "\",\"departureLocation\":\"NCL\",\"arrivalLocation\":\"LHR\",\"departureDate\":\""
+                + FIRST_CHECKIN.plusDays(Math.floorMod(n, 365L)) + "\"}}";
+    }
+
+    private String send(HttpRequest request) throws IOException, InterruptedException
+    {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2)
+        {
+            throw new IllegalStateException(request.method() + " " + request.uri() + " returned " + response.statusCode()
+                    + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    // Names may only hold letters, so the number is written in them...
+    private static String letters(long n)
+    {
+        StringBuilder letters = new StringBuilder();
+        n = Math.abs(n % 1_000_000_000_000L);
+        do
+        {
+            letters.append((char) ('a' + n % 26));
+            n /= 26;
+        } while (n > 0);
+        return letters.toString();
+    }
+}
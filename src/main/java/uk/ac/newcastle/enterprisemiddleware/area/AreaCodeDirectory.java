@@ -0,0 +1,180 @@
+package uk.ac.newcastle.enterprisemiddleware.area;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.scheduler.Scheduled;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * <p>A local copy of every US area code, so a phone number can be checked and its state found without calling the
+ * {@link AreaService} each time.</p>
+ *
+ * <p>It starts from the snapshot bundled as {@value #SNAPSHOT}, then merges the list from
+ * {@link AreaService#getAreas()} into it in the background, and again every {@code area.directory.refresh-interval}.
+ * The service's entries add to or update the snapshot's, but a code the service leaves out keeps its snapshot entry,
+ * so a partial list (or the simulator's made up one) can't remove valid codes. If the area service can't be reached
+ * the last list loaded is kept, so the directory always works offline.</p>
+ *
+ * <p>Area codes are three digits, so they are held in an array indexed by the code itself and a lookup is a single
+ * array read. A refresh builds a new array and swaps it in whole; readers never see a half loaded one. The number of
+ * codes loaded is published as {@code area.directory.codes}.</p>
+ *
+ * @author aryamanpatronia
+ * @see AreaService
+ */
+@ApplicationScoped
+public class AreaCodeDirectory
+{
+    static final String SNAPSHOT = "area-codes.json";
+
+    private static final int CODES = 1000;
+
+    @Inject
+    @Named("logger")
+    Logger log;
+
+    @Inject
+    @RestClient
+    AreaService areaService;
+
+    @Inject
+    ObjectMapper mapper;
+
+    @Inject
+    MeterRegistry registry;
+
+    private Area[] snapshot = new Area[CODES];
+    private volatile Area[] areas = snapshot;
+    private volatile int size;
+
+    @PostConstruct
+    void loadSnapshot()
+    {
+        try (InputStream in = Thread.currentThread().getContextClassLoader().getResourceAsStream(SNAPSHOT))
+        {
+            if (in == null)
+            {
+                throw new IllegalStateException("The area code snapshot " + SNAPSHOT + " is missing");
+            }
+            snapshot = merge(new Area[CODES], mapper.readValue(in, new TypeReference<List<Area>>() { }));
+            swapIn(snapshot);
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException("The area code snapshot " + SNAPSHOT + " can't be read", e);
+        }
+        log.info("AreaCodeDirectory.loadSnapshot() - Loaded " + size + " area codes from " + SNAPSHOT);
+        registry.gauge("area.directory.codes", this, directory -> directory.size);
+    }
+
+    /**
+     * Merges the current list from the {@link AreaService} into the snapshot, keeping the directory as it is if the
+     * list can't be fetched...
+     */
+    @Scheduled(identity = "area-code-directory", every = "${area.directory.refresh-interval}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void refresh()
+    {
+        List<Area> fetched;
+        try
+        {
+            fetched = areaService.getAreas();
+        } catch (RuntimeException e)
+        {
+            log.warning("AreaCodeDirectory.refresh() - Keeping the " + size + " area codes already loaded, the area service failed: " + e);
+            return;
+        }
+        if (fetched == null || fetched.isEmpty())
+        {
+            log.warning("AreaCodeDirectory.refresh() - Keeping the " + size + " area codes already loaded, the area service sent none");
+            return;
+        }
+        swapIn(merge(snapshot.clone(), fetched));
+        log.fine("AreaCodeDirectory.refresh() - Merged " + fetched.size() + " area codes from the area service, "
+                + size + " are loaded");
+    }
+
+    /**
+     * @param code The three digit area code
+     * @return The Area with that code, or null if there is no such area code
+     */
+    public Area find(int code)
+    {
+        return code >= 0 && code < CODES ? areas[code] : null;
+    }
+
+    /**
+     * <p>Finds the Area of a phone number written as {@code (212) 555-1234}, the format Customer and Contact
+     * require.</p>
+     *
+     * @param phoneNumber The phone number
+     * @return The Area of its area code, or null if it isn't in that format or there is no such area code
+     */
+    public Area findByPhoneNumber(String phoneNumber)
+    {
+        if (phoneNumber == null || phoneNumber.length() < 5 || phoneNumber.charAt(0) != '(' || phoneNumber.charAt(4) != ')')
+        {
+            return null;
+        }
+        int code = 0;
+        for (int i = 1; i < 4; i++)
+        {
+            char digit = phoneNumber.charAt(i);
+            if (digit < '0' || digit > '9')
+            {
+                return null;
+            }
+            code = code * 10 + (digit - '0');
+        }
+        return find(code);
+    }
+
+    /**
+     * @return How many area codes are loaded
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Puts the areas of the list into the array, over what it held before; the first of any duplicates wins...
+     */
+    private static Area[] merge(Area[] into, List<Area> list)
+    {
+        boolean[] seen = new boolean[CODES];
+        for (Area area : list)
+        {
+            if (area != null && area.getId() >= 0 && area.getId() < CODES && !seen[area.getId()])
+            {
+                seen[area.getId()] = true;
+                into[area.getId()] = area;
+            }
+        }
+        return into;
+    }
+
+    private void swapIn(Area[] loaded)
+    {
+        int count = 0;
+        for (Area area : loaded)
+        {
+            if (area != null)
+            {
+                count++;
+            }
+        }
+        areas = loaded;
+        size = count;
+    }
+}
@@ -1,6 +1,7 @@
 package uk.ac.newcastle.enterprisemiddleware.area;
 
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
+import uk.ac.newcastle.enterprisemiddleware.util.Measured;
 
 import javax.enterprise.context.Dependent;
 import javax.ws.rs.GET;
@@ -15,6 +16,7 @@ import java.util.List;
  *
  * @author hugofirth
  */
+@Measured(Measured.CLIENT)
 @Path("/areas")
 @RegisterRestClient(configKey = "area-api")
 public interface AreaService {
@@ -24,14 +24,21 @@ import java.util.Objects;
 
 @Entity
 @Table(name = "bookings")
-@NamedQuery(name = Booking.FIND_ALL, query = "SELECT b FROM Booking b ORDER BY b.id")
+@NamedQueries({
+        @NamedQuery(name = Booking.FIND_ALL, query = "SELECT b FROM Booking b ORDER BY b.id"),
+        @NamedQuery(name = Booking.COUNT_SAME_CHECKIN, query = "SELECT COUNT(b) FROM Booking b WHERE b.customer = :customer"
+                + " AND b.hotel = :hotel AND b.checkinDate = :checkinDate")
+})
 public class Booking implements Serializable
 {
     public static final String FIND_ALL = "Booking.findAll";
+    public static final String COUNT_SAME_CHECKIN = "Booking.countSameCheckin";
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "booking_seq")
+    // Ids come from memory, so the insert can wait for the flush and be batched with others...
+    @SequenceGenerator(name = "booking_seq", sequenceName = "booking_sequence", allocationSize = 50)
     private Long id;
 
     @NotNull
@@ -1,11 +1,17 @@
 package uk.ac.newcastle.enterprisemiddleware.booking;
 
+import uk.ac.newcastle.enterprisemiddleware.customer.Customer;
+import uk.ac.newcastle.enterprisemiddleware.hotel.Hotel;
+import uk.ac.newcastle.enterprisemiddleware.util.Measured;
+
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.persistence.*;
 import javax.validation.ConstraintViolationException;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -17,6 +23,7 @@ import java.util.logging.Logger;
  * @see Booking
  * @see EntityManager
  */
+@Measured
 @RequestScoped
 public class BookingRepository
 {
@@ -50,6 +57,20 @@ public class BookingRepository
         return em.find(Booking.class, id);
     }
 
+    /**
+     * <p>Counts the bookings the customer already has at the hotel with the same check-in date.</p>
+     *
+     * @return The number of matching bookings
+     */
+    public long countSameCheckin(Customer customer, Hotel hotel, LocalDate checkinDate)
+    {
+        return em.createNamedQuery(Booking.COUNT_SAME_CHECKIN, Long.class)
+                .setParameter("customer", customer)
+                .setParameter("hotel", hotel)
+                .setParameter("checkinDate", checkinDate)
+                .getSingleResult();
+    }
+
     /**
      * <p>Persists the provided Booking object to the application database using the EntityManager.</p>
      *
@@ -59,8 +80,11 @@ public class BookingRepository
      */
     public Booking create(Booking booking) throws Exception
     {
-        log.info("BookingRepository.create() - Creating booking for Customer ID: " + booking.getCustomer().getCustomerID() +
-                " and Hotel ID: " + booking.getHotel().getId());
+        if (log.isLoggable(Level.FINE))
+        {
+            log.log(Level.FINE, "BookingRepository.create() - Creating booking for Customer ID: {0} and Hotel ID: {1}",
+                    new Object[]{booking.getCustomer().getCustomerID(), booking.getHotel().getId()});
+        }
 
         em.persist(booking);
 
@@ -76,7 +100,7 @@ public class BookingRepository
      */
     public Booking update(Booking booking) throws Exception
     {
-        log.info("BookingRepository.update() - Updating booking with ID: " + booking.getId());
+        log.log(Level.FINE, "BookingRepository.update() - Updating booking with ID: {0}", booking.getId());
 
         em.merge(booking);
 
@@ -92,7 +116,7 @@ public class BookingRepository
      */
     public Booking delete(Booking booking) throws Exception
     {
-        log.info("BookingRepository.delete() - Deleting booking with ID: " + booking.getId());
+        log.log(Level.FINE, "BookingRepository.delete() - Deleting booking with ID: {0}", booking.getId());
 
         if (booking.getId() != null)
         {
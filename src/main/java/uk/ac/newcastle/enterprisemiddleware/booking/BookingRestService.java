@@ -1,5 +1,6 @@
 package uk.ac.newcastle.enterprisemiddleware.booking;
 
+import io.smallrye.mutiny.Uni;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
@@ -8,11 +9,12 @@ import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import uk.ac.newcastle.enterprisemiddleware.customer.CustomerService;
 import uk.ac.newcastle.enterprisemiddleware.hotel.HotelService;
+import uk.ac.newcastle.enterprisemiddleware.util.BlockingExecution;
+import uk.ac.newcastle.enterprisemiddleware.util.RequestRejectedException;
 import uk.ac.newcastle.enterprisemiddleware.util.RestServiceException;
 
 import javax.inject.Inject;
 import javax.inject.Named;
-import javax.transaction.Transactional;
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.ws.rs.*;
@@ -21,6 +23,7 @@ import javax.ws.rs.core.Response;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -46,6 +49,9 @@ public class BookingRestService
     @Inject
     BookingValidator bookingValidator;
 
+    @Inject
+    BlockingExecution blocking;
+
 //    @Inject
 //    CustomerService customerService;
 //
@@ -57,10 +63,13 @@ public class BookingRestService
      */
     @GET
     @Operation(summary = "Fetch all bookings from the database...", description = "Returns a JSON array of all stored Booking objects.")
-    public Response retrieveAllBookings()
+    public Uni<Response> retrieveAllBookings()
     {
-        List<Booking> bookings = service.findAll();
-        return Response.ok(bookings).build();
+        return blocking.run(() ->
+        {
+            List<Booking> bookings = service.findAll();
+            return Response.ok(bookings).build();
+        });
     }
 
     /**
@@ -73,17 +82,20 @@ public class BookingRestService
             @APIResponse(responseCode = "200", description = "Booking found!"),
             @APIResponse(responseCode = "404", description = "Booking with id not found...")
     })
-    public Response retrieveBookingById(
+    public Uni<Response> retrieveBookingById(
             @Parameter(description = "Id of Booking to be fetched...", required = true)
             @Schema(minimum = "0")
             @PathParam("id") long id)
     {
-        Booking booking = service.findById(id);
-        if (booking == null)
+        return blocking.run(() ->
         {
-            throw new RestServiceException("No Booking with the id " + id + " was found...", Response.Status.NOT_FOUND);
-        }
-        return Response.ok(booking).build();
+            Booking booking = service.findById(id);
+            if (booking == null)
+            {
+                throw new RequestRejectedException("No Booking with the id " + id + " was found...", Response.Status.NOT_FOUND);
+            }
+            return Response.ok(booking).build();
+        });
     }
 
     /**
@@ -97,43 +109,45 @@ public class BookingRestService
             @APIResponse(responseCode = "409", description = "Booking conflicts with an existing Booking..."),
             @APIResponse(responseCode = "500", description = "An unexpected error occurred whilst processing the request...")
     })
-    @Transactional
-    public Response createBooking(
+    public Uni<Response> createBooking(
             @Parameter(description = "JSON representation of Booking object to be added to the database", required = true)
             Booking booking)
     {
-        if (booking == null)
+        return blocking.runInTransaction(() ->
         {
-            throw new RestServiceException("Bad Request", Response.Status.BAD_REQUEST);
-        }
+            if (booking == null)
+            {
+                throw new RestServiceException("Bad Request", Response.Status.BAD_REQUEST);
+            }
 
-        Response.ResponseBuilder builder;
+            Response.ResponseBuilder builder;
 
-        try
-        {
-            booking.setId(null); // Clear the ID if accidentally set
-            bookingValidator.validateBooking(booking); // Validate the booking before creating
-            service.create(booking);
-            builder = Response.status(Response.Status.CREATED).entity(booking);
-
-        }
-        catch (ConstraintViolationException ce)
-        {
-            Map<String, String> responseObj = new HashMap<>();
-            for (ConstraintViolation<?> violation : ce.getConstraintViolations())
+            try
             {
-                responseObj.put(violation.getPropertyPath().toString(), violation.getMessage());
+                booking.setId(null); // Clear the ID if accidentally set
+                bookingValidator.validateBooking(booking); // Validate the booking before creating
+                service.create(booking);
+                builder = Response.status(Response.Status.CREATED).entity(booking);
+
             }
-            throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, ce);
+            catch (ConstraintViolationException ce)
+            {
+                Map<String, String> responseObj = new HashMap<>();
+                for (ConstraintViolation<?> violation : ce.getConstraintViolations())
+                {
+                    responseObj.put(violation.getPropertyPath().toString(), violation.getMessage());
+                }
+                throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, ce);
 
-        }
-        catch (Exception e)
-        {
-            throw new RestServiceException(e);
-        }
+            }
+            catch (Exception e)
+            {
+                throw new RestServiceException(e);
+            }
 
-        log.info("createBooking completed. Booking = " + booking);
-        return builder.build();
+            log.log(Level.INFO, "createBooking completed. Booking ID = {0}", booking.getId());
+            return builder.build();
+        });
     }
 
     /**
@@ -148,54 +162,56 @@ public class BookingRestService
             @APIResponse(responseCode = "404", description = "Booking with id not found..."),
             @APIResponse(responseCode = "500", description = "An unexpected error occurred whilst processing the request...")
     })
-    @Transactional
-    public Response updateBooking(
+    public Uni<Response> updateBooking(
             @Parameter(description = "Id of Booking to be updated...", required = true)
             @Schema(minimum = "0")
             @PathParam("id") long id,
             @Parameter(description = "JSON representation of Booking object to be updated in the database", required = true)
             Booking booking)
     {
-        if (booking == null || booking.getId() == null)
-        {
-            throw new RestServiceException("Invalid Booking supplied in request body", Response.Status.BAD_REQUEST);
-        }
-        if (booking.getId() != id)
-        {
-            Map<String, String> responseObj = new HashMap<>();
-            responseObj.put("id", "The Booking ID in the request body must match that of the Booking being updated");
-            throw new RestServiceException("Booking details conflict with another Booking",
-                    responseObj, Response.Status.CONFLICT);
-        }
-        if (service.findById(id) == null)
+        return blocking.runInTransaction(() ->
         {
-            throw new RestServiceException("No Booking with the id " + id + " was found!", Response.Status.NOT_FOUND);
-        }
+            if (booking == null || booking.getId() == null)
+            {
+                throw new RestServiceException("Invalid Booking supplied in request body", Response.Status.BAD_REQUEST);
+            }
+            if (booking.getId() != id)
+            {
+                Map<String, String> responseObj = new HashMap<>();
+                responseObj.put("id", "The Booking ID in the request body must match that of the Booking being updated");
+                throw new RequestRejectedException("Booking details conflict with another Booking",
+                        responseObj, Response.Status.CONFLICT);
+            }
+            if (service.findById(id) == null)
+            {
+                throw new RequestRejectedException("No Booking with the id " + id + " was found!", Response.Status.NOT_FOUND);
+            }
 
-        Response.ResponseBuilder builder;
-        try
-        {
-            bookingValidator.validateBooking(booking); // Validate the booking before updating
-            service.update(booking);
-            builder = Response.ok(booking);
+            Response.ResponseBuilder builder;
+            try
+            {
+                bookingValidator.validateBooking(booking); // Validate the booking before updating
+                service.update(booking);
+                builder = Response.ok(booking);
 
-        }
-        catch (ConstraintViolationException ce)
-        {
-            Map<String, String> responseObj = new HashMap<>();
-            for (ConstraintViolation<?> violation : ce.getConstraintViolations())
+            }
+            catch (ConstraintViolationException ce)
             {
-                responseObj.put(violation.getPropertyPath().toString(), violation.getMessage());
+                Map<String, String> responseObj = new HashMap<>();
+                for (ConstraintViolation<?> violation : ce.getConstraintViolations())
+                {
+                    responseObj.put(violation.getPropertyPath().toString(), violation.getMessage());
+                }
+                throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, ce);
+            }
+            catch (Exception e)
+            {
+                throw new RestServiceException(e);
             }
-            throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, ce);
-        }
-        catch (Exception e)
-        {
-            throw new RestServiceException(e);
-        }
 
-        log.info("updateBooking completed. Booking = " + booking);
-        return builder.build();
+            log.log(Level.INFO, "updateBooking completed. Booking ID = {0}", booking.getId());
+            return builder.build();
+        });
     }
 
     /**
@@ -209,25 +225,27 @@ public class BookingRestService
             @APIResponse(responseCode = "404", description = "Booking with id not found..."),
             @APIResponse(responseCode = "500", description = "An unexpected error occurred whilst processing the request...")
     })
-    @Transactional
-    public Response deleteBooking(
+    public Uni<Response> deleteBooking(
             @Parameter(description = "Id of Booking to be deleted", required = true)
             @PathParam("id") long id)
     {
-        Booking booking = service.findById(id);
-        if (booking == null)
-        {
-            throw new RestServiceException("No Booking with the id " + id + " was found!", Response.Status.NOT_FOUND);
-        }
-        try
+        return blocking.runInTransaction(() ->
         {
-            service.delete(booking);
-            return Response.noContent().build();
+            Booking booking = service.findById(id);
+            if (booking == null)
+            {
+                throw new RequestRejectedException("No Booking with the id " + id + " was found!", Response.Status.NOT_FOUND);
+            }
+            try
+            {
+                service.delete(booking);
+                return Response.noContent().build();
 
-        }
-        catch (Exception e)
-        {
-            throw new RestServiceException(e);
-        }
+            }
+            catch (Exception e)
+            {
+                throw new RestServiceException(e);
+            }
+        });
     }
 }
@@ -2,6 +2,7 @@ package uk.ac.newcastle.enterprisemiddleware.booking;
 
 import uk.ac.newcastle.enterprisemiddleware.customer.Customer;
 import uk.ac.newcastle.enterprisemiddleware.hotel.Hotel;
+import uk.ac.newcastle.enterprisemiddleware.util.Measured;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.context.Dependent;
@@ -11,6 +12,7 @@ import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
 
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -24,6 +26,7 @@ import java.util.logging.Logger;
  * @see Hotel
  */
 
+@Measured
 @ApplicationScoped
 public class BookingService
 {
@@ -69,8 +72,11 @@ public class BookingService
      */
     public Booking create(Booking booking) throws Exception
     {
-        log.info("BookingService.create() - Creating booking for Customer ID: " + booking.getCustomer().getCustomerID() +
-                " and Hotel ID: " + booking.getHotel().getId());
+        if (log.isLoggable(Level.FINE))
+        {
+            log.log(Level.FINE, "BookingService.create() - Creating booking for Customer ID: {0} and Hotel ID: {1}",
+                    new Object[]{booking.getCustomer().getCustomerID(), booking.getHotel().getId()});
+        }
 
         // Create the booking in the database
         return em.merge(booking); //changed...
@@ -87,7 +93,7 @@ public class BookingService
      */
     public Booking update(Booking booking) throws Exception
     {
-        log.info("BookingService.update() - Updating booking with ID: " + booking.getId());
+        log.log(Level.FINE, "BookingService.update() - Updating booking with ID: {0}", booking.getId());
 
         return crud.update(booking);
     }
@@ -101,7 +107,7 @@ public class BookingService
      */
     public Booking delete(Booking booking) throws Exception
     {
-        log.info("BookingService.delete() - Deleting booking with ID: " + booking.getId());
+        log.log(Level.FINE, "BookingService.delete() - Deleting booking with ID: {0}", booking.getId());
 
         Booking deletedBooking = null;
 
@@ -2,6 +2,7 @@ package uk.ac.newcastle.enterprisemiddleware.booking;
 
 import uk.ac.newcastle.enterprisemiddleware.customer.Customer;
 import uk.ac.newcastle.enterprisemiddleware.hotel.Hotel;
+import uk.ac.newcastle.enterprisemiddleware.util.Measured;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
@@ -11,7 +12,6 @@ import javax.validation.ValidationException;
 import javax.validation.Validator;
 import java.time.LocalDate;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 
 /**
@@ -21,6 +21,7 @@ import java.util.Set;
  * @see BookingRepository
  * @see Validator
  */
+@Measured(Measured.VALIDATOR)
 @ApplicationScoped
 public class BookingValidator
 {
@@ -42,7 +43,7 @@ public class BookingValidator
      * @throws ConstraintViolationException : If Bean Validation errors exist
      * @throws ValidationException         :  If a booking with the same customer and hotel already exists for the given date
      */
-    void validateBooking(Booking booking) throws ConstraintViolationException, ValidationException
+    public void validateBooking(Booking booking) throws ConstraintViolationException, ValidationException
     {
         Set<ConstraintViolation<Booking>> violations = validator.validate(booking);
 
@@ -60,7 +61,8 @@ public class BookingValidator
     /**
      * <p>Checks if a booking with the same customer, hotel, and check-in date already exists in the database...</p>
      *
-     * <p>This ensures that a customer cannot book the same hotel for overlapping check-in dates.</p>
+     * <p>This ensures that a customer cannot book the same hotel for overlapping check-in dates. Only the matching
+     * bookings are counted, by the database, rather than reading every booking.</p>
      *
      * @param customer           The customer to check for an existing booking
      * @param hotel              The hotel to check for an existing booking
@@ -70,18 +72,11 @@ public class BookingValidator
      */
     boolean bookingAlreadyExists(Customer customer, Hotel hotel, LocalDate checkinDate, Integer bookingDurationDays)
     {
-        List<Booking> bookings = bookingRepository.findAll();
-
-        for (Booking existingBooking : bookings)
+        // A new customer, or hotel, can't have any bookings yet...
+        if (customer.getCustomerID() == null || hotel.getId() == null)
         {
-            if (existingBooking.getCustomer().equals(customer) &&
-                    existingBooking.getHotel().equals(hotel) &&
-                    checkinDate.equals(existingBooking.getCheckinDate()))
-            {
-                return true;
-            }
+            return false;
         }
-
-        return false;
+        return bookingRepository.countSameCheckin(customer, hotel, checkinDate) > 0;
     }
 }
@@ -1,141 +1,148 @@
-//package uk.ac.newcastle.enterprisemiddleware.contact;
-//
-//import javax.persistence.*;
-//import javax.validation.constraints.*;
-//import javax.xml.bind.annotation.XmlRootElement;
-//import java.io.Serializable;
-//import java.util.Date;
-//import java.util.Objects;
-//
-///**
-// * <p>This is a the Domain object. The Contact class represents how contact resources are represented in the application
-// * database.</p>
-// *
-// * <p>The class also specifies how a contacts are retrieved from the database (with @NamedQueries), and acceptable values
-// * for Contact fields (with @NotNull, @Pattern etc...)<p/>
-// *
-// * @author Joshua Wilson
-// */
-///*
-// * The @NamedQueries included here are for searching against the table that reflects this object.  This is the most efficient
-// * form of query in JPA though is it more error prone due to the syntax being in a String.  This makes it harder to debug.
-// */
-//@Entity
-//@NamedQueries({
-//        @NamedQuery(name = Contact.FIND_ALL, query = "SELECT c FROM Contact c ORDER BY c.lastName ASC, c.firstName ASC"),
-//        @NamedQuery(name = Contact.FIND_BY_EMAIL, query = "SELECT c FROM Contact c WHERE c.email = :email")
-//})
-//@XmlRootElement
-//@Table(name = "contact", uniqueConstraints = @UniqueConstraint(columnNames = "email"))
-//public class Contact implements Serializable {
-//    /** Default value included to remove warning. Remove or modify at will. **/
-//    private static final long serialVersionUID = 1L;
-//
-//    public static final String FIND_ALL = "Contact.findAll";
-//    public static final String FIND_BY_EMAIL = "Contact.findByEmail";
-//
-//    @Id
-//    @GeneratedValue(strategy = GenerationType.TABLE)
-//    private Long id;
-//
-//    @NotNull
-//    @Size(min = 1, max = 25)
-//    @Pattern(regexp = "[A-Za-z-']+", message = "Please use a name without numbers or specials")
-//    @Column(name = "first_name")
-//    private String firstName;
-//
-//    @NotNull
-//    @Size(min = 1, max = 25)
-//    @Pattern(regexp = "[A-Za-z-']+", message = "Please use a name without numbers or specials")
-//    @Column(name = "last_name")
-//    private String lastName;
-//
-//    @NotNull
-//    @NotEmpty
-//    @Email(message = "The email address must be in the format of name@domain.com")
-//    private String email;
-//
-//    @NotNull
-//    @Pattern(regexp = "^\\([2-9][0-8][0-9]\\)\\s?[0-9]{3}\\-[0-9]{4}$")
-//    @Column(name = "phone_number")
-//    private String phoneNumber;
-//
-//    @NotNull
-//    @Past(message = "Birthdates can not be in the future. Please choose one from the past")
-//    @Column(name = "birth_date")
-//    @Temporal(TemporalType.DATE)
-//    private Date birthDate;
-//
-//    @Column(name = "state")
-//    private String state;
-//
-//    public Long getId() {
-//        return id;
-//    }
-//
-//    public void setId(Long id) {
-//        this.id = id;
-//    }
-//
-//    public String getFirstName() {
-//        return firstName;
-//    }
-//
-//    public void setFirstName(String firstName) {
-//        this.firstName = firstName;
-//    }
-//
-//    public String getLastName() {
-//        return lastName;
-//    }
-//
-//    public void setLastName(String lastName) {
-//        this.lastName = lastName;
-//    }
-//
-//    public String getEmail() {
-//        return email;
-//    }
-//
-//    public void setEmail(String email) {
-//        this.email = email;
-//    }
-//
-//    public String getPhoneNumber() {
-//        return phoneNumber;
-//    }
-//
-//    public void setPhoneNumber(String phoneNumber) {
-//        this.phoneNumber = phoneNumber;
-//    }
-//
-//    public Date getBirthDate() {
-//        return birthDate;
-//    }
-//
-//    public void setBirthDate(Date birthDate) {
-//        this.birthDate = birthDate;
-//    }
-//
-//    public void setState(String state) {
-//        this.state = state;
-//    }
-//
-//    public String getState() {
-//        return this.state;
-//    }
-//
-//    @Override
-//    public boolean equals(Object o) {
-//        if (this == o) return true;
-//        if (!(o instanceof Contact)) return false;
-//        Contact contact = (Contact) o;
-//        return email.equals(contact.email);
-//    }
-//
-//    @Override
-//    public int hashCode() {
-//        return Objects.hashCode(email);
-//    }
-//}
-//
+package uk.ac.newcastle.enterprisemiddleware.contact;
+
+import uk.ac.newcastle.enterprisemiddleware.util.PersonName;
+import uk.ac.newcastle.enterprisemiddleware.util.PhoneNumber;
+
+import javax.persistence.*;
+import javax.validation.constraints.*;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * <p>This is a the Domain object. The Contact class represents how contact resources are represented in the application
+ * database.</p>
+ *
+ * <p>The class also specifies how a contacts are retrieved from the database (with @NamedQueries), and acceptable values
+ * for Contact fields (with @NotNull, @Pattern etc...)<p/>
+ *
+ * @author Joshua Wilson
+ */
+/*
+ * The @NamedQueries included here are for searching against the table that reflects this object.  This is the most efficient
+ * form of query in JPA though is it more error prone due to the syntax being in a String.  This makes it harder to debug.
+ */
+@Entity
+@NamedQueries({
+        @NamedQuery(name = Contact.FIND_ALL, query = "SELECT c FROM Contact c ORDER BY c.lastName ASC, c.firstName ASC"),
+        @NamedQuery(name = Contact.FIND_BY_EMAIL, query = "SELECT c FROM Contact c WHERE c.email = :email")
+})
+@XmlRootElement
+@Table(name = "contact", uniqueConstraints = @UniqueConstraint(columnNames = "email"), indexes = {
+        // Name searches are prefix matches on these, so they are answered from the index rather than a table scan
+        @Index(name = "contact_last_name_first_name", columnList = "last_name, first_name"),
+        @Index(name = "contact_first_name", columnList = "first_name")
+})
+public class Contact implements Serializable {
+    /** Default value included to remove warning. Remove or modify at will. **/
+    private static final long serialVersionUID = 1L;
+
+    public static final String FIND_ALL = "Contact.findAll";
+    public static final String FIND_BY_EMAIL = "Contact.findByEmail";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE)
+    private Long id;
+
+    @NotNull
+    @Size(min = 1, max = 25)
+    @PersonName
+    @Column(name = "first_name")
+    private String firstName;
+
+    @NotNull
+    @Size(min = 1, max = 25)
+    @PersonName
+    @Column(name = "last_name")
+    private String lastName;
+
+    @NotNull
+    @NotEmpty
+    @Email(message = "The email address must be in the format of name@domain.com")
+    private String email;
+
+    @NotNull
+    @PhoneNumber
+    @Column(name = "phone_number")
+    private String phoneNumber;
+
+    @NotNull
+    @Past(message = "Birthdates can not be in the future. Please choose one from the past")
+    @Column(name = "birth_date")
+    @Temporal(TemporalType.DATE)
+    private Date birthDate;
+
+    @Column(name = "state")
+    private String state;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public void setPhoneNumber(String phoneNumber) {
+        this.phoneNumber = phoneNumber;
+    }
+
+    public Date getBirthDate() {
+        return birthDate;
+    }
+
+    public void setBirthDate(Date birthDate) {
+        this.birthDate = birthDate;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public String getState() {
+        return this.state;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Contact)) return false;
+        Contact contact = (Contact) o;
+        return email.equals(contact.email);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(email);
+    }
+}
+
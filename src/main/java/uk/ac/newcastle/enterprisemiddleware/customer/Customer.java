@@ -1,4 +1,7 @@
 package uk.ac.newcastle.enterprisemiddleware.customer;
+import uk.ac.newcastle.enterprisemiddleware.util.PersonName;
+import uk.ac.newcastle.enterprisemiddleware.util.PhoneNumber;
+
 import javax.persistence.*;
 import javax.validation.constraints.*;
 import javax.xml.bind.annotation.XmlRootElement;
@@ -17,7 +20,10 @@ import java.util.Objects;
 @Entity
 @NamedQueries({
         @NamedQuery(name = Customer.FIND_ALL, query = "SELECT c FROM Customer c ORDER BY c.customerName ASC"),
-        @NamedQuery(name = Customer.FIND_BY_EMAIL, query = "SELECT c FROM Customer c WHERE c.customerEmail = :email")
+        @NamedQuery(name = Customer.FIND_BY_EMAIL, query = "SELECT c FROM Customer c WHERE c.customerEmail = :email"),
+        @NamedQuery(name = Customer.FIND_EMAILS_IN, query = "SELECT c.customerEmail FROM Customer c WHERE c.customerEmail IN :emails"),
+        @NamedQuery(name = Customer.FIND_PHONE_NUMBERS_IN, query = "SELECT c.customerPhoneNumber FROM Customer c WHERE c.customerPhoneNumber IN :phoneNumbers"),
+        @NamedQuery(name = Customer.FIND_BY_EMAIL_OR_PHONE_NUMBER, query = "SELECT c FROM Customer c WHERE c.customerEmail = :email OR c.customerPhoneNumber = :phoneNumber")
 })
 @XmlRootElement
 @Table(name = "Customer", uniqueConstraints = @UniqueConstraint(columnNames = "Customer_Email"))
@@ -28,18 +34,22 @@ public class Customer implements Serializable
 
     public static final String FIND_ALL = "Customer.findAll";
     public static final String FIND_BY_EMAIL = "Customer.findByEmail";
+    public static final String FIND_EMAILS_IN = "Customer.findEmailsIn";
+    public static final String FIND_PHONE_NUMBERS_IN = "Customer.findPhoneNumbersIn";
+    public static final String FIND_BY_EMAIL_OR_PHONE_NUMBER = "Customer.findByEmailOrPhoneNumber";
 
 //    @Id
 //    @GeneratedValue(strategy = GenerationType.TABLE)  //This didn't work before. I am commenting this...
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_seq") //using sequence, otherwise we see errors in the terminal...
-    @SequenceGenerator(name = "customer_seq", sequenceName = "customer_sequence", allocationSize = 1)
+    // allocationSize > 1 lets Hibernate hand out ids from memory, so bulk inserts can be sent as JDBC batches...
+    @SequenceGenerator(name = "customer_seq", sequenceName = "customer_sequence", allocationSize = 50)
     private Long customerID;
 
     @NotNull
     @Size(min = 1, max = 25)
-    @Pattern(regexp = "[A-Za-z-']+", message = "Please use a name without numbers or specials")
+    @PersonName
     @Column(name = "customer_name")
     private String customerName;
 
@@ -50,7 +60,7 @@ public class Customer implements Serializable
     private String customerEmail;
 
     @NotNull
-    @Pattern(regexp = "^\\([2-9][0-8][0-9]\\)\\s?[0-9]{3}\\-[0-9]{4}$")
+    @PhoneNumber
     @Column(name = "customer_phone_number")
     private String customerPhoneNumber;
 
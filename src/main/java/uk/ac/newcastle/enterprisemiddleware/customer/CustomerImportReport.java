@@ -0,0 +1,98 @@
+package uk.ac.newcastle.enterprisemiddleware.customer;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>A simple POJO summarising the outcome of a bulk Customer import, marshaled into JSON by jackson.</p>
+ *
+ * <p>Only rejected rows are listed, so the size of the report grows with the number of problems in the upload rather
+ * than with the size of the upload itself. Even so, at most {@code customer.import.max-listed-errors} of them are
+ * listed; the rest are only counted in {@link #getRejected()}.</p>
+ *
+ * @author AryamanPatronia
+ * @see CustomerImporter
+ */
+@RegisterForReflection
+public class CustomerImportReport
+{
+    private long rowsRead;
+    private long imported;
+    private long rejected;
+    private final int maxListedErrors;
+    private final List<RowError> errors = new ArrayList<>();
+
+    CustomerImportReport(int maxListedErrors)
+    {
+        this.maxListedErrors = maxListedErrors;
+    }
+
+    public long getRowsRead()
+    {
+        return rowsRead;
+    }
+
+    public long getImported()
+    {
+        return imported;
+    }
+
+    public long getRejected()
+    {
+        return rejected;
+    }
+
+    public List<RowError> getErrors()
+    {
+        return errors;
+    }
+
+    void rowRead()
+    {
+        rowsRead++;
+    }
+
+    void imported(int count)
+    {
+        imported += count;
+    }
+
+    void reject(long line, Map<String, String> reasons)
+    {
+        rejected++;
+        if (errors.size() < maxListedErrors)
+        {
+            errors.add(new RowError(line, reasons));
+        }
+    }
+
+    /**
+     * <p>The reasons a single row of the upload was not imported, keyed by field name like {@link
+     * uk.ac.newcastle.enterprisemiddleware.util.ErrorMessage#getReasons()}.</p>
+     */
+    @RegisterForReflection
+    public static class RowError
+    {
+        private final long line;
+        private final Map<String, String> reasons;
+
+        RowError(long line, Map<String, String> reasons)
+        {
+            this.line = line;
+            this.reasons = reasons;
+        }
+
+        public long getLine()
+        {
+            return line;
+        }
+
+        public Map<String, String> getReasons()
+        {
+            return reasons;
+        }
+    }
+}
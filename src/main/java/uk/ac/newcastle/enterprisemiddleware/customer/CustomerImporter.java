@@ -0,0 +1,335 @@
+package uk.ac.newcastle.enterprisemiddleware.customer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import uk.ac.newcastle.enterprisemiddleware.area.AreaCodeDirectory;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * <p>Streams a bulk upload of Customers into the application database.</p>
+ *
+ * <p>The upload is read one line at a time and handled in chunks, so only a single chunk of Customers is ever held in
+ * memory. For every chunk the rows are checked against the Bean Validation constraints on {@link Customer} and their
+ * area codes against the {@link AreaCodeDirectory}, emails and phone numbers are de-duplicated within the chunk, the
+ * remaining rows are checked against the database with one IN query per column, and whatever survives is written in a
+ * single batched transaction. Earlier chunks are already committed by the time a later chunk is checked, so duplicates
+ * spanning chunks are caught by the database lookup.</p>
+ *
+ * <p>Two formats are understood: CSV with a header row naming the Customer fields, and NDJSON with one Customer JSON
+ * object per line.</p>
+ *
+ * @author AryamanPatronia
+ * @see CustomerImportReport
+ * @see CustomerRepository#createAll(List)
+ */
+@ApplicationScoped
+public class CustomerImporter
+{
+    public static final String TEXT_CSV = "text/csv";
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private static final String NAME_COLUMN = "customerName";
+    private static final String EMAIL_COLUMN = "customerEmail";
+    private static final String PHONE_COLUMN = "customerPhoneNumber";
+
+    @Inject
+    @Named("logger")
+    Logger log;
+
+    @Inject
+    Validator validator;
+
+    @Inject
+    CustomerRepository crud;
+
+    @Inject
+    ObjectMapper mapper;
+
+    @Inject
+    AreaCodeDirectory areaCodes;
+
+    @ConfigProperty(name = "customer.import.chunk-size", defaultValue = "500")
+    int chunkSize;
+
+    @ConfigProperty(name = "customer.import.max-listed-errors", defaultValue = "1000")
+    int maxListedErrors;
+
+    /**
+     * <p>Reads the CSV upload and imports every valid row.</p>
+     *
+     * @param body The CSV upload, starting with a header row
+     * @return A report listing the rows that were rejected and why
+     * @throws IOException If the upload could not be read
+     */
+    public CustomerImportReport importCsv(InputStream body) throws IOException
+    {
+        CustomerImportReport report = new CustomerImportReport(maxListedErrors);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)))
+        {
+            String header = reader.readLine();
+            if (header == null)
+            {
+                return report;
+            }
+            int[] columns = columnIndexes(splitCsv(header));
+
+            Chunk chunk = new Chunk();
+            long line = 1;
+            String row;
+            while ((row = reader.readLine()) != null)
+            {
+                line++;
+                if (row.isBlank())
+                {
+                    continue;
+                }
+                report.rowRead();
+
+                List<String> fields = splitCsv(row);
+                if (fields.size() <= Math.max(columns[0], Math.max(columns[1], columns[2])))
+                {
+                    report.reject(line, Map.of("row", "Expected a value for each of " + NAME_COLUMN + ", "
+                            + EMAIL_COLUMN + " and " + PHONE_COLUMN));
+                    continue;
+                }
+                Customer customer = new Customer();
+                customer.setCustomerName(fields.get(columns[0]));
+                customer.setCustomerEmail(fields.get(columns[1]));
+                customer.setCustomerPhoneNumber(fields.get(columns[2]));
+
+                addRow(chunk, line, customer, report);
+            }
+            flush(chunk, report);
+        }
+        return report;
+    }
+
+    /**
+     * <p>Reads the NDJSON upload and imports every valid row.</p>
+     *
+     * @param body The NDJSON upload, one Customer object per line
+     * @return A report listing the rows that were rejected and why
+     * @throws IOException If the upload could not be read
+     */
+    public CustomerImportReport importNdjson(InputStream body) throws IOException
+    {
+        CustomerImportReport report = new CustomerImportReport(maxListedErrors);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)))
+        {
+            Chunk chunk = new Chunk();
+            long line = 0;
+            String row;
+            while ((row = reader.readLine()) != null)
+            {
+                line++;
+                if (row.isBlank())
+                {
+                    continue;
+                }
+                report.rowRead();
+
+                Customer customer;
+                try
+                {
+                    customer = mapper.readValue(row, Customer.class);
+                } catch (JsonProcessingException e)
+                {
+                    report.reject(line, Map.of("row", "Not a valid Customer JSON object"));
+                    continue;
+                }
+                customer.setCustomerID(null);  // Clear the ID if accidentally set...
+
+                addRow(chunk, line, customer, report);
+            }
+            flush(chunk, report);
+        }
+        return report;
+    }
+
+    /**
+     * Validates a single row and adds it to the current chunk, writing the chunk out once it is full...
+     */
+    private void addRow(Chunk chunk, long line, Customer customer, CustomerImportReport report)
+    {
+        Set<ConstraintViolation<Customer>> violations = validator.validate(customer);
+        if (!violations.isEmpty())
+        {
+            Map<String, String> reasons = new HashMap<>();
+            for (ConstraintViolation<Customer> violation : violations)
+            {
+                reasons.put(violation.getPropertyPath().toString(), violation.getMessage());
+            }
+            report.reject(line, reasons);
+            return;
+        }
+        if (areaCodes.findByPhoneNumber(customer.getCustomerPhoneNumber()) == null)
+        {
+            report.reject(line, Map.of("phoneNumber", "The area code provided does not exist"));
+            return;
+        }
+
+        if (!chunk.emails.add(customer.getCustomerEmail()))
+        {
+            report.reject(line, Map.of("email", "That email appears more than once in the upload"));
+            return;
+        }
+        if (!chunk.phoneNumbers.add(customer.getCustomerPhoneNumber()))
+        {
+            chunk.emails.remove(customer.getCustomerEmail());
+            report.reject(line, Map.of("phoneNumber", "That phone number appears more than once in the upload"));
+            return;
+        }
+
+        chunk.lines.add(line);
+        chunk.customers.add(customer);
+        if (chunk.customers.size() >= chunkSize)
+        {
+            flush(chunk, report);
+        }
+    }
+
+    /**
+     * Drops the rows of the chunk that clash with existing Customers and persists the rest...
+     */
+    private void flush(Chunk chunk, CustomerImportReport report)
+    {
+        if (chunk.customers.isEmpty())
+        {
+            return;
+        }
+
+        Set<String> existingEmails = new HashSet<>(crud.findExistingEmails(chunk.emails));
+        Set<String> existingPhoneNumbers = new HashSet<>(crud.findExistingPhoneNumbers(chunk.phoneNumbers));
+
+        List<Customer> accepted = new ArrayList<>(chunk.customers.size());
+        List<Long> acceptedLines = new ArrayList<>(chunk.customers.size());
+        for (int i = 0; i < chunk.customers.size(); i++)
+        {
+            Customer customer = chunk.customers.get(i);
+            if (existingEmails.contains(customer.getCustomerEmail()))
+            {
+                report.reject(chunk.lines.get(i), Map.of("email", "That email is already used, please use a unique email"));
+            } else if (existingPhoneNumbers.contains(customer.getCustomerPhoneNumber()))
+            {
+                report.reject(chunk.lines.get(i), Map.of("phoneNumber", "A customer with this phone number already exists."));
+            } else
+            {
+                accepted.add(customer);
+                acceptedLines.add(chunk.lines.get(i));
+            }
+        }
+
+        try
+        {
+            crud.createAll(accepted);
+            report.imported(accepted.size());
+        } catch (RuntimeException e)
+        {
+            // Most likely a concurrent writer took one of the emails or phone numbers between the check and the insert.
+            log.warning("CustomerImporter.flush() - Chunk of " + accepted.size() + " customers rolled back: " + e.getMessage());
+            for (Long line : acceptedLines)
+            {
+                report.reject(line, Map.of("row", "The chunk containing this row could not be written, please retry it"));
+            }
+        }
+
+        chunk.clear();
+    }
+
+    /**
+     * Works out which CSV column holds each Customer field from the header row...
+     */
+    private static int[] columnIndexes(List<String> header)
+    {
+        int[] columns = {header.indexOf(NAME_COLUMN), header.indexOf(EMAIL_COLUMN), header.indexOf(PHONE_COLUMN)};
+        for (int column : columns)
+        {
+            if (column < 0)
+            {
+                throw new IllegalArgumentException("The CSV header must name the columns " + NAME_COLUMN + ", "
+                        + EMAIL_COLUMN + " and " + PHONE_COLUMN);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * <p>Splits a single CSV row into its fields, honouring double-quoted fields and doubled quotes within them.</p>
+     *
+     * @param row The CSV row
+     * @return The trimmed field values
+     */
+    static List<String> splitCsv(String row)
+    {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < row.length(); i++)
+        {
+            char c = row.charAt(i);
+            if (quoted)
+            {
+                if (c == '"' && i + 1 < row.length() && row.charAt(i + 1) == '"')
+                {
+                    field.append('"');
+                    i++;
+                } else if (c == '"')
+                {
+                    quoted = false;
+                } else
+                {
+                    field.append(c);
+                }
+            } else if (c == '"')
+            {
+                quoted = true;
+            } else if (c == ',')
+            {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else
+            {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    /**
+     * The rows waiting to be written, along with the emails and phone numbers they use...
+     */
+    private static class Chunk
+    {
+        final List<Customer> customers = new ArrayList<>();
+        final List<Long> lines = new ArrayList<>();
+        final Set<String> emails = new HashSet<>();
+        final Set<String> phoneNumbers = new HashSet<>();
+
+        void clear()
+        {
+            customers.clear();
+            lines.clear();
+            emails.clear();
+            phoneNumbers.clear();
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package uk.ac.newcastle.enterprisemiddleware.customer;
 
+import uk.ac.newcastle.enterprisemiddleware.util.Measured;
+
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -7,8 +9,12 @@ import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.TypedQuery;
 
+import javax.transaction.Transactional;
 import javax.validation.ConstraintViolationException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -22,6 +28,7 @@ import java.util.logging.Logger;
  * @see Customer
  * @see javax.persistence.EntityManager
  */
+@Measured
 @RequestScoped
 public class CustomerRepository
 {
@@ -95,6 +102,101 @@ public class CustomerRepository
 
 
 
+    /**
+     * <p>Returns every Customer that has the given email or the given phone number, in a single query.</p>
+     *
+     * @param email The email to look for
+     * @param phoneNumber The phone number to look for
+     * @return The Customers using either of them; at most two, as both are unique
+     */
+    public List<Customer> findByEmailOrPhoneNumber(String email, String phoneNumber)
+    {
+        return em.createNamedQuery(Customer.FIND_BY_EMAIL_OR_PHONE_NUMBER, Customer.class)
+                .setParameter("email", email)
+                .setParameter("phoneNumber", phoneNumber)
+                .getResultList();
+    }
+
+    /**
+     * <p>Returns the subset of the given emails that already belong to a persisted Customer.</p>
+     *
+     * <p>Callers are expected to keep the collection to a sensible size, as it is sent as a single IN list.</p>
+     *
+     * @param emails The emails to look for
+     * @return The emails that are already in use
+     */
+    public List<String> findExistingEmails(Collection<String> emails)
+    {
+        if (emails.isEmpty())
+        {
+            return Collections.emptyList();
+        }
+        return em.createNamedQuery(Customer.FIND_EMAILS_IN, String.class)
+                .setParameter("emails", emails)
+                .getResultList();
+    }
+
+    /**
+     * <p>Returns the subset of the given phone numbers that already belong to a persisted Customer.</p>
+     *
+     * @param phoneNumbers The phone numbers to look for
+     * @return The phone numbers that are already in use
+     */
+    public List<String> findExistingPhoneNumbers(Collection<String> phoneNumbers)
+    {
+        if (phoneNumbers.isEmpty())
+        {
+            return Collections.emptyList();
+        }
+        return em.createNamedQuery(Customer.FIND_PHONE_NUMBERS_IN, String.class)
+                .setParameter("phoneNumbers", phoneNumbers)
+                .getResultList();
+    }
+
+    /**
+     * <p>Persists a chunk of already validated Customer objects in its own transaction.</p>
+     *
+     * <p>The inserts are flushed together so Hibernate can send them as JDBC batches (see
+     * quarkus.hibernate-orm.jdbc.statement-batch-size), and the persistence context is cleared afterwards so a long
+     * import does not keep every Customer it has written in memory.</p>
+     *
+     * @param customers The Customer objects to be persisted
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void createAll(List<Customer> customers)
+    {
+        if (log.isLoggable(Level.FINE))
+        {
+            log.log(Level.FINE, "CustomerRepository.createAll() - Creating {0} customers", customers.size());
+        }
+
+        for (Customer customer : customers)
+        {
+            em.persist(customer);
+        }
+        em.flush();
+        em.clear();
+    }
+
+    /**
+     * <p>Inserts an already validated Customer and commits it straight away, in its own transaction.</p>
+     *
+     * <p>The unique index on the email is what decides between concurrent requests for the same email: all but one
+     * of them fail here with a {@link javax.persistence.PersistenceException}.</p>
+     *
+     * @param customer The Customer object to be inserted
+     * @return The Customer object that has been inserted
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public Customer insert(Customer customer)
+    {
+        log.fine("CustomerRepository.insert() - Inserting a customer");
+
+        em.persist(customer);
+        em.flush();
+        return customer;
+    }
+
     /**
      * <p>Persists the provided Customer object to the application database using the EntityManager.</p>
      *
@@ -107,7 +209,7 @@ public class CustomerRepository
      */
     public Customer create(Customer customer) throws Exception
     {
-        log.info("CustomerRepository.create() - Creating " + customer.getCustomerName());
+        log.fine("CustomerRepository.create() - Creating a customer");
 
         // Persist the customer to the database
         em.persist(customer);
@@ -128,7 +230,7 @@ public class CustomerRepository
      */
     public Customer update(Customer customer) throws Exception
     {
-        log.info("CustomerRepository.update() - Updating " + customer.getCustomerName());
+        log.log(Level.FINE, "CustomerRepository.update() - Updating customer ID {0}", customer.getCustomerID());
 
         // Either update the customer or add it if it can't be found
         em.merge(customer);
@@ -144,7 +246,7 @@ public class CustomerRepository
      */
     public Customer delete(Customer customer) throws Exception
     {
-        log.info("CustomerRepository.delete() - Deleting " + customer.getCustomerName());
+        log.log(Level.FINE, "CustomerRepository.delete() - Deleting customer ID {0}", customer.getCustomerID());
 
         if (customer.getCustomerID() != null)
         {
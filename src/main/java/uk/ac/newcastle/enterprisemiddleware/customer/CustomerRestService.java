@@ -1,5 +1,6 @@
 package uk.ac.newcastle.enterprisemiddleware.customer;
 
+import io.smallrye.mutiny.Uni;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
@@ -7,21 +8,27 @@ import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.jboss.resteasy.reactive.Cache;
+import uk.ac.newcastle.enterprisemiddleware.util.BlockingExecution;
+import uk.ac.newcastle.enterprisemiddleware.util.RequestRejectedException;
 import uk.ac.newcastle.enterprisemiddleware.util.RestServiceException;
+import uk.ac.newcastle.enterprisemiddleware.area.InvalidAreaCodeException;
 import uk.ac.newcastle.enterprisemiddleware.contact.UniqueEmailException;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.persistence.NoResultException;
-import javax.transaction.Transactional;
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 @Path("/customers")
@@ -43,16 +50,25 @@ public class CustomerRestService
     @Inject
     CustomerService service;
 
+    @Inject
+    CustomerImporter importer;
+
+    @Inject
+    BlockingExecution blocking;
+
     /**
      * This GET operation will fetch all the customers that exist in the database...
      * @return A response containing the list of customers...
      */
     @GET
     @Operation(summary = "Fetch all customers that exist in the database...", description = "Returns a JSON array of all stored Customer objects.")
-    public Response retrieveAllCustomers()
+    public Uni<Response> retrieveAllCustomers()
     {
-        List<Customer> customers = service.findAllOrderedByName();
-        return Response.ok(customers).build();
+        return blocking.run(() ->
+        {
+            List<Customer> customers = service.findAllOrderedByName();
+            return Response.ok(customers).build();
+        });
     }
 
     //------------COMMENTING FOR BETTER VISIBILITY--------------
@@ -70,19 +86,22 @@ public class CustomerRestService
             @APIResponse(responseCode = "200", description = "Customer found!"),
             @APIResponse(responseCode = "404", description = "Customer with the provided email not found...")
     })
-    public Response retrieveCustomerByEmail(
+    public Uni<Response> retrieveCustomerByEmail(
             @Parameter(description = "Email of Customer that has to be fetched", required = true)
             @PathParam("email") String email)
     {
-        Customer customer;
-        try
+        return blocking.run(() ->
         {
-            customer = service.findByEmail(email);
-        } catch (NoResultException e)
-        {
-            throw new RestServiceException("No Customer with the email " + email + " was found!", Response.Status.NOT_FOUND);
-        }
-        return Response.ok(customer).build();
+            Customer customer;
+            try
+            {
+                customer = service.findByEmail(email);
+            } catch (NoResultException e)
+            {
+                throw new RequestRejectedException("No Customer with the email " + email + " was found!", Response.Status.NOT_FOUND);
+            }
+            return Response.ok(customer).build();
+        });
     }
 
     //------------COMMENTING FOR BETTER VISIBILITY--------------
@@ -101,19 +120,25 @@ public class CustomerRestService
             @APIResponse(responseCode = "200", description = "Customer found!"),
             @APIResponse(responseCode = "404", description = "Customer with id not found...")
     })
-    public Response retrieveCustomerById(
+    public Uni<Response> retrieveCustomerById(
             @Parameter(description = "Id of Customer that has to be fetched...")
             @Schema(minimum = "0", required = true)
             @PathParam("id") long id)
     {
-        Customer customer = service.findById(id);
-        if (customer == null)
+        return blocking.run(() ->
         {
-            throw new RestServiceException("No Customer with the id " + id + " was found!", Response.Status.NOT_FOUND);
-        }
-        log.info("findById " + id + ": found Customer = " + customer);
+            Customer customer = service.findById(id);
+            if (customer == null)
+            {
+                throw new RequestRejectedException("No Customer with the id " + id + " was found!", Response.Status.NOT_FOUND);
+            }
+            if (log.isLoggable(Level.FINE))
+            {
+                log.log(Level.FINE, "findById {0}: found Customer", id);
+            }
 
-        return Response.ok(customer).build();
+            return Response.ok(customer).build();
+        });
     }
 
     //------------COMMENTING FOR BETTER VISIBILITY--------------
@@ -133,41 +158,97 @@ public class CustomerRestService
             @APIResponse(responseCode = "409", description = "Customer conflicts with an existing Customer..."),
             @APIResponse(responseCode = "500", description = "An unexpected error occurred whilst processing the request...")
     })
-    @Transactional
-    public Response createCustomer(
+    public Uni<Response> createCustomer(
             @Parameter(description = "JSON representation of Customer object to be added to the database!", required = true)
             Customer customer)
     {
-        if (customer == null)
+        return blocking.runInTransaction(() ->
         {
-            throw new RestServiceException("Bad Request", Response.Status.BAD_REQUEST);
-        }
-        Response.ResponseBuilder builder;
+            if (customer == null)
+            {
+                throw new RestServiceException("Bad Request", Response.Status.BAD_REQUEST);
+            }
+            Response.ResponseBuilder builder;
+            Customer created;
+            try
+            {
+                customer.setCustomerID(null);  // Clear the ID if accidentally set...
+                created = service.create(customer);
+                builder = Response.status(Response.Status.CREATED).entity(customer);
+            }
+            catch (ConstraintViolationException ce)
+            {
+                Map<String, String> responseObj = new HashMap<>();
+                for (ConstraintViolation<?> violation : ce.getConstraintViolations())
+                {
+                    responseObj.put(violation.getPropertyPath().toString(), violation.getMessage());
+                }
+                throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, ce);
+            } catch (UniqueEmailException e)
+            {
+                Map<String, String> responseObj = new HashMap<>();
+                responseObj.put("email", "That email is already used, please use a unique email");
+                throw new RestServiceException("Bad Request", responseObj, Response.Status.CONFLICT, e);
+            } catch (InvalidAreaCodeException e)
+            {
+                Map<String, String> responseObj = new HashMap<>();
+                responseObj.put("customerPhoneNumber", e.getMessage());
+                throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, e);
+            } catch (Exception e)
+            {
+                throw new RestServiceException(e);
+            }
+            log.log(Level.INFO, "createCustomer completed. Customer ID = {0}", created.getCustomerID());
+            return builder.build();
+        });
+    }
+
+    //------------COMMENTING FOR BETTER VISIBILITY--------------
+
+
+    /**
+     * Imports many customers at once from a CSV or NDJSON upload. The upload is streamed and written in chunks, so
+     * no transaction spans the whole request and rows that were imported stay imported even if later rows are rejected.
+     *
+     * @param headers The request headers, used to tell CSV and NDJSON apart
+     * @param body The upload to import
+     * @return A Response containing a report of the rows that were rejected
+     */
+    @POST
+    @Path("/import")
+    @Consumes({CustomerImporter.TEXT_CSV, CustomerImporter.APPLICATION_NDJSON})
+    @Operation(summary = "Import customers in bulk from CSV or NDJSON...",
+            description = "CSV uploads need a header row naming customerName, customerEmail and customerPhoneNumber.")
+    @APIResponses(value = {
+            @APIResponse(responseCode = "200", description = "Upload processed, see the report for rejected rows..."),
+            @APIResponse(responseCode = "400", description = "The upload could not be read..."),
+            @APIResponse(responseCode = "500", description = "An unexpected error occurred whilst processing the request...")
+    })
+    public Response importCustomers(
+            @Context HttpHeaders headers,
+            @Parameter(description = "CSV or NDJSON representation of the Customers to be added to the database", required = true)
+            InputStream body)
+    {
+        CustomerImportReport report;
         try
         {
-            customer.setCustomerID(null);  // Clear the ID if accidentally set...
-            service.create(customer);
-            builder = Response.status(Response.Status.CREATED).entity(customer);
-        }
-        catch (ConstraintViolationException ce)
-        {
-            Map<String, String> responseObj = new HashMap<>();
-            for (ConstraintViolation<?> violation : ce.getConstraintViolations())
+            if (headers.getMediaType().isCompatible(MediaType.valueOf(CustomerImporter.TEXT_CSV)))
             {
-                responseObj.put(violation.getPropertyPath().toString(), violation.getMessage());
+                report = importer.importCsv(body);
+            } else
+            {
+                report = importer.importNdjson(body);
             }
-            throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, ce);
-        } catch (UniqueEmailException e)
+        } catch (IllegalArgumentException e)
         {
-            Map<String, String> responseObj = new HashMap<>();
-            responseObj.put("email", "That email is already used, please use a unique email");
-            throw new RestServiceException("Bad Request", responseObj, Response.Status.CONFLICT, e);
+            throw new RestServiceException(e.getMessage(), Response.Status.BAD_REQUEST, e);
         } catch (Exception e)
         {
             throw new RestServiceException(e);
         }
-        log.info("createCustomer completed. Customer = " + customer);
-        return builder.build();
+
+        log.info("importCustomers completed. Imported " + report.getImported() + " of " + report.getRowsRead() + " rows");
+        return Response.ok(report).build();
     }
 
     //------------COMMENTING FOR BETTER VISIBILITY--------------
@@ -190,57 +271,64 @@ public class CustomerRestService
             @APIResponse(responseCode = "409", description = "Customer details supplied in request body conflict with another existing Customer"),
             @APIResponse(responseCode = "500", description = "An unexpected error occurred whilst processing the request")
     })
-    @Transactional
-    public Response updateCustomer(
+    public Uni<Response> updateCustomer(
             @Parameter(description = "Id of Customer to be updated", required = true)
             @Schema(minimum = "0")
             @PathParam("id") long id,
             @Parameter(description = "JSON representation of Customer object to be updated in the database", required = true)
             Customer customer)
     {
-        if (customer == null || customer.getCustomerID() == null)
+        return blocking.runInTransaction(() ->
         {
-            throw new RestServiceException("Invalid Customer supplied in request body", Response.Status.BAD_REQUEST);
-        }
+            if (customer == null || customer.getCustomerID() == null)
+            {
+                throw new RestServiceException("Invalid Customer supplied in request body", Response.Status.BAD_REQUEST);
+            }
 
-        if (customer.getCustomerID() != null && customer.getCustomerID() != id)
-        {
-            Map<String, String> responseObj = new HashMap<>();
-            responseObj.put("id", "The Customer ID in the request body must match that of the Customer being updated");
-            throw new RestServiceException("Customer details conflict with another Customer", responseObj, Response.Status.CONFLICT);
-        }
+            if (customer.getCustomerID() != null && customer.getCustomerID() != id)
+            {
+                Map<String, String> responseObj = new HashMap<>();
+                responseObj.put("id", "The Customer ID in the request body must match that of the Customer being updated");
+                throw new RequestRejectedException("Customer details conflict with another Customer", responseObj, Response.Status.CONFLICT);
+            }
 
-        if (service.findById(customer.getCustomerID()) == null)
-        {
-            throw new RestServiceException("No Customer with the id " + id + " was found!", Response.Status.NOT_FOUND);
-        }
+            if (service.findById(customer.getCustomerID()) == null)
+            {
+                throw new RequestRejectedException("No Customer with the id " + id + " was found!", Response.Status.NOT_FOUND);
+            }
 
-        Response.ResponseBuilder builder;
-        try
-        {
-            service.update(customer);
-            builder = Response.ok(customer);
-        } catch (ConstraintViolationException ce)
-        {
-            Map<String, String> responseObj = new HashMap<>();
-            for (ConstraintViolation<?> violation : ce.getConstraintViolations())
+            Response.ResponseBuilder builder;
+            try
             {
-                responseObj.put(violation.getPropertyPath().toString(), violation.getMessage());
+                service.update(customer);
+                builder = Response.ok(customer);
+            } catch (ConstraintViolationException ce)
+            {
+                Map<String, String> responseObj = new HashMap<>();
+                for (ConstraintViolation<?> violation : ce.getConstraintViolations())
+                {
+                    responseObj.put(violation.getPropertyPath().toString(), violation.getMessage());
+                }
+                throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, ce);
+            }
+            catch (UniqueEmailException e)
+            {
+                Map<String, String> responseObj = new HashMap<>();
+                responseObj.put("email", "That email is already used, please use a unique email");
+                throw new RestServiceException("Customer details conflict with another Customer", responseObj, Response.Status.CONFLICT, e);
+            } catch (InvalidAreaCodeException e)
+            {
+                Map<String, String> responseObj = new HashMap<>();
+                responseObj.put("customerPhoneNumber", e.getMessage());
+                throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, e);
+            } catch (Exception e)
+            {
+                throw new RestServiceException(e);
             }
-            throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, ce);
-        }
-        catch (UniqueEmailException e)
-        {
-            Map<String, String> responseObj = new HashMap<>();
-            responseObj.put("email", "That email is already used, please use a unique email");
-            throw new RestServiceException("Customer details conflict with another Customer", responseObj, Response.Status.CONFLICT, e);
-        } catch (Exception e)
-        {
-            throw new RestServiceException(e);
-        }
 
-        log.info("updateCustomer completed. Customer = " + customer);
-        return builder.build();
+            log.log(Level.INFO, "updateCustomer completed. Customer ID = {0}", customer.getCustomerID());
+            return builder.build();
+        });
     }
 
     //------------COMMENTING FOR BETTER VISIBILITY--------------
@@ -262,27 +350,32 @@ public class CustomerRestService
             @APIResponse(responseCode = "404", description = "Customer with id not found"),
             @APIResponse(responseCode = "500", description = "An unexpected error occurred whilst processing the request")
     })
-    @Transactional
-    public Response deleteCustomer(
+    public Uni<Response> deleteCustomer(
             @Parameter(description = "Id of Customer to be deleted", required = true)
             @PathParam("id") long id)
     {
-        Customer customer = service.findById(id);
-        if (customer == null)
+        return blocking.runInTransaction(() ->
         {
-            throw new RestServiceException("No Customer with the id " + id + " was found!", Response.Status.NOT_FOUND);
-        }
+            Customer customer = service.findById(id);
+            if (customer == null)
+            {
+                throw new RequestRejectedException("No Customer with the id " + id + " was found!", Response.Status.NOT_FOUND);
+            }
 
-        try
-        {
-            service.delete(customer);  // Pass the Customer object to the delete method
-        } catch (Exception e)
-        {
-            throw new RestServiceException(e);
-        }
+            try
+            {
+                service.delete(customer);  // Pass the Customer object to the delete method
+            } catch (Exception e)
+            {
+                throw new RestServiceException(e);
+            }
 
-        log.info("deleteCustomer completed. Customer with id " + id + " deleted.");
-        return Response.noContent().build();
+            if (log.isLoggable(Level.INFO))
+            {
+                log.log(Level.INFO, "deleteCustomer completed. Customer with id {0} deleted.", id);
+            }
+            return Response.noContent().build();
+        });
     }
 
 }
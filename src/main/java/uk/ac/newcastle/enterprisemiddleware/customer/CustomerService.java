@@ -1,13 +1,16 @@
 package uk.ac.newcastle.enterprisemiddleware.customer;
 
 import uk.ac.newcastle.enterprisemiddleware.booking.Booking;
+import uk.ac.newcastle.enterprisemiddleware.util.Measured;
 
 import javax.enterprise.context.Dependent;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
 import javax.transaction.Transactional;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -20,6 +23,7 @@ import java.util.logging.Logger;
  * @see CustomerValidator
  * @see CustomerRepository
  */
+@Measured
 @Dependent
 public class CustomerService
 {
@@ -81,7 +85,7 @@ public class CustomerService
      */
     public Customer create(Customer customer) throws Exception
     {
-        log.info("CustomerService.create() - Creating " + customer.getCustomerName());
+        log.fine("CustomerService.create() - Creating a customer");
 
         // Validate the customer before creating it
         validator.validateCustomer(customer);
@@ -91,6 +95,51 @@ public class CustomerService
     }
 
 
+    /**
+     * <p>Returns the customer with the given customer's email, creating it first if there isn't one yet.</p>
+     *
+     * <p>This is safe to call for the same email from many requests at once. Rather than checking and then inserting,
+     * the new customer is inserted and committed in its own transaction, and the unique index on the email turns away
+     * every insert but the first; the requests that lose read back the customer that won. An existing customer is
+     * only returned if the name and phone number given match it, and the details given this time are not applied to
+     * it.</p>
+     *
+     * @param customer The details of the customer to find or create
+     * @return The existing Customer with that email, or the given Customer once it has been created
+     * @throws uk.ac.newcastle.enterprisemiddleware.contact.UniqueEmailException if a customer has the email but a different name or phone number
+     * @throws Exception if the customer is new and not valid, or can't be created
+     */
+    public Customer findOrCreate(Customer customer) throws Exception
+    {
+        Customer existing = validator.findOrValidateGuest(customer);
+        if (existing != null)
+        {
+            return existing;
+        }
+
+        log.fine("CustomerService.findOrCreate() - Creating a guest customer");
+        customer.setCustomerID(null);
+        try
+        {
+            return crud.insert(customer);
+        } catch (PersistenceException e)
+        {
+            if (!isConstraintViolation(e))
+            {
+                throw e;
+            }
+            customer.setCustomerID(null);
+            existing = validator.findOrValidateGuest(customer);
+            if (existing == null)
+            {
+                // Not the email after all, or the customer that took it has gone again...
+                throw e;
+            }
+            log.log(Level.FINE, "CustomerService.findOrCreate() - Customer ID {0} was created by another request", existing.getCustomerID());
+            return existing;
+        }
+    }
+
     /**
      * <p>Updates an existing Customer object in the application database.</p>
      *
@@ -102,7 +151,7 @@ public class CustomerService
      */
     public Customer update(Customer customer) throws Exception
     {
-        log.info("CustomerService.update() - Updating " + customer.getCustomerName());
+        log.log(Level.FINE, "CustomerService.update() - Updating customer ID {0}", customer.getCustomerID());
 
         // Validate the customer before updating it
         validator.validateCustomer(customer);
@@ -119,7 +168,7 @@ public class CustomerService
      */
     public Customer delete(Customer customer) throws Exception
     {
-        log.info("CustomerService.delete() - Deleting " + customer.getCustomerName());
+        log.log(Level.FINE, "CustomerService.delete() - Deleting customer ID {0}", customer.getCustomerID());
 
         Customer deletedCustomer = null;
 
@@ -134,5 +183,15 @@ public class CustomerService
         return deletedCustomer;
     }
 
-
+    private static boolean isConstraintViolation(Throwable failure)
+    {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause())
+        {
+            if (cause instanceof org.hibernate.exception.ConstraintViolationException)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -1,14 +1,17 @@
 package uk.ac.newcastle.enterprisemiddleware.customer;
+import uk.ac.newcastle.enterprisemiddleware.area.AreaCodeDirectory;
+import uk.ac.newcastle.enterprisemiddleware.area.InvalidAreaCodeException;
 import uk.ac.newcastle.enterprisemiddleware.contact.UniqueEmailException; // using the UniqueEmailException code...
+import uk.ac.newcastle.enterprisemiddleware.util.Measured;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
-import javax.persistence.NoResultException;
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.validation.ValidationException;
 import javax.validation.Validator;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 /**
  * <p>This class provides methods to check Customer objects against arbitrary requirements.</p>
@@ -18,6 +21,7 @@ import java.util.Set;
  * @see CustomerRepository
  * @see javax.validation.Validator
  */
+@Measured(Measured.VALIDATOR)
 @ApplicationScoped
 public class CustomerValidator
 {
@@ -28,15 +32,24 @@ public class CustomerValidator
     @Inject
     CustomerRepository crud;
 
+    @Inject
+    AreaCodeDirectory areaCodes;
+
     /**
      * <p>Validates the given Customer object and throws validation exceptions based on the type of error. If the error is standard
      * bean validation errors, it will throw a ConstraintViolationException with the set of the constraints violated.</p>
      *
-     * <p>If the error is caused because an existing customer with the same email is registered, it throws a regular validation
-     * exception so that it can be interpreted separately.</p>
+     * <p>If the error is caused because an existing customer with the same email is registered, it throws a
+     * {@link UniqueEmailException}, and if one has the same phone number a regular validation exception, so that they
+     * can be interpreted separately. Both are checked with a single query; the "@UniqueConstraint(columnNames =
+     * "customerEmail")" constraint from the Customer class can't easily be captured any other way.</p>
+     *
+     * <p>The area code of the phone number must exist; it is looked up in the {@link AreaCodeDirectory}, not the
+     * remote area service.</p>
      *
      * @param customer The Customer object to be validated
      * @throws ConstraintViolationException If Bean Validation errors exist
+     * @throws InvalidAreaCodeException If the phone number's area code doesn't exist
      * @throws ValidationException If customer with the same email already exists
      */
     void validateCustomer(Customer customer) throws ConstraintViolationException, ValidationException
@@ -48,69 +61,94 @@ public class CustomerValidator
         {
             throw new ConstraintViolationException(new HashSet<ConstraintViolation<?>>(violations));
         }
+        checkAreaCode(customer);
+
+        // Check the uniqueness of the email address and the phone number, with one query for both...
+        boolean emailTaken = false;
+        boolean phoneNumberTaken = false;
+        for (Customer existing : crud.findByEmailOrPhoneNumber(customer.getCustomerEmail(), customer.getCustomerPhoneNumber()))
+        {
+            // Since update will be using the customer's own email and phone number, that record doesn't count
+            if (existing.getCustomerID().equals(customer.getCustomerID()))
+            {
+                continue;
+            }
+            emailTaken |= existing.getCustomerEmail().equals(customer.getCustomerEmail());
+            phoneNumberTaken |= existing.getCustomerPhoneNumber().equals(customer.getCustomerPhoneNumber());
+        }
 
-        // Check the uniqueness of the email address
-        if (emailAlreadyExists(customer.getCustomerEmail(), customer.getCustomerID()))
+        if (emailTaken)
         {
             throw new UniqueEmailException("Unique Email Violation");
         }
 
-        // Check the uniqueness of the phone number...
-        if (phoneNumberAlreadyExists(customer.getCustomerPhoneNumber(), customer.getCustomerID()))
+        if (phoneNumberTaken)
         {
             throw new ValidationException("A customer with this phone number already exists.");
         }
     }
 
     /**
-     * This method checks if a phone number already exists...
-     * @param phoneNumber
-     * @param customerId
-     * @return existingCustomer
-     */
-    private boolean phoneNumberAlreadyExists(String phoneNumber, Long customerId)
-    {
-        Customer existingCustomer = crud.findByPhoneNumber(phoneNumber);
-        return existingCustomer != null && !existingCustomer.getCustomerID().equals(customerId);
-    }
-
-    /**
-     * <p>Checks if a customer with the same email address is already registered. This is the only way to easily capture the
-     * "@UniqueConstraint(columnNames = "customerEmail")" constraint from the Customer class.</p>
+     * <p>Finds the customer a guest already is, or validates them as a new one.</p>
      *
-     * <p>Since Update will be using an email that is already in the database, we need to make sure that it is the email
-     * from the record being updated.</p>
+     * <p>Like {@link #validateCustomer}, but an existing customer with the same email is the guest coming back rather
+     * than a conflict, as long as the name and phone number they sent match it too. Knowing someone's email is not
+     * enough to book as them. It takes one query.</p>
      *
-     * @param email The email to check is unique
-     * @param customerID The customer id to check the email against if it was found
-     * @return boolean which represents whether the email was found, and if so, if it belongs to the user with id
+     * @param customer The guest's details
+     * @return The existing Customer with the same email, or null if the guest is new and may be created
+     * @throws ConstraintViolationException If the guest is new and Bean Validation errors exist
+     * @throws InvalidAreaCodeException If the guest is new and their phone number's area code doesn't exist
+     * @throws UniqueEmailException If a customer has the email but a different name or phone number
+     * @throws ValidationException If the guest is new but their phone number belongs to another customer
      */
-    boolean emailAlreadyExists(String email, Long customerID)
+    Customer findOrValidateGuest(Customer customer) throws ConstraintViolationException, ValidationException
     {
-        Customer customer = null;
-        Customer customerWithID = null;
-        try
-        {
-            customer = crud.findByEmail(email);
-        } catch (NoResultException e)
-        {
-            // ignore
-        }
-
-        if (customer != null && customerID != null)
+        List<Customer> matches = crud.findByEmailOrPhoneNumber(customer.getCustomerEmail(), customer.getCustomerPhoneNumber());
+        for (Customer existing : matches)
         {
-            try
+            if (existing.getCustomerEmail().equals(customer.getCustomerEmail()))
             {
-                customerWithID = crud.findById(customerID);
-                if (customerWithID != null && customerWithID.getCustomerEmail().equals(email))
+                if (!sameGuest(existing, customer))
                 {
-                    customer = null;
+                    throw new UniqueEmailException("Unique Email Violation");
                 }
-            } catch (NoResultException e)
-            {
-                // ignore
+                return existing;
             }
         }
-        return customer != null;
+
+        Set<ConstraintViolation<Customer>> violations = validator.validate(customer);
+        if (!violations.isEmpty())
+        {
+            throw new ConstraintViolationException(new HashSet<ConstraintViolation<?>>(violations));
+        }
+        checkAreaCode(customer);
+        if (!matches.isEmpty())
+        {
+            throw new ValidationException("A customer with this phone number already exists.");
+        }
+        return null;
+    }
+
+    /**
+     * The name is compared ignoring case, and the phone number ignoring the optional space after the area code...
+     */
+    private static boolean sameGuest(Customer existing, Customer customer)
+    {
+        return existing.getCustomerName().equalsIgnoreCase(customer.getCustomerName())
+                && withoutSpaces(existing.getCustomerPhoneNumber()).equals(withoutSpaces(customer.getCustomerPhoneNumber()));
+    }
+
+    private static String withoutSpaces(String phoneNumber)
+    {
+        return phoneNumber == null ? "" : phoneNumber.replaceAll("\\s", "");
+    }
+
+    private void checkAreaCode(Customer customer) throws InvalidAreaCodeException
+    {
+        if (areaCodes.findByPhoneNumber(customer.getCustomerPhoneNumber()) == null)
+        {
+            throw new InvalidAreaCodeException("The area code provided does not exist");
+        }
     }
 }
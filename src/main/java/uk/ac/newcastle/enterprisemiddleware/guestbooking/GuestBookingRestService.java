@@ -1,32 +1,35 @@
 package uk.ac.newcastle.enterprisemiddleware.guestbooking;
 
+import io.smallrye.mutiny.Uni;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import uk.ac.newcastle.enterprisemiddleware.booking.Booking;
-import uk.ac.newcastle.enterprisemiddleware.booking.BookingService;
-import uk.ac.newcastle.enterprisemiddleware.customer.Customer;
-import uk.ac.newcastle.enterprisemiddleware.customer.CustomerService;
-import uk.ac.newcastle.enterprisemiddleware.hotel.Hotel;
-import uk.ac.newcastle.enterprisemiddleware.hotel.HotelService;
+import uk.ac.newcastle.enterprisemiddleware.contact.UniqueEmailException;
+import uk.ac.newcastle.enterprisemiddleware.util.BlockingExecution;
+import uk.ac.newcastle.enterprisemiddleware.util.RestServiceException;
 
 import javax.inject.Inject;
-import javax.transaction.UserTransaction;
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.ValidationException;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.logging.Logger;
 
 /**
  * @author AryamanPatronia
- * <p>This REST service handles the creation of a new customer and booking in a single transaction.</p>
- * <p>It uses the {@link CustomerService} and {@link BookingService} to create and persist customer and booking data.</p>
+ * <p>This REST service books a hotel for a guest, creating them as a customer first if they are new.</p>
+ * <p>It uses the {@link GuestBookingService} to validate and persist the customer and booking data.</p>
  */
 @Path("/guest-booking")
 @Consumes(MediaType.APPLICATION_JSON)
 @Produces(MediaType.APPLICATION_JSON)
-@Tag(name = "4. Guest Booking Rest Service", description = "Creates booking and customer in a single transaction...")
+@Tag(name = "4. Guest Booking Rest Service", description = "Books a hotel for a new or returning guest...")
 public class GuestBookingRestService
 {
 
@@ -34,20 +37,15 @@ public class GuestBookingRestService
     Logger log;
 
     @Inject
-    CustomerService customerService;
+    GuestBookingService service;
 
     @Inject
-    BookingService bookingService;
-
-    @Inject
-    UserTransaction userTransaction;  // JTA for manual transaction demarcation
-
-    @Inject
-    HotelService hotelService;
+    BlockingExecution blocking;
 
 
     /**
-     * <p>This method handles the creation of a new Customer and Booking within a single transaction.</p>
+     * <p>This method books the hotel for the guest. A new guest's Customer is created first, in a transaction of its
+     * own; a returning guest's email, name and phone number must all match the Customer they already are.</p>
      *
      * @param guestBooking The GuestBooking object that contains both customer and booking details
      * @return Response containing the created Booking and status code 201 if successful
@@ -55,69 +53,47 @@ public class GuestBookingRestService
     @POST
     @Operation(summary = "Perform a guest booking...", description = "Creates a booking and a customer for the specified hotel...")
     @APIResponses(value = {
-            @APIResponse(responseCode = "201", description = "Successfully created a guest booking...")})
-    public Response createGuestBooking(GuestBooking guestBooking)
+            @APIResponse(responseCode = "201", description = "Successfully created a guest booking..."),
+            @APIResponse(responseCode = "400", description = "Invalid guest booking, or the hotel does not exist..."),
+            @APIResponse(responseCode = "409", description = "The customer's email is already in use by someone with a different name or phone number...")})
+    public Uni<Response> createGuestBooking(GuestBooking guestBooking)
     {
-        try
+        return blocking.run(() ->
         {
-            log.info("Creating guest booking for customer: " + guestBooking.getCustomer().getCustomerName());
-
-            // Start transaction manually
-            userTransaction.begin();
-
-            // Create or fetch a managed Customer entity
-            Customer customer = customerService.create(guestBooking.getCustomer());
-
-            // Fetch the Hotel by ID (Ensure it is managed and valid)
-            Hotel hotel = hotelService.findById(guestBooking.getBooking().getHotel().getId());
-            if (hotel == null)
+            if (guestBooking == null || guestBooking.getCustomer() == null || guestBooking.getBooking() == null)
             {
-                return Response.status(Response.Status.BAD_REQUEST)
-                        .entity("Hotel not found with ID: " + guestBooking.getBooking().getHotel().getId())
-                        .build();
+                throw new RestServiceException("A customer and a booking are required", Response.Status.BAD_REQUEST);
             }
 
-            // Set the customer and hotel in the booking (hotel data will not be modified)
-            Booking booking = guestBooking.getBooking();
-            booking.setCustomer(customer); // Managed customer entity
-            booking.setHotel(hotel); // Managed hotel entity (data comes from the database)
-
-            // Persist the booking (make sure Booking is a managed entity)
-            Booking createdBooking = bookingService.create(booking);
-
-            // Commit the transaction
-            userTransaction.commit();
-
-            return Response.status(Response.Status.CREATED).entity(createdBooking).build();
-
-        }
-        catch (Exception e)
-        {
-            log.severe("Error while creating guest booking: " + e.getMessage());
-
-            // Roll back transaction in case of error
             try
             {
-                userTransaction.rollback();
+                Booking createdBooking = service.create(guestBooking);
+                return Response.status(Response.Status.CREATED).entity(createdBooking).build();
             }
-            catch (Exception rollbackEx)
+            catch (ConstraintViolationException ce)
             {
-                log.severe("Failed to rollback transaction: " + rollbackEx.getMessage());
+                Map<String, String> responseObj = new HashMap<>();
+                for (ConstraintViolation<?> violation : ce.getConstraintViolations())
+                {
+                    responseObj.put(violation.getPropertyPath().toString(), violation.getMessage());
+                }
+                throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, ce);
             }
-
-            // Return error response
-            return Response.status(Response.Status.BAD_REQUEST)
-                    .entity("Error while creating guest booking: " + e.getMessage())
-                    .build();
-        }
+            catch (UniqueEmailException e)
+            {
+                Map<String, String> responseObj = new HashMap<>();
+                responseObj.put("email", "That email is already used, please use a unique email");
+                throw new RestServiceException("Bad Request", responseObj, Response.Status.CONFLICT, e);
+            }
+            catch (ValidationException e)
+            {
+                throw new RestServiceException("Error while creating guest booking: " + e.getMessage(), Response.Status.BAD_REQUEST, e);
+            }
+            catch (Exception e)
+            {
+                log.severe("Error while creating guest booking: " + e.getMessage());
+                throw new RestServiceException(e);
+            }
+        });
     }
-
-
-
-
-
-
-
-
-
 }
@@ -0,0 +1,121 @@
+package uk.ac.newcastle.enterprisemiddleware.guestbooking;
+
+import uk.ac.newcastle.enterprisemiddleware.booking.Booking;
+import uk.ac.newcastle.enterprisemiddleware.booking.BookingValidator;
+import uk.ac.newcastle.enterprisemiddleware.customer.Customer;
+import uk.ac.newcastle.enterprisemiddleware.customer.CustomerService;
+import uk.ac.newcastle.enterprisemiddleware.hotel.Hotel;
+import uk.ac.newcastle.enterprisemiddleware.hotel.HotelService;
+import uk.ac.newcastle.enterprisemiddleware.util.Measured;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.ValidationException;
+import javax.validation.Validator;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * <p>Books a hotel for a guest, who may be new or may have booked before.</p>
+ *
+ * <p>The guest is matched to a customer by email with {@link CustomerService#findOrCreate}, so a returning guest
+ * books as the customer they already are and many requests for the same new guest create only one customer. A
+ * returning guest's name and phone number must match the customer's too. The booking is then made in a transaction of
+ * its own, and is returned with the guest's details as they were sent, never the stored customer's.</p>
+ *
+ * <p>It takes three statements: one query looks the email and phone number up, then one insert for a new customer
+ * or one overlap check for a returning one, and the booking insert. The hotel normally comes from the second-level
+ * cache.</p>
+ *
+ * @author AryamanPatronia
+ * @see GuestBookingRestService
+ */
+@Measured
+@ApplicationScoped
+public class GuestBookingService
+{
+
+    @Inject
+    @Named("logger")
+    Logger log;
+
+    @Inject
+    CustomerService customerService;
+
+    @Inject
+    HotelService hotelService;
+
+    @Inject
+    BookingValidator bookingValidator;
+
+    @Inject
+    Validator validator;
+
+    @Inject
+    EntityManager em;
+
+    /**
+     * <p>Books the hotel for the guest, creating them as a customer first if their email is new.</p>
+     *
+     * <p>A new guest's customer is kept even if the booking then fails, so trying again finds them.</p>
+     *
+     * @param guestBooking The customer and booking details
+     * @return The booking that was created
+     * @throws ConstraintViolationException If Bean Validation errors exist
+     * @throws uk.ac.newcastle.enterprisemiddleware.contact.UniqueEmailException If the email belongs to a customer with a different name or phone number
+     * @throws ValidationException If a new guest's phone number is taken, the hotel doesn't exist, or a returning
+     * guest already has a booking at the hotel with the same check-in date
+     */
+    public Booking create(GuestBooking guestBooking) throws Exception
+    {
+        log.fine("GuestBookingService.create() - Creating a guest booking");
+
+        Booking booking = guestBooking.getBooking();
+        Long hotelId = booking.getHotel() == null ? null : booking.getHotel().getId();
+        Hotel hotel = hotelId == null ? null : hotelService.findById(hotelId);
+        if (hotel == null)
+        {
+            throw new ValidationException("Hotel not found with ID: " + hotelId);
+        }
+        booking.setId(null);
+        booking.setHotel(hotel);
+
+        // Check the booking before a new customer is created for it; it has no customer yet...
+        Set<ConstraintViolation<?>> violations = new HashSet<>(validator.validate(booking));
+        violations.removeIf(violation -> violation.getPropertyPath().toString().equals("customer"));
+        if (!violations.isEmpty())
+        {
+            throw new ConstraintViolationException(violations);
+        }
+
+        Customer guest = guestBooking.getCustomer();
+        Customer customer = customerService.findOrCreate(guest);
+        booking.setCustomer(customer);
+        boolean returning = customer != guest;
+        if (!returning)
+        {
+            return book(booking);
+        }
+
+        bookingValidator.validateBooking(booking);
+        book(booking);
+        // Answer with what the guest sent, under the customer's id...
+        guest.setCustomerID(customer.getCustomerID());
+        booking.setCustomer(guest);
+        return booking;
+    }
+
+    @Transactional
+    Booking book(Booking booking)
+    {
+        // The customer and hotel are detached but both have ids, so persist only needs their keys...
+        em.persist(booking);
+        return booking;
+    }
+}
@@ -8,13 +8,19 @@ import java.io.Serializable;
 import java.util.Objects;
 
 /**
+ * <p>Hotels are read on every booking but rarely change, so they are kept in the Hibernate second-level cache:
+ * looking one up by id usually doesn't touch the database. Changes made through the EntityManager keep the cache up to
+ * date.</p>
+ *
  * @author AryamanPatronia
  */
 
 @Entity
+@Cacheable
 @NamedQueries({
         @NamedQuery(name = Hotel.FIND_ALL, query = "SELECT h FROM Hotel h ORDER BY h.hotelName ASC"),
-        @NamedQuery(name = Hotel.FIND_BY_LOCATION, query = "SELECT h FROM Hotel h WHERE h.hotelLocation = :location")
+        @NamedQuery(name = Hotel.FIND_BY_LOCATION, query = "SELECT h FROM Hotel h WHERE h.hotelLocation = :location"),
+        @NamedQuery(name = Hotel.FIND_BY_IDS, query = "SELECT h FROM Hotel h WHERE h.id IN :ids")
 })
 @Table(name = "hotels", uniqueConstraints = @UniqueConstraint(columnNames = "hotel_name"))
 public class Hotel implements Serializable
@@ -23,6 +29,7 @@ public class Hotel implements Serializable
 
     public static final String FIND_ALL = "Hotel.findAll";
     public static final String FIND_BY_LOCATION = "Hotel.findByLocation";
+    public static final String FIND_BY_IDS = "Hotel.findByIds";
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
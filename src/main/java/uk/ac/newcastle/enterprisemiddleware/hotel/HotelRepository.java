@@ -1,5 +1,7 @@
 package uk.ac.newcastle.enterprisemiddleware.hotel;
 
+import uk.ac.newcastle.enterprisemiddleware.util.Measured;
+
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -7,6 +9,7 @@ import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 import javax.validation.ConstraintViolationException;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -19,6 +22,7 @@ import java.util.logging.Logger;
  * @see Hotel
  * @see javax.persistence.EntityManager
  */
+@Measured
 @RequestScoped
 public class HotelRepository
 {
@@ -60,7 +64,7 @@ public class HotelRepository
      */
     public Hotel create(Hotel hotel) throws Exception
     {
-        log.info("HotelRepository.create() - Creating " + hotel.getHotelName());
+        log.fine("HotelRepository.create() - Creating a hotel");
 
         // Write hotel to the database...
         em.persist(hotel);
@@ -77,7 +81,7 @@ public class HotelRepository
      */
     public Hotel update(Hotel hotel) throws Exception
     {
-        log.info("HotelRepository.update() - Updating " + hotel.getHotelName());
+        log.log(Level.FINE, "HotelRepository.update() - Updating hotel ID {0}", hotel.getId());
 
         em.merge(hotel);
 
@@ -93,7 +97,7 @@ public class HotelRepository
      */
     public Hotel delete(Hotel hotel) throws Exception
     {
-        log.info("HotelRepository.delete() - Deleting " + hotel.getHotelName());
+        log.log(Level.FINE, "HotelRepository.delete() - Deleting hotel ID {0}", hotel.getId());
 
         if (hotel.getId() != null)
         {
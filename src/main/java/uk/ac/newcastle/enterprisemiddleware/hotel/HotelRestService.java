@@ -1,16 +1,18 @@
 package uk.ac.newcastle.enterprisemiddleware.hotel;
 
+import io.smallrye.mutiny.Uni;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import uk.ac.newcastle.enterprisemiddleware.util.BlockingExecution;
+import uk.ac.newcastle.enterprisemiddleware.util.RequestRejectedException;
 import uk.ac.newcastle.enterprisemiddleware.util.RestServiceException;
 
 import javax.inject.Inject;
 import javax.inject.Named;
-import javax.transaction.Transactional;
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.ws.rs.*;
@@ -19,6 +21,7 @@ import javax.ws.rs.core.Response;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -46,6 +49,9 @@ public class HotelRestService {
     @Inject
     HotelValidator hotelValidator; // Injecting the validator
 
+    @Inject
+    BlockingExecution blocking;
+
     /**
      * Operation to fetch all the hotels that exist in the database...s
      * @return Response of all the hotels that exist in the database...
@@ -53,10 +59,13 @@ public class HotelRestService {
 
     @GET
     @Operation(summary = "Fetch all hotels...", description = "Returns a JSON array of all stored Hotel objects.")
-    public Response retrieveAllHotels()
+    public Uni<Response> retrieveAllHotels()
     {
-        List<Hotel> hotels = hotelRepository.findAllOrderedByName();
-        return Response.ok(hotels).build();
+        return blocking.run(() ->
+        {
+            List<Hotel> hotels = hotelRepository.findAllOrderedByName();
+            return Response.ok(hotels).build();
+        });
     }
 
     //------------COMMENTING FOR BETTER VISIBILITY--------------
@@ -68,17 +77,20 @@ public class HotelRestService {
             @APIResponse(responseCode = "200", description = "Hotel found"),
             @APIResponse(responseCode = "404", description = "Hotel with id not found")
     })
-    public Response retrieveHotelById(
+    public Uni<Response> retrieveHotelById(
             @Parameter(description = "Id of Hotel to be fetched", required = true)
             @Schema(minimum = "0")
             @PathParam("id") long id)
     {
-        Hotel hotel = service.findById(id);
-        if (hotel == null)
+        return blocking.run(() ->
         {
-            throw new RestServiceException("No Hotel with the id " + id + " was found!", Response.Status.NOT_FOUND);
-        }
-        return Response.ok(hotel).build();
+            Hotel hotel = service.findById(id);
+            if (hotel == null)
+            {
+                throw new RequestRejectedException("No Hotel with the id " + id + " was found!", Response.Status.NOT_FOUND);
+            }
+            return Response.ok(hotel).build();
+        });
     }
 
     //------------COMMENTING FOR BETTER VISIBILITY--------------
@@ -96,42 +108,44 @@ public class HotelRestService {
             @APIResponse(responseCode = "409", description = "Hotel conflicts with an existing Hotel"),
             @APIResponse(responseCode = "500", description = "An unexpected error occurred whilst processing the request")
     })
-    @Transactional
-    public Response createHotel(
+    public Uni<Response> createHotel(
             @Parameter(description = "JSON representation of Hotel object to be added to the database", required = true)
             Hotel hotel)
     {
-        if (hotel == null)
+        return blocking.runInTransaction(() ->
         {
-            throw new RestServiceException("Bad Request", Response.Status.BAD_REQUEST);
-        }
+            if (hotel == null)
+            {
+                throw new RestServiceException("Bad Request", Response.Status.BAD_REQUEST);
+            }
 
-        Response.ResponseBuilder builder;
+            Response.ResponseBuilder builder;
 
-        try
-        {
-            hotel.setId(null); // Clear the ID if accidentally set
-            hotelValidator.validateHotel(hotel); // Validate the hotel before creating
-            service.create(hotel);
-            builder = Response.status(Response.Status.CREATED).entity(hotel);
+            try
+            {
+                hotel.setId(null); // Clear the ID if accidentally set
+                hotelValidator.validateHotel(hotel); // Validate the hotel before creating
+                service.create(hotel);
+                builder = Response.status(Response.Status.CREATED).entity(hotel);
 
-        }
-        catch (ConstraintViolationException ce)
-        {
-            Map<String, String> responseObj = new HashMap<>();
-            for (ConstraintViolation<?> violation : ce.getConstraintViolations())
+            }
+            catch (ConstraintViolationException ce)
+            {
+                Map<String, String> responseObj = new HashMap<>();
+                for (ConstraintViolation<?> violation : ce.getConstraintViolations())
+                {
+                    responseObj.put(violation.getPropertyPath().toString(), violation.getMessage());
+                }
+                throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, ce);
+
+            } catch (Exception e)
             {
-                responseObj.put(violation.getPropertyPath().toString(), violation.getMessage());
+                throw new RestServiceException(e);
             }
-            throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, ce);
 
-        } catch (Exception e)
-        {
-            throw new RestServiceException(e);
-        }
-
-        log.info("createHotel completed. Hotel = " + hotel);
-        return builder.build();
+            log.log(Level.INFO, "createHotel completed. Hotel ID = {0}", hotel.getId());
+            return builder.build();
+        });
     }
 
 
@@ -147,53 +161,55 @@ public class HotelRestService {
             @APIResponse(responseCode = "404", description = "Hotel with id not found"),
             @APIResponse(responseCode = "500", description = "An unexpected error occurred whilst processing the request")
     })
-    @Transactional
-    public Response updateHotel(
+    public Uni<Response> updateHotel(
             @Parameter(description = "Id of Hotel to be updated", required = true)
             @Schema(minimum = "0")
             @PathParam("id") long id,
             @Parameter(description = "JSON representation of Hotel object to be updated in the database", required = true)
             Hotel hotel)
     {
-        if (hotel == null || hotel.getId() == null)
-        {
-            throw new RestServiceException("Invalid Hotel supplied in request body", Response.Status.BAD_REQUEST);
-        }
-        if (hotel.getId() != id)
+        return blocking.runInTransaction(() ->
         {
-            Map<String, String> responseObj = new HashMap<>();
-            responseObj.put("id", "The Hotel ID in the request body must match that of the Hotel being updated");
-            throw new RestServiceException("Hotel details supplied in request body conflict with another Hotel",
-                    responseObj, Response.Status.CONFLICT);
-        }
-        if (service.findById(id) == null)
-        {
-            throw new RestServiceException("No Hotel with the id " + id + " was found!", Response.Status.NOT_FOUND);
-        }
-        Response.ResponseBuilder builder;
-        try
-        {
-            hotelValidator.validateHotel(hotel); // Validate the hotel before updating
-            service.update(hotel);
-            builder = Response.ok(hotel);
+            if (hotel == null || hotel.getId() == null)
+            {
+                throw new RestServiceException("Invalid Hotel supplied in request body", Response.Status.BAD_REQUEST);
+            }
+            if (hotel.getId() != id)
+            {
+                Map<String, String> responseObj = new HashMap<>();
+                responseObj.put("id", "The Hotel ID in the request body must match that of the Hotel being updated");
+                throw new RequestRejectedException("Hotel details supplied in request body conflict with another Hotel",
+                        responseObj, Response.Status.CONFLICT);
+            }
+            if (service.findById(id) == null)
+            {
+                throw new RequestRejectedException("No Hotel with the id " + id + " was found!", Response.Status.NOT_FOUND);
+            }
+            Response.ResponseBuilder builder;
+            try
+            {
+                hotelValidator.validateHotel(hotel); // Validate the hotel before updating
+                service.update(hotel);
+                builder = Response.ok(hotel);
 
-        }
-        catch (ConstraintViolationException ce)
-        {
-            Map<String, String> responseObj = new HashMap<>();
-            for (ConstraintViolation<?> violation : ce.getConstraintViolations())
+            }
+            catch (ConstraintViolationException ce)
             {
-                responseObj.put(violation.getPropertyPath().toString(), violation.getMessage());
+                Map<String, String> responseObj = new HashMap<>();
+                for (ConstraintViolation<?> violation : ce.getConstraintViolations())
+                {
+                    responseObj.put(violation.getPropertyPath().toString(), violation.getMessage());
+                }
+                throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, ce);
+            }
+            catch (Exception e)
+            {
+                throw new RestServiceException(e);
             }
-            throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, ce);
-        }
-        catch (Exception e)
-        {
-            throw new RestServiceException(e);
-        }
 
-        log.info("updateHotel completed. Hotel = " + hotel);
-        return builder.build();
+            log.log(Level.INFO, "updateHotel completed. Hotel ID = {0}", hotel.getId());
+            return builder.build();
+        });
     }
 
 
@@ -208,26 +224,28 @@ public class HotelRestService {
             @APIResponse(responseCode = "404", description = "Hotel with id not found"),
             @APIResponse(responseCode = "500", description = "An unexpected error occurred whilst processing the request")
     })
-    @Transactional
-    public Response deleteHotel(
+    public Uni<Response> deleteHotel(
             @Parameter(description = "Id of Hotel to be deleted", required = true)
             @Schema(minimum = "0")
             @PathParam("id") long id)
     {
-        Hotel hotel = service.findById(id);
-        if (hotel == null)
-        {
-            throw new RestServiceException("No Hotel with the id " + id + " was found!", Response.Status.NOT_FOUND);
-        }
-        try
+        return blocking.runInTransaction(() ->
         {
-            service.delete(hotel);
-            return Response.noContent().build();
+            Hotel hotel = service.findById(id);
+            if (hotel == null)
+            {
+                throw new RequestRejectedException("No Hotel with the id " + id + " was found!", Response.Status.NOT_FOUND);
+            }
+            try
+            {
+                service.delete(hotel);
+                return Response.noContent().build();
 
-        }
-        catch (Exception e)
-        {
-            throw new RestServiceException(e);
-        }
+            }
+            catch (Exception e)
+            {
+                throw new RestServiceException(e);
+            }
+        });
     }
 }
@@ -1,9 +1,12 @@
 package uk.ac.newcastle.enterprisemiddleware.hotel;
 
+import uk.ac.newcastle.enterprisemiddleware.util.Measured;
+
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.validation.ConstraintViolationException;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -20,6 +23,7 @@ import java.util.logging.Logger;
  * Boundary / Web Service class with public methods.</p>
  *
  */
+@Measured
 @ApplicationScoped
 public class HotelService
 {
@@ -59,7 +63,7 @@ public class HotelService
             return hotelRepository.findById(idLong);
         } catch (NumberFormatException e)
         {
-            log.warning("Invalid ID format: " + id);
+            log.log(Level.WARNING, "Invalid ID format: {0}", id);
             return null;  // Return null or handle the error appropriately
         }
     }
@@ -75,7 +79,7 @@ public class HotelService
      */
     public Hotel create(Hotel hotel) throws Exception
     {
-        log.info("HotelService.create() - Creating hotel: " + hotel.getHotelName());
+        log.fine("HotelService.create() - Creating a hotel");
 
         // Validate hotel details
         validator.validateHotel(hotel);
@@ -95,7 +99,7 @@ public class HotelService
      */
     public Hotel update(Hotel hotel) throws Exception
     {
-        log.info("HotelService.update() - Updating hotel: " + hotel.getHotelName());
+        log.log(Level.FINE, "HotelService.update() - Updating hotel ID {0}", hotel.getId());
 
         // Validate hotel details
         validator.validateHotel(hotel);
@@ -113,7 +117,7 @@ public class HotelService
      */
     public Hotel delete(Hotel hotel) throws Exception
     {
-        log.info("HotelService.delete() - Deleting hotel: " + hotel.getHotelName());
+        log.log(Level.FINE, "HotelService.delete() - Deleting hotel ID {0}", hotel.getId());
 
         Hotel deletedHotel = null;
 
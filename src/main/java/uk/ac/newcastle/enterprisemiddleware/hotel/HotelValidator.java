@@ -1,5 +1,7 @@
 package uk.ac.newcastle.enterprisemiddleware.hotel;
 
+import uk.ac.newcastle.enterprisemiddleware.util.Measured;
+
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.validation.ConstraintViolation;
@@ -17,6 +19,7 @@ import java.util.Set;
  * @see HotelRepository
  * @see javax.validation.Validator
  */
+@Measured(Measured.VALIDATOR)
 @ApplicationScoped
 public class HotelValidator
 {
@@ -0,0 +1,132 @@
+package uk.ac.newcastle.enterprisemiddleware.simulator;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.mutiny.Uni;
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.core.Response;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * <p>Stands in for the partner APIs the travel agent and contacts depend on, so their flows can be load and chaos
+ * tested without the live services. It is only switched on by {@code simulator.enabled}, which the {@code sim}
+ * profile sets along with pointing the clients at it.</p>
+ *
+ * <p>Each API starts with the behaviour in {@code simulator.<api>.median-latency}, {@code p99-latency},
+ * {@code error-rate} and {@code max-requests-per-second}, and can be changed while running through
+ * {@link PartnerSimulatorRestService}. Like the real services, a booking can only be cancelled once: cancelling one
+ * that was never made, or already cancelled, gets a 404.</p>
+ *
+ * <p>Requests are counted in {@code simulator.requests}, tagged with api and status.</p>
+ *
+ * @author aryamanpatronia
+ * @see PartnerSimulatorRestService
+ */
+@ApplicationScoped
+public class PartnerSimulator
+{
+    public static final String TAXI = "taxi";
+    public static final String FLIGHT = "flight";
+    public static final String AREA = "area";
+
+    @Inject
+    Config config;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "simulator.enabled", defaultValue = "false")
+    boolean enabled;
+
+    private final Map<String, SimulatedPartner> partners = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> bookings = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+
+    @PostConstruct
+    void createPartners()
+    {
+        for (String api : new String[]{TAXI, FLIGHT, AREA})
+        {
+            partners.put(api, new SimulatedPartner(configured(api)));
+        }
+        bookings.put(TAXI, ConcurrentHashMap.newKeySet());
+        bookings.put(FLIGHT, ConcurrentHashMap.newKeySet());
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * @return The current behaviour of the api, or null if there is no such api
+     */
+    public SimulatorBehaviour behaviour(String api)
+    {
+        SimulatedPartner partner = partners.get(api);
+        return partner == null ? null : partner.behaviour();
+    }
+
+    /**
+     * Changes how the api behaves from now on; requests already waiting keep the delay they were given.
+     *
+     * @throws IllegalArgumentException if there is no such api or the behaviour can't be simulated
+     */
+    public void changeBehaviour(String api, SimulatorBehaviour behaviour)
+    {
+        SimulatedPartner partner = partners.get(api);
+        if (partner == null)
+        {
+            throw new IllegalArgumentException("No simulated api called " + api);
+        }
+        String problem = behaviour.problem();
+        if (problem != null)
+        {
+            throw new IllegalArgumentException(problem);
+        }
+        partner.behaviour(behaviour);
+    }
+
+    Uni<Response> book(String api)
+    {
+        return handle(api, () ->
+        {
+            long id = ids.incrementAndGet();
+            bookings.get(api).add(id);
+            return Response.status(Response.Status.CREATED).entity(id).build();
+        });
+    }
+
+    Uni<Response> cancel(String api, long id)
+    {
+        return handle(api, () -> bookings.get(api).remove(id)
+                ? Response.noContent().build()
+                : Response.status(Response.Status.NOT_FOUND).build());
+    }
+
+    Uni<Response> handle(String api, Supplier<Response> answer)
+    {
+        return partners.get(api).handle(answer)
+                .invoke(response -> registry.counter("simulator.requests",
+                        "api", api, "status", String.valueOf(response.getStatus())).increment());
+    }
+
+    private SimulatorBehaviour configured(String api)
+    {
+        String prefix = "simulator." + api + ".";
+        Duration median = config.getOptionalValue(prefix + "median-latency", Duration.class).orElse(Duration.ofMillis(50));
+        return new SimulatorBehaviour(median.toMillis(),
+                config.getOptionalValue(prefix + "p99-latency", Duration.class).orElse(median).toMillis(),
+                config.getOptionalValue(prefix + "error-rate", Double.class).orElse(0.0),
+                config.getOptionalValue(prefix + "max-requests-per-second", Integer.class).orElse(0));
+    }
+}
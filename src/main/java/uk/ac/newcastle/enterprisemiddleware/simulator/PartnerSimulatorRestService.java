@@ -0,0 +1,151 @@
+package uk.ac.newcastle.enterprisemiddleware.simulator;
+
+import io.smallrye.mutiny.Uni;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import uk.ac.newcastle.enterprisemiddleware.area.Area;
+import uk.ac.newcastle.enterprisemiddleware.util.RequestRejectedException;
+import uk.ac.newcastle.enterprisemiddleware.util.RestServiceException;
+
+import javax.inject.Inject;
+import javax.ws.rs.*;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>The taxi, flight and area APIs served by the {@link PartnerSimulator}, on the same paths as the real services
+ * below /simulator/taxi, /simulator/flight and /simulator/area, plus /simulator/{api}/behaviour to see or change
+ * how each one behaves.</p>
+ *
+ * <p>Every path is a 404 unless {@code simulator.enabled} is set.</p>
+ *
+ * @author aryamanpatronia
+ * @see PartnerSimulator
+ */
+@Path("/simulator")
+@Consumes(MediaType.APPLICATION_JSON)
+@Produces(MediaType.APPLICATION_JSON)
+@Tag(name = "9. Partner Simulator", description = "Simulated taxi, flight and area services, when simulator.enabled is set...")
+public class PartnerSimulatorRestService
+{
+    // Area codes are three digits that don't start with 0 or 1...
+    private static final int FIRST_AREA = 200;
+    private static final int LAST_AREA = 999;
+
+    @Inject
+    PartnerSimulator simulator;
+
+    @POST
+    @Path("/taxi/taxis/bookings")
+    @Operation(summary = "Simulate booking a taxi...")
+    public Uni<Response> createTaxiBooking(String request)
+    {
+        return enabled().book(PartnerSimulator.TAXI);
+    }
+
+    @DELETE
+    @Path("/taxi/taxis/bookings/{id:[0-9]+}")
+    @Operation(summary = "Simulate cancelling a taxi booking...")
+    public Uni<Response> cancelTaxiBooking(@PathParam("id") long id)
+    {
+        return enabled().cancel(PartnerSimulator.TAXI, id);
+    }
+
+    @POST
+    @Path("/flight/flights/bookings")
+    @Operation(summary = "Simulate booking a flight...")
+    public Uni<Response> createFlightBooking(String request)
+    {
+        return enabled().book(PartnerSimulator.FLIGHT);
+    }
+
+    @DELETE
+    @Path("/flight/flights/bookings/{id:[0-9]+}")
+    @Operation(summary = "Simulate cancelling a flight booking...")
+    public Uni<Response> cancelFlightBooking(@PathParam("id") long id)
+    {
+        return enabled().cancel(PartnerSimulator.FLIGHT, id);
+    }
+
+    @GET
+    @Path("/area/areas")
+    @Operation(summary = "Simulate fetching all area codes...")
+    public Uni<Response> retrieveAreas()
+    {
+        return enabled().handle(PartnerSimulator.AREA, () ->
+        {
+            List<Area> areas = new ArrayList<>(LAST_AREA - FIRST_AREA + 1);
+            for (int id = FIRST_AREA; id <= LAST_AREA; id++)
+            {
+                areas.add(area(id));
+            }
+            return Response.ok(areas).build();
+        });
+    }
+
+    @GET
+    @Path("/area/areas/{id:[0-9]+}")
+    @Operation(summary = "Simulate fetching an area code...")
+    public Uni<Response> retrieveAreaById(@PathParam("id") int id)
+    {
+        return enabled().handle(PartnerSimulator.AREA, () -> id >= FIRST_AREA && id <= LAST_AREA
+                ? Response.ok(area(id)).build()
+                : Response.status(Response.Status.NOT_FOUND).build());
+    }
+
+    @GET
+    @Path("/{api}/behaviour")
+    @Operation(summary = "Fetch how a simulated api behaves...")
+    public Response retrieveBehaviour(@PathParam("api") String api)
+    {
+        SimulatorBehaviour behaviour = enabled().behaviour(api);
+        if (behaviour == null)
+        {
+            throw new RequestRejectedException("No simulated api called " + api, Response.Status.NOT_FOUND);
+        }
+        return Response.ok(behaviour).build();
+    }
+
+    @PUT
+    @Path("/{api}/behaviour")
+    @Operation(summary = "Change how a simulated api behaves...", description = "Takes effect for the next request.")
+    public Response updateBehaviour(@PathParam("api") String api, SimulatorBehaviour behaviour)
+    {
+        if (enabled().behaviour(api) == null)
+        {
+            throw new RequestRejectedException("No simulated api called " + api, Response.Status.NOT_FOUND);
+        }
+        if (behaviour == null)
+        {
+            throw new RestServiceException("A behaviour is required", Response.Status.BAD_REQUEST);
+        }
+        try
+        {
+            simulator.changeBehaviour(api, behaviour);
+        } catch (IllegalArgumentException e)
+        {
+            throw new RestServiceException(e.getMessage(), Response.Status.BAD_REQUEST, e);
+        }
+        return Response.ok(behaviour).build();
+    }
+
+    private PartnerSimulator enabled()
+    {
+        if (!simulator.isEnabled())
+        {
+            throw RequestRejectedException.SIMULATOR_DISABLED;
+        }
+        return simulator;
+    }
+
+    private static Area area(int id)
+    {
+        Area area = new Area();
+        area.setId(id);
+        area.setState("Simulated " + id);
+        area.setAbbr("SM");
+        return area;
+    }
+}
@@ -0,0 +1,93 @@
+package uk.ac.newcastle.enterprisemiddleware.simulator;
+
+import io.smallrye.mutiny.Uni;
+
+import javax.ws.rs.core.Response;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * <p>One simulated partner API, answering according to its current {@link SimulatorBehaviour}.</p>
+ *
+ * <p>Answers are delayed on a timer rather than a sleeping thread, so a slow simulated partner can have thousands of
+ * requests open at once without tying up the server it runs in.</p>
+ *
+ * @author aryamanpatronia
+ * @see PartnerSimulator
+ */
+class SimulatedPartner
+{
+    // z-score of the 99th percentile of a normal distribution...
+    private static final double Z_99 = 2.326;
+
+    private volatile SimulatorBehaviour behaviour;
+
+    private long windowStart;
+    private int windowRequests;
+
+    SimulatedPartner(SimulatorBehaviour behaviour)
+    {
+        this.behaviour = behaviour;
+    }
+
+    SimulatorBehaviour behaviour()
+    {
+        return behaviour;
+    }
+
+    void behaviour(SimulatorBehaviour behaviour)
+    {
+        this.behaviour = behaviour;
+    }
+
+    /**
+     * Answers a request: straight away with a 429 if over the throughput cap, otherwise after a simulated delay with
+     * either a 500 or the response made by {@code answer}.
+     */
+    Uni<Response> handle(Supplier<Response> answer)
+    {
+        SimulatorBehaviour current = behaviour;
+        if (!admit(current.getMaxRequestsPerSecond()))
+        {
+            return Uni.createFrom().item(Response.status(Response.Status.TOO_MANY_REQUESTS).build());
+        }
+
+        boolean fail = ThreadLocalRandom.current().nextDouble() < current.getErrorRate();
+        Uni<Response> response = Uni.createFrom().item(() -> fail
+                ? Response.serverError().entity("Simulated failure").build()
+                : answer.get());
+        Duration latency = latency(current);
+        return latency.isZero() ? response : response.onItem().delayIt().by(latency);
+    }
+
+    private static Duration latency(SimulatorBehaviour behaviour)
+    {
+        long median = behaviour.getMedianLatencyMillis();
+        if (median == 0)
+        {
+            return Duration.ZERO;
+        }
+        double sigma = Math.log((double) behaviour.getP99LatencyMillis() / median) / Z_99;
+        double millis = median * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian());
+        return Duration.ofNanos((long) (millis * 1_000_000));
+    }
+
+    /**
+     * Counts the request against the current one second window...
+     */
+    private synchronized boolean admit(int maxRequestsPerSecond)
+    {
+        if (maxRequestsPerSecond == 0)
+        {
+            return true;
+        }
+        long now = System.nanoTime();
+        if (now - windowStart >= 1_000_000_000L)
+        {
+            windowStart = now;
+            windowRequests = 0;
+        }
+        return ++windowRequests <= maxRequestsPerSecond;
+    }
+}
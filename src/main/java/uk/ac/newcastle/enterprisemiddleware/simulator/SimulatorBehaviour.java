@@ -0,0 +1,96 @@
+package uk.ac.newcastle.enterprisemiddleware.simulator;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+/**
+ * <p>How a simulated partner API behaves: how long it takes to answer, how often it fails and how many requests a
+ * second it will take.</p>
+ *
+ * <p>Latency follows a log-normal distribution fixed by its median and p99, which gives the long tail real services
+ * have. A p99 equal to the median makes it constant. Requests beyond {@code maxRequestsPerSecond} are turned away
+ * with a 429, 0 means no limit; {@code errorRate} of the rest fail with a 500 after the usual delay.</p>
+ *
+ * @author aryamanpatronia
+ * @see SimulatedPartner
+ */
+@RegisterForReflection
+public class SimulatorBehaviour
+{
+    private long medianLatencyMillis;
+    private long p99LatencyMillis;
+    private double errorRate;
+    private int maxRequestsPerSecond;
+
+    public SimulatorBehaviour()
+    {
+
+    }
+
+    public SimulatorBehaviour(long medianLatencyMillis, long p99LatencyMillis, double errorRate, int maxRequestsPerSecond)
+    {
+        this.medianLatencyMillis = medianLatencyMillis;
+        this.p99LatencyMillis = p99LatencyMillis;
+        this.errorRate = errorRate;
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+    }
+
+    /**
+     * @return Why the behaviour can't be simulated, or null if it can
+     */
+    String problem()
+    {
+        if (medianLatencyMillis < 0 || p99LatencyMillis < medianLatencyMillis)
+        {
+            return "medianLatencyMillis must be 0 or more and p99LatencyMillis at least the median";
+        }
+        if (errorRate < 0 || errorRate > 1)
+        {
+            return "errorRate must be between 0 and 1";
+        }
+        if (maxRequestsPerSecond < 0)
+        {
+            return "maxRequestsPerSecond must be 0 (no limit) or more";
+        }
+        return null;
+    }
+
+    public long getMedianLatencyMillis()
+    {
+        return medianLatencyMillis;
+    }
+
+    public void setMedianLatencyMillis(long medianLatencyMillis)
+    {
+        this.medianLatencyMillis = medianLatencyMillis;
+    }
+
+    public long getP99LatencyMillis()
+    {
+        return p99LatencyMillis;
+    }
+
+    public void setP99LatencyMillis(long p99LatencyMillis)
+    {
+        this.p99LatencyMillis = p99LatencyMillis;
+    }
+
+    public double getErrorRate()
+    {
+        return errorRate;
+    }
+
+    public void setErrorRate(double errorRate)
+    {
+        this.errorRate = errorRate;
+    }
+
+    public int getMaxRequestsPerSecond()
+    {
+        return maxRequestsPerSecond;
+    }
+
+    public void setMaxRequestsPerSecond(int maxRequestsPerSecond)
+    {
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+    }
+}
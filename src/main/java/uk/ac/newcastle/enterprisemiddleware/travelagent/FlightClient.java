@@ -1,6 +1,8 @@
 package uk.ac.newcastle.enterprisemiddleware.travelagent;
 
+import io.smallrye.mutiny.Uni;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
+import uk.ac.newcastle.enterprisemiddleware.util.Measured;
 
 import javax.ws.rs.*;
 import javax.ws.rs.core.Response;
@@ -9,6 +11,7 @@ import javax.ws.rs.core.Response;
  * @author aryamanpatronia
  */
 
+@Measured(Measured.CLIENT)
 @RegisterRestClient(configKey = "flight-api") //Using the flight service on openshift...
 public interface FlightClient {
 
@@ -16,9 +19,9 @@ public interface FlightClient {
     @Path("/flights/bookings")
     @Consumes("application/json")
     @Produces("application/json")
-    Response createFlightBooking(FlightBookingRequest request);
+    Uni<Response> createFlightBooking(FlightBookingRequest request); // Uni so the taxi and flight calls can run side by side...
 
     @DELETE
     @Path("/flights/bookings/{id}")
-    Response cancelFlightBooking(@PathParam("id") Long id);
+    Uni<Response> cancelFlightBooking(@PathParam("id") Long id);
 }
\ No newline at end of file
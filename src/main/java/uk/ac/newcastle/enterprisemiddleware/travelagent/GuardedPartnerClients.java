@@ -0,0 +1,129 @@
+package uk.ac.newcastle.enterprisemiddleware.travelagent;
+
+import io.smallrye.common.annotation.NonBlocking;
+import io.smallrye.faulttolerance.api.CircuitBreakerName;
+import io.smallrye.mutiny.Uni;
+import org.eclipse.microprofile.faulttolerance.Bulkhead;
+import org.eclipse.microprofile.faulttolerance.CircuitBreaker;
+import org.eclipse.microprofile.faulttolerance.Timeout;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+/**
+ * <p>The {@link TaxiClient} and {@link FlightClient} calls, each behind its own timeout, bulkhead and circuit breaker.</p>
+ *
+ * <p>The values on the annotations are defaults; each one can be overridden per method in application.properties
+ * using the MicroProfile Fault Tolerance keys, e.g.
+ * {@code uk.ac.newcastle.enterprisemiddleware.travelagent.GuardedPartnerClients/createTaxiBooking/Timeout/value}.
+ * The methods are {@link NonBlocking}, so the guards work on the returned Uni rather than on a blocked thread: a
+ * timed out call fails its Uni, a full bulkhead or an open breaker fail it straight away.</p>
+ *
+ * <p>Inside those guards the {@link PartnerLatencyTracker} times every call. The cancellations also get its tighter,
+ * adaptive timeout and are hedged; the creates aren't idempotent, so they only have the {@code @Timeout} here, which
+ * is the hard upper bound for the cancellations too. Each request
+ * (a hedge included) then takes a connection from {@link PartnerConnections}, so time spent waiting for one counts
+ * towards the timeouts.</p>
+ *
+ * <p>A partner answering with a 4xx is working, it just said no, so those answers (other than 408 and 429) come back
+ * as the {@link Response} item rather than a failure and don't count against the breaker. {@link PartnerGateway}
+ * turns them back into a {@link WebApplicationException} outside the guards.</p>
+ *
+ * <p>Use {@link PartnerGateway} rather than this class, it also keeps the rejection metrics.</p>
+ *
+ * @author aryamanpatronia
+ * @see PartnerGateway
+ */
+@ApplicationScoped
+public class GuardedPartnerClients
+{
+    public static final String TAXI_CREATE = "taxi-create";
+    public static final String TAXI_CANCEL = "taxi-cancel";
+    public static final String FLIGHT_CREATE = "flight-create";
+    public static final String FLIGHT_CANCEL = "flight-cancel";
+
+    @Inject
+    @RestClient
+    TaxiClient taxiClient;
+
+    @Inject
+    @RestClient
+    FlightClient flightClient;
+
+    @Inject
+    PartnerLatencyTracker latency;
+
+    @Inject
+    PartnerConnections connections;
+
+    /**
+     * True if the partner answered with a 4xx that says something about the request rather than about the partner's
+     * health: a 404 for a booking that is already cancelled, a 400 for a request it won't take. A 408 or 429 is the
+     * partner struggling, so those still count as failures.
+     */
+    static boolean isClientError(Throwable failure)
+    {
+        if (!(failure instanceof WebApplicationException))
+        {
+            return false;
+        }
+        int status = ((WebApplicationException) failure).getResponse().getStatus();
+        return status >= 400 && status < 500 && status != 408 && status != 429;
+    }
+
+    /**
+     * Turns a client error back into the partner's response, so the breaker sees it as a call that succeeded...
+     */
+    private static Uni<Response> answered(Uni<Response> call)
+    {
+        return call.onFailure(GuardedPartnerClients::isClientError)
+                .recoverWithItem(failure -> ((WebApplicationException) failure).getResponse());
+    }
+
+    @NonBlocking
+    @Timeout(5000)
+    @Bulkhead(value = 20, waitingTaskQueue = 20)
+    @CircuitBreaker(requestVolumeThreshold = 20, failureRatio = 0.5, delay = 10000, successThreshold = 3)
+    @CircuitBreakerName(TAXI_CREATE)
+    public Uni<Response> createTaxiBooking(TaxiBookingRequest request)
+    {
+        return latency.timed(PartnerEndpoint.TAXI_CREATE,
+                () -> connections.call(TravelAgentPartner.TAXI, () -> answered(taxiClient.createTaxiBooking(request))));
+    }
+
+    @NonBlocking
+    @Timeout(5000)
+    @Bulkhead(value = 20, waitingTaskQueue = 20)
+    @CircuitBreaker(requestVolumeThreshold = 20, failureRatio = 0.5, delay = 10000, successThreshold = 3)
+    @CircuitBreakerName(TAXI_CANCEL)
+    public Uni<Response> cancelTaxiBooking(Long id)
+    {
+        return latency.hedged(PartnerEndpoint.TAXI_CANCEL,
+                () -> connections.call(TravelAgentPartner.TAXI, () -> answered(taxiClient.cancelTaxiBooking(id))));
+    }
+
+    @NonBlocking
+    @Timeout(5000)
+    @Bulkhead(value = 20, waitingTaskQueue = 20)
+    @CircuitBreaker(requestVolumeThreshold = 20, failureRatio = 0.5, delay = 10000, successThreshold = 3)
+    @CircuitBreakerName(FLIGHT_CREATE)
+    public Uni<Response> createFlightBooking(FlightBookingRequest request)
+    {
+        return latency.timed(PartnerEndpoint.FLIGHT_CREATE,
+                () -> connections.call(TravelAgentPartner.FLIGHT, () -> answered(flightClient.createFlightBooking(request))));
+    }
+
+    @NonBlocking
+    @Timeout(5000)
+    @Bulkhead(value = 20, waitingTaskQueue = 20)
+    @CircuitBreaker(requestVolumeThreshold = 20, failureRatio = 0.5, delay = 10000, successThreshold = 3)
+    @CircuitBreakerName(FLIGHT_CANCEL)
+    public Uni<Response> cancelFlightBooking(Long id)
+    {
+        return latency.hedged(PartnerEndpoint.FLIGHT_CANCEL,
+                () -> connections.call(TravelAgentPartner.FLIGHT, () -> answered(flightClient.cancelFlightBooking(id))));
+    }
+}
@@ -0,0 +1,203 @@
+package uk.ac.newcastle.enterprisemiddleware.travelagent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.ws.rs.core.Response;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * <p>Finds partner bookings that were made for us but that no travel agent booking holds any more, and cancels them.</p>
+ *
+ * <p>A remote booking can be leaked when its saga gives up on cancelling it, or when the travel agent booking that
+ * asked for it is removed. Every remote booking is written to the {@link PartnerLedgerEntry ledger} as soon as the
+ * partner makes it, so comparing the ledger against travel_agent_bookings finds them all, whatever the cause.</p>
+ *
+ * <p>Each run takes up to {@code travelagent.reconciler.batch-size} orphans, then cancels them through the
+ * {@link PartnerGateway}. It runs up to {@code concurrency} cancellations at once and starts no more than
+ * {@code rate-limit} per second, so a large backlog does not flood the partners. An orphan that can't be cancelled is
+ * tried again on the next run, up to {@code max-attempts} times.</p>
+ *
+ * <p>The counts are published as {@code travelagent.reconciler.orphans}, tagged with outcome found, released, failed
+ * or abandoned.</p>
+ *
+ * @author aryamanpatronia
+ * @see TravelAgentSagaRepository#findOrphans
+ */
+@ApplicationScoped
+public class OrphanedBookingReconciler
+{
+
+    @Inject
+    @Named("logger")
+    Logger log;
+
+    @Inject
+    PartnerGateway partners;
+
+    @Inject
+    TravelAgentSagaRepository sagas;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "travelagent.reconciler.grace-period", defaultValue = "5m")
+    Duration gracePeriod;
+
+    @ConfigProperty(name = "travelagent.reconciler.batch-size", defaultValue = "100")
+    int batchSize;
+
+    @ConfigProperty(name = "travelagent.reconciler.concurrency", defaultValue = "4")
+    int concurrency;
+
+    @ConfigProperty(name = "travelagent.reconciler.rate-limit", defaultValue = "10")
+    int rateLimit;
+
+    @ConfigProperty(name = "travelagent.reconciler.max-attempts", defaultValue = "10")
+    int maxAttempts;
+
+    private Counter found;
+    private Counter released;
+    private Counter failed;
+    private Counter abandoned;
+
+    @PostConstruct
+    void registerMetrics()
+    {
+        found = orphans("found");
+        released = orphans("released");
+        failed = orphans("failed");
+        abandoned = orphans("abandoned");
+    }
+
+    @Scheduled(every = "{travelagent.reconciler.interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void scheduledReconcile()
+    {
+        reconcile();
+    }
+
+    /**
+     * <p>Runs one reconciliation pass, waiting until it has finished.</p>
+     *
+     * @return What the pass found and fixed
+     */
+    public Report reconcile()
+    {
+        List<PartnerLedgerEntry> orphans = sagas.findOrphans(Instant.now().minus(gracePeriod), batchSize);
+        Report report = new Report(orphans.size());
+        if (orphans.isEmpty())
+        {
+            return report;
+        }
+        found.increment(orphans.size());
+        log.warning("OrphanedBookingReconciler - Found " + orphans.size() + " orphaned partner bookings");
+
+        Duration spacing = Duration.ofNanos(1_000_000_000L / Math.max(1, rateLimit));
+        List<Boolean> outcomes = Multi.createFrom().iterable(orphans)
+                .onItem().call(orphan -> Uni.createFrom().voidItem().onItem().delayIt().by(spacing))
+                .onItem().transformToUni(this::cancel).merge(concurrency)
+                .collect().asList()
+                .await().indefinitely();
+        for (Boolean outcome : outcomes)
+        {
+            if (outcome)
+            {
+                report.released++;
+            } else
+            {
+                report.failed++;
+            }
+        }
+
+        log.info("OrphanedBookingReconciler - Released " + report.released + " of " + report.found
+                + " orphaned partner bookings, " + report.failed + " failed");
+        return report;
+    }
+
+    /**
+     * Cancels one orphan and records the outcome...
+     *
+     * @return A Uni emitting true if the orphan was released
+     */
+    private Uni<Boolean> cancel(PartnerLedgerEntry orphan)
+    {
+        Uni<Response> cancellation = partners.cancelBooking(orphan.getPartner(), orphan.getRemoteBookingId());
+        return cancellation.onItemOrFailure().transformToUni((response, failure) ->
+        {
+            if (failure == null || PartnerGateway.isNotFound(failure))
+            {
+                released.increment();
+                return TravelAgentService.blocking(() ->
+                {
+                    sagas.orphanReleased(orphan.getId());
+                    return true;
+                });
+            }
+
+            boolean abandon = orphan.getCancelAttempts() + 1 >= maxAttempts;
+            if (abandon)
+            {
+                abandoned.increment();
+                log.severe("OrphanedBookingReconciler - Giving up cancelling orphaned " + orphan.getPartner() + " booking "
+                        + orphan.getRemoteBookingId() + ": " + failure.getMessage());
+            } else
+            {
+                failed.increment();
+            }
+            return TravelAgentService.blocking(() ->
+            {
+                sagas.orphanCancelFailed(orphan.getId(), failure.getMessage(), abandon);
+                return false;
+            });
+        });
+    }
+
+    private Counter orphans(String outcome)
+    {
+        return Counter.builder("travelagent.reconciler.orphans")
+                .description("Orphaned partner bookings found and dealt with by the reconciler")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    /**
+     * The outcome of one reconciliation pass.
+     */
+    public static class Report
+    {
+        private final int found;
+        private int released;
+        private int failed;
+
+        Report(int found)
+        {
+            this.found = found;
+        }
+
+        public int getFound()
+        {
+            return found;
+        }
+
+        public int getReleased()
+        {
+            return released;
+        }
+
+        public int getFailed()
+        {
+            return failed;
+        }
+    }
+}
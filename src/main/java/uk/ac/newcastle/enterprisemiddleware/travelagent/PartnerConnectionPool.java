@@ -0,0 +1,103 @@
+package uk.ac.newcastle.enterprisemiddleware.travelagent;
+
+import io.smallrye.mutiny.Uni;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <p>Hands out the connections of one partner's HTTP client, so that calls that would wait for a connection wait
+ * here, in order, where the wait can be seen.</p>
+ *
+ * <p>The size matches the {@code connection-pool-size} of the rest client, so a call that holds a permit always
+ * finds a connection in the client's pool and the client never has to queue it.</p>
+ *
+ * @author aryamanpatronia
+ * @see PartnerConnections
+ */
+class PartnerConnectionPool
+{
+    private final int size;
+    private final Queue<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    private int inUse;
+
+    PartnerConnectionPool(int size)
+    {
+        this.size = size;
+    }
+
+    /**
+     * A Uni that completes once a connection is free for the caller. Whoever gets an item must call
+     * {@link #release()} exactly once; a caller cancelled while still waiting gives its place up.
+     */
+    Uni<Void> acquire()
+    {
+        CompletableFuture<Void> ticket = new CompletableFuture<>();
+        synchronized (this)
+        {
+            if (inUse < size)
+            {
+                inUse++;
+                ticket.complete(null);
+            } else
+            {
+                waiters.add(ticket);
+            }
+        }
+        return Uni.createFrom().<Void>emitter(emitter -> ticket.thenRun(() -> emitter.complete(null)))
+                .onCancellation().invoke(() -> abandon(ticket));
+    }
+
+    void release()
+    {
+        while (true)
+        {
+            CompletableFuture<Void> next;
+            synchronized (this)
+            {
+                next = waiters.poll();
+                if (next == null)
+                {
+                    inUse--;
+                    return;
+                }
+            }
+            // The connection goes straight to the next caller, unless it has already given up...
+            if (next.complete(null))
+            {
+                return;
+            }
+        }
+    }
+
+    private void abandon(CompletableFuture<Void> ticket)
+    {
+        if (ticket.cancel(false))
+        {
+            synchronized (this)
+            {
+                waiters.remove(ticket);
+            }
+        } else
+        {
+            // Given a connection in the meantime, but nobody will use it...
+            release();
+        }
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    synchronized int active()
+    {
+        return inUse;
+    }
+
+    synchronized int pending()
+    {
+        return waiters.size();
+    }
+}
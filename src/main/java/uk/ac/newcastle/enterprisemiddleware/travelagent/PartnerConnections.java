@@ -0,0 +1,97 @@
+package uk.ac.newcastle.enterprisemiddleware.travelagent;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.smallrye.mutiny.Uni;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * <p>The connection pools of the {@link TaxiClient} and {@link FlightClient}.</p>
+ *
+ * <p>Each client keeps up to {@code travelagent.partner.<partner>.connections} keep-alive connections open to its
+ * partner (the same value is given to the client as its {@code connection-pool-size}, and its
+ * {@code connection-ttl} closes connections left idle). Reusing them saves a TCP and TLS handshake on every call.
+ * {@link #call} takes one of those connections for the length of a call; when they are all busy the call waits here
+ * for the next one to be released.</p>
+ *
+ * <p>The sizes have no default here: application.properties sets them, and passes the same values on to the clients,
+ * so the two can't disagree.</p>
+ *
+ * <p>Metrics, all tagged with partner: {@code travelagent.partner.connections} (state active or pending),
+ * {@code travelagent.partner.connections.max} and the {@code travelagent.partner.connections.wait} timer. They count
+ * the permits handed out by {@link PartnerConnectionPool}, not the sockets the client really has open: a call holding
+ * a permit is counted as active while the client is still connecting, and a connection the client has closed after
+ * {@code connection-ttl} still counts towards max. The client's own pool is not instrumented.</p>
+ *
+ * @author aryamanpatronia
+ * @see GuardedPartnerClients
+ */
+@ApplicationScoped
+public class PartnerConnections
+{
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "travelagent.partner.taxi.connections")
+    int taxiConnections;
+
+    @ConfigProperty(name = "travelagent.partner.flight.connections")
+    int flightConnections;
+
+    private final Map<TravelAgentPartner, PartnerConnectionPool> pools = new EnumMap<>(TravelAgentPartner.class);
+    private final Map<TravelAgentPartner, Timer> waits = new EnumMap<>(TravelAgentPartner.class);
+
+    @PostConstruct
+    void createPools()
+    {
+        pools.put(TravelAgentPartner.TAXI, new PartnerConnectionPool(taxiConnections));
+        pools.put(TravelAgentPartner.FLIGHT, new PartnerConnectionPool(flightConnections));
+
+        for (Map.Entry<TravelAgentPartner, PartnerConnectionPool> entry : pools.entrySet())
+        {
+            PartnerConnectionPool pool = entry.getValue();
+            Tags tags = Tags.of("partner", entry.getKey().name().toLowerCase());
+            Gauge.builder("travelagent.partner.connections", pool, PartnerConnectionPool::active)
+                    .description("Calls holding a connection permit for the partner, or waiting for one")
+                    .tags(tags).tag("state", "active").register(registry);
+            Gauge.builder("travelagent.partner.connections", pool, PartnerConnectionPool::pending)
+                    .description("Calls holding a connection permit for the partner, or waiting for one")
+                    .tags(tags).tag("state", "pending").register(registry);
+            Gauge.builder("travelagent.partner.connections.max", pool, PartnerConnectionPool::size)
+                    .description("Connection permits for the partner, the most connections the client keeps open")
+                    .tags(tags).register(registry);
+            waits.put(entry.getKey(), Timer.builder("travelagent.partner.connections.wait")
+                    .description("Time calls spent waiting for a connection permit for the partner")
+                    .publishPercentileHistogram()
+                    .tags(tags).register(registry));
+        }
+    }
+
+    /**
+     * Makes a call to the partner once one of its connections is free, and frees it again when the call finishes,
+     * fails or is cancelled.
+     */
+    public <T> Uni<T> call(TravelAgentPartner partner, Supplier<Uni<T>> call)
+    {
+        PartnerConnectionPool pool = pools.get(partner);
+        Timer wait = waits.get(partner);
+        return Uni.createFrom().deferred(() ->
+        {
+            long start = System.nanoTime();
+            return pool.acquire()
+                    .invoke(() -> wait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                    .chain(() -> Uni.createFrom().deferred(call::get).onTermination().invoke(pool::release));
+        });
+    }
+}
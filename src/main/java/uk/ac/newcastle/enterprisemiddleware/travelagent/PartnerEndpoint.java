@@ -0,0 +1,43 @@
+package uk.ac.newcastle.enterprisemiddleware.travelagent;
+
+/**
+ * <p>The partner operations the travel agent calls, each tracked separately by {@link PartnerLatencyTracker}.</p>
+ *
+ * <p>Only idempotent operations may be hedged: sending a cancellation twice is harmless, sending a create twice
+ * books twice.</p>
+ *
+ * @author aryamanpatronia
+ */
+public enum PartnerEndpoint
+{
+    TAXI_CREATE(TravelAgentPartner.TAXI, "create", false),
+    TAXI_CANCEL(TravelAgentPartner.TAXI, "cancel", true),
+    FLIGHT_CREATE(TravelAgentPartner.FLIGHT, "create", false),
+    FLIGHT_CANCEL(TravelAgentPartner.FLIGHT, "cancel", true);
+
+    private final TravelAgentPartner partner;
+    private final String operation;
+    private final boolean idempotent;
+
+    PartnerEndpoint(TravelAgentPartner partner, String operation, boolean idempotent)
+    {
+        this.partner = partner;
+        this.operation = operation;
+        this.idempotent = idempotent;
+    }
+
+    public TravelAgentPartner partner()
+    {
+        return partner;
+    }
+
+    public String operation()
+    {
+        return operation;
+    }
+
+    public boolean idempotent()
+    {
+        return idempotent;
+    }
+}
@@ -0,0 +1,144 @@
+package uk.ac.newcastle.enterprisemiddleware.travelagent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.faulttolerance.api.CircuitBreakerMaintenance;
+import io.smallrye.mutiny.Uni;
+import org.eclipse.microprofile.faulttolerance.exceptions.BulkheadException;
+import org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException;
+import org.eclipse.microprofile.faulttolerance.exceptions.FaultToleranceException;
+import org.eclipse.microprofile.faulttolerance.exceptions.TimeoutException;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.transaction.Transactional;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import java.util.logging.Logger;
+
+/**
+ * <p>The way the travel agent talks to its partner services. Every call goes through {@link GuardedPartnerClients},
+ * so a slow or failing partner is cut off by its timeout, bulkhead or circuit breaker instead of tying up requests.</p>
+ *
+ * <p>Calls the guards turn away fail with a {@link FaultToleranceException}, see {@link #isRejection(Throwable)}.
+ * They are counted in {@code travelagent.partner.rejections}, tagged with the partner, the operation and the reason,
+ * and the state of each breaker is published as {@code travelagent.partner.circuit.state}
+ * (0 closed, 1 open, 2 half-open).</p>
+ *
+ * <p>A partner that answers with an error status still fails the returned Uni with a {@link WebApplicationException},
+ * even the 4xx answers that {@link GuardedPartnerClients} keeps away from its breakers.</p>
+ *
+ * <p>A partner call can take seconds, so it must never be made inside a transaction, which would hold its database
+ * connection all that time. The gateway refuses to be called from one.</p>
+ *
+ * @author aryamanpatronia
+ * @see GuardedPartnerClients
+ */
+@ApplicationScoped
+@Transactional(Transactional.TxType.NEVER)
+public class PartnerGateway
+{
+
+    @Inject
+    @Named("logger")
+    Logger log;
+
+    @Inject
+    GuardedPartnerClients clients;
+
+    @Inject
+    CircuitBreakerMaintenance breakers;
+
+    @Inject
+    MeterRegistry registry;
+
+    void registerBreakerMetrics(@Observes StartupEvent event)
+    {
+        for (String breaker : new String[]{GuardedPartnerClients.TAXI_CREATE, GuardedPartnerClients.TAXI_CANCEL,
+                GuardedPartnerClients.FLIGHT_CREATE, GuardedPartnerClients.FLIGHT_CANCEL})
+        {
+            Gauge.builder("travelagent.partner.circuit.state", breakers, b -> b.currentState(breaker).ordinal())
+                    .description("State of the partner circuit breaker: 0 closed, 1 open, 2 half-open")
+                    .tag("breaker", breaker)
+                    .register(registry);
+            breakers.onStateChange(breaker, state ->
+                    log.warning("PartnerGateway - Circuit breaker " + breaker + " is now " + state));
+        }
+    }
+
+    public Uni<Response> createTaxiBooking(TaxiBookingRequest request)
+    {
+        return guard(TravelAgentPartner.TAXI, "create", clients.createTaxiBooking(request));
+    }
+
+    public Uni<Response> createFlightBooking(FlightBookingRequest request)
+    {
+        return guard(TravelAgentPartner.FLIGHT, "create", clients.createFlightBooking(request));
+    }
+
+    public Uni<Response> cancelBooking(TravelAgentPartner partner, Long id)
+    {
+        switch (partner)
+        {
+            case TAXI:
+                return guard(partner, "cancel", clients.cancelTaxiBooking(id));
+            case FLIGHT:
+                return guard(partner, "cancel", clients.cancelFlightBooking(id));
+            default:
+                throw new IllegalStateException("Unknown partner " + partner);
+        }
+    }
+
+    /**
+     * True if the call never reached the partner, or was given up on, because of its timeout, bulkhead or breaker.
+     */
+    public static boolean isRejection(Throwable failure)
+    {
+        return failure instanceof FaultToleranceException;
+    }
+
+    /**
+     * A partner that no longer knows a booking has nothing left to cancel...
+     */
+    public static boolean isNotFound(Throwable failure)
+    {
+        return failure instanceof WebApplicationException
+                && ((WebApplicationException) failure).getResponse().getStatus() == 404;
+    }
+
+    private Uni<Response> guard(TravelAgentPartner partner, String operation, Uni<Response> call)
+    {
+        return call.onFailure(PartnerGateway::isRejection).invoke(failure -> rejections(partner, operation, failure).increment())
+                .onItem().transformToUni(response -> response.getStatus() >= 400
+                        ? Uni.createFrom().failure(new WebApplicationException(response))
+                        : Uni.createFrom().item(response));
+    }
+
+    private Counter rejections(TravelAgentPartner partner, String operation, Throwable failure)
+    {
+        String reason;
+        if (failure instanceof CircuitBreakerOpenException)
+        {
+            reason = "circuit_open";
+        } else if (failure instanceof BulkheadException)
+        {
+            reason = "bulkhead_full";
+        } else if (failure instanceof TimeoutException)
+        {
+            reason = "timeout";
+        } else
+        {
+            reason = "other";
+        }
+        return Counter.builder("travelagent.partner.rejections")
+                .description("Partner calls turned away by a timeout, bulkhead or circuit breaker")
+                .tag("partner", partner.name().toLowerCase())
+                .tag("operation", operation)
+                .tag("reason", reason)
+                .register(registry);
+    }
+}
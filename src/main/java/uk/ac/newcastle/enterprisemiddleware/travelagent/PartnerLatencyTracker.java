@@ -0,0 +1,232 @@
+package uk.ac.newcastle.enterprisemiddleware.travelagent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Uni;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.faulttolerance.exceptions.TimeoutException;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * <p>Tracks how long each {@link PartnerEndpoint} takes to answer and uses it to bound and hedge the calls.</p>
+ *
+ * <ul>
+ *     <li>Every call is timed into a {@link RollingLatencyHistogram}, covering the last
+ *     {@code travelagent.partner.latency.slices} x {@code travelagent.partner.latency.slice}.</li>
+ *     <li>{@link #timed} only times the call. The creates use it: they aren't idempotent, so giving up on one early
+ *     would leave a booking at the partner that nobody knows about, and would count against the breaker a call
+ *     that may well have worked. They are bounded by the fixed {@code @Timeout} on {@link GuardedPartnerClients}.</li>
+ *     <li>{@link #call} also gives up on a call after the adaptive timeout: the observed p99 times
+ *     {@code travelagent.partner.timeout.p99-multiplier}, kept between the configured min and max. Until an
+ *     endpoint has {@code min-samples} in its window the max is used. Like hedging, it is only allowed for
+ *     idempotent endpoints.</li>
+ *     <li>{@link #hedged} also sends a second, duplicate request if the first hasn't answered by the observed p95,
+ *     and takes whichever answers first. It is only allowed for idempotent endpoints.</li>
+ * </ul>
+ *
+ * <p>A call that is given up on fails with the Fault Tolerance {@link TimeoutException}, so it is counted and
+ * reported in the same way as the hard timeout on {@link GuardedPartnerClients}. Timed out calls are recorded at the
+ * timeout, and hedged calls that lose are recorded at the point they were cancelled, which lets the adaptive timeout
+ * grow again when a partner slows down.</p>
+ *
+ * <p>Metrics, all tagged with partner and operation: {@code travelagent.partner.latency} (quantile 0.5, 0.95 and
+ * 0.99), and for the idempotent endpoints {@code travelagent.partner.timeout}, {@code travelagent.partner.hedges} and
+ * {@code travelagent.partner.hedge.wins}.</p>
+ *
+ * @author aryamanpatronia
+ */
+@ApplicationScoped
+public class PartnerLatencyTracker
+{
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "travelagent.partner.latency.slices", defaultValue = "6")
+    int slices;
+
+    @ConfigProperty(name = "travelagent.partner.timeout.adaptive", defaultValue = "true")
+    boolean adaptive;
+
+    @ConfigProperty(name = "travelagent.partner.timeout.p99-multiplier", defaultValue = "2.0")
+    double p99Multiplier;
+
+    @ConfigProperty(name = "travelagent.partner.timeout.min", defaultValue = "PT0.25S")
+    Duration minTimeout;
+
+    @ConfigProperty(name = "travelagent.partner.timeout.max", defaultValue = "5s")
+    Duration maxTimeout;
+
+    @ConfigProperty(name = "travelagent.partner.timeout.min-samples", defaultValue = "50")
+    long minSamples;
+
+    @ConfigProperty(name = "travelagent.partner.hedge.enabled", defaultValue = "true")
+    boolean hedging;
+
+    @ConfigProperty(name = "travelagent.partner.hedge.min-delay", defaultValue = "PT0.05S")
+    Duration minHedgeDelay;
+
+    private final Map<PartnerEndpoint, RollingLatencyHistogram> histograms = new EnumMap<>(PartnerEndpoint.class);
+    private final Map<PartnerEndpoint, Counter> hedges = new EnumMap<>(PartnerEndpoint.class);
+    private final Map<PartnerEndpoint, Counter> hedgeWins = new EnumMap<>(PartnerEndpoint.class);
+
+    void registerMetrics(@Observes StartupEvent event)
+    {
+        for (PartnerEndpoint endpoint : PartnerEndpoint.values())
+        {
+            RollingLatencyHistogram latency = new RollingLatencyHistogram(slices);
+            histograms.put(endpoint, latency);
+
+            Tags tags = Tags.of("partner", endpoint.partner().name().toLowerCase(), "operation", endpoint.operation());
+            Gauge.builder("travelagent.partner.latency", latency, l -> l.p50Micros() / 1e6)
+                    .tags(tags).tag("quantile", "0.5").baseUnit("seconds").register(registry);
+            Gauge.builder("travelagent.partner.latency", latency, l -> l.p95Micros() / 1e6)
+                    .tags(tags).tag("quantile", "0.95").baseUnit("seconds").register(registry);
+            Gauge.builder("travelagent.partner.latency", latency, l -> l.p99Micros() / 1e6)
+                    .tags(tags).tag("quantile", "0.99").baseUnit("seconds").register(registry);
+            if (endpoint.idempotent())
+            {
+                Gauge.builder("travelagent.partner.timeout", this, t -> t.timeout(endpoint).toMillis() / 1e3)
+                        .description("Timeout currently applied to calls to the partner")
+                        .tags(tags).baseUnit("seconds").register(registry);
+                hedges.put(endpoint, Counter.builder("travelagent.partner.hedges")
+                        .description("Duplicate requests sent because the first one was slow")
+                        .tags(tags).register(registry));
+                hedgeWins.put(endpoint, Counter.builder("travelagent.partner.hedge.wins")
+                        .description("Duplicate requests that answered before the original")
+                        .tags(tags).register(registry));
+            }
+        }
+    }
+
+    @Scheduled(every = "{travelagent.partner.latency.slice}")
+    void rotate()
+    {
+        for (RollingLatencyHistogram latency : histograms.values())
+        {
+            latency.rotate();
+        }
+    }
+
+    /**
+     * The timeout to give the next call to the endpoint.
+     */
+    public Duration timeout(PartnerEndpoint endpoint)
+    {
+        RollingLatencyHistogram latency = histograms.get(endpoint);
+        if (!adaptive || latency == null || latency.count() < minSamples)
+        {
+            return maxTimeout;
+        }
+        Duration timeout = Duration.ofNanos((long) (latency.p99Micros() * 1000 * p99Multiplier));
+        if (timeout.compareTo(minTimeout) < 0)
+        {
+            return minTimeout;
+        }
+        return timeout.compareTo(maxTimeout) > 0 ? maxTimeout : timeout;
+    }
+
+    /**
+     * Makes a call to the endpoint and times it, without a timeout of its own...
+     */
+    public <T> Uni<T> timed(PartnerEndpoint endpoint, Supplier<Uni<T>> call)
+    {
+        return Uni.createFrom().deferred(() ->
+        {
+            long start = System.nanoTime();
+            return call.get()
+                    .onItemOrFailure().invoke(() -> record(endpoint, System.nanoTime() - start))
+                    .onCancellation().invoke(() -> record(endpoint, System.nanoTime() - start));
+        });
+    }
+
+    /**
+     * Makes a call to the endpoint, timing it and giving up on it after the endpoint's current {@link #timeout}.
+     *
+     * @throws IllegalArgumentException if the endpoint is not idempotent
+     */
+    public <T> Uni<T> call(PartnerEndpoint endpoint, Supplier<Uni<T>> call)
+    {
+        if (!endpoint.idempotent())
+        {
+            throw new IllegalArgumentException(endpoint + " is not idempotent and can't be given up on early");
+        }
+
+        return Uni.createFrom().deferred(() ->
+        {
+            Duration timeout = timeout(endpoint);
+            return timed(endpoint, () -> call.get()
+                    .ifNoItem().after(timeout).failWith(() -> new TimeoutException("No answer from "
+                            + endpoint.partner().displayName() + " " + endpoint.operation() + " within " + timeout.toMillis() + "ms")));
+        });
+    }
+
+    /**
+     * <p>Like {@link #call}, but if the first request hasn't answered by the endpoint's p95 a second one is sent,
+     * and whichever finishes first is used; the other is cancelled. No hedge is sent until the endpoint has enough
+     * samples to know its p95.</p>
+     *
+     * @throws IllegalArgumentException if the endpoint is not idempotent
+     */
+    public <T> Uni<T> hedged(PartnerEndpoint endpoint, Supplier<Uni<T>> call)
+    {
+        if (!endpoint.idempotent())
+        {
+            throw new IllegalArgumentException(endpoint + " is not idempotent and can't be hedged");
+        }
+
+        return Uni.createFrom().deferred(() ->
+        {
+            Duration delay = hedgeDelay(endpoint);
+            if (delay == null)
+            {
+                return call(endpoint, call);
+            }
+
+            Uni<T> hedge = Uni.createFrom().voidItem()
+                    .onItem().delayIt().by(delay)
+                    .invoke(() -> hedges.get(endpoint).increment())
+                    .chain(() -> call(endpoint, call))
+                    .invoke(() -> hedgeWins.get(endpoint).increment());
+            return Uni.join().first(call(endpoint, call), hedge).toTerminate();
+        });
+    }
+
+    /**
+     * How long to wait before hedging, or null if the endpoint shouldn't be hedged right now...
+     */
+    private Duration hedgeDelay(PartnerEndpoint endpoint)
+    {
+        RollingLatencyHistogram latency = histograms.get(endpoint);
+        if (!hedging || latency == null || latency.count() < minSamples)
+        {
+            return null;
+        }
+        Duration delay = Duration.ofNanos(latency.p95Micros() * 1000);
+        if (delay.compareTo(minHedgeDelay) < 0)
+        {
+            delay = minHedgeDelay;
+        }
+        return delay.compareTo(timeout(endpoint)) < 0 ? delay : null;
+    }
+
+    private void record(PartnerEndpoint endpoint, long nanos)
+    {
+        RollingLatencyHistogram latency = histograms.get(endpoint);
+        if (latency != null)
+        {
+            latency.record(nanos);
+        }
+    }
+}
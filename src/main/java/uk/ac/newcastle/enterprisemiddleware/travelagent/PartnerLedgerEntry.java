@@ -0,0 +1,160 @@
+package uk.ac.newcastle.enterprisemiddleware.travelagent;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * <p>One row for every booking a partner service has made for us, written as soon as the partner hands back its id.</p>
+ *
+ * <p>Unlike {@link TravelAgentSagaStep} the ledger is not tied to the travel_agent_bookings row by a foreign key, so
+ * it still knows about a remote booking after the travel agent booking that asked for it has gone. Comparing the two
+ * is how {@link OrphanedBookingReconciler} finds the remote bookings nobody holds any more.</p>
+ *
+ * @author aryamanpatronia
+ * @see PartnerLedgerState
+ */
+@Entity
+@NamedQueries({
+        @NamedQuery(name = PartnerLedgerEntry.FIND_BY_REMOTE_ID,
+                query = "SELECT l FROM PartnerLedgerEntry l WHERE l.partner = :partner AND l.remoteBookingId = :remoteBookingId"),
+        @NamedQuery(name = PartnerLedgerEntry.FIND_ORPHANS,
+                query = "SELECT l FROM PartnerLedgerEntry l WHERE l.state = :issued AND l.issuedAt < :cutoff"
+                        + " AND NOT EXISTS (SELECT b.id FROM TravelAgentBooking b WHERE b.id = l.travelAgentBookingId"
+                        + " AND (b.state IN (:inProgress)"
+                        + " OR (l.partner = :taxi AND b.taxiBookingId = l.remoteBookingId)"
+                        + " OR (l.partner = :flight AND b.flightBookingId = l.remoteBookingId)))"
+                        + " ORDER BY l.issuedAt"),
+        @NamedQuery(name = PartnerLedgerEntry.COUNT_BY_STATE,
+                query = "SELECT l.state, COUNT(l) FROM PartnerLedgerEntry l GROUP BY l.state")
+})
+@Table(name = "partner_booking_ledger", uniqueConstraints = @UniqueConstraint(columnNames = {"partner", "remote_booking_id"}))
+public class PartnerLedgerEntry implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    public static final String FIND_BY_REMOTE_ID = "PartnerLedgerEntry.findByRemoteId";
+    public static final String FIND_ORPHANS = "PartnerLedgerEntry.findOrphans";
+    public static final String COUNT_BY_STATE = "PartnerLedgerEntry.countByState";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "partner", nullable = false)
+    private TravelAgentPartner partner;
+
+    @Column(name = "remote_booking_id", nullable = false)
+    private Long remoteBookingId;
+
+    @Column(name = "travel_agent_booking_id")
+    private Long travelAgentBookingId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "state", nullable = false)
+    private PartnerLedgerState state;
+
+    @Column(name = "issued_at", nullable = false)
+    private Instant issuedAt;
+
+    @Column(name = "released_at")
+    private Instant releasedAt;
+
+    @Column(name = "cancel_attempts", nullable = false)
+    private int cancelAttempts;
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    public Long getId()
+    {
+        return id;
+    }
+
+    public void setId(Long id)
+    {
+        this.id = id;
+    }
+
+    public TravelAgentPartner getPartner()
+    {
+        return partner;
+    }
+
+    public void setPartner(TravelAgentPartner partner)
+    {
+        this.partner = partner;
+    }
+
+    public Long getRemoteBookingId()
+    {
+        return remoteBookingId;
+    }
+
+    public void setRemoteBookingId(Long remoteBookingId)
+    {
+        this.remoteBookingId = remoteBookingId;
+    }
+
+    public Long getTravelAgentBookingId()
+    {
+        return travelAgentBookingId;
+    }
+
+    public void setTravelAgentBookingId(Long travelAgentBookingId)
+    {
+        this.travelAgentBookingId = travelAgentBookingId;
+    }
+
+    public PartnerLedgerState getState()
+    {
+        return state;
+    }
+
+    public void setState(PartnerLedgerState state)
+    {
+        this.state = state;
+    }
+
+    public Instant getIssuedAt()
+    {
+        return issuedAt;
+    }
+
+    public void setIssuedAt(Instant issuedAt)
+    {
+        this.issuedAt = issuedAt;
+    }
+
+    public Instant getReleasedAt()
+    {
+        return releasedAt;
+    }
+
+    public void setReleasedAt(Instant releasedAt)
+    {
+        this.releasedAt = releasedAt;
+    }
+
+    public int getCancelAttempts()
+    {
+        return cancelAttempts;
+    }
+
+    public void setCancelAttempts(int cancelAttempts)
+    {
+        this.cancelAttempts = cancelAttempts;
+    }
+
+    public String getLastError()
+    {
+        return lastError;
+    }
+
+    public void setLastError(String lastError)
+    {
+        // Keep within the default column length...
+        this.lastError = lastError != null && lastError.length() > 255 ? lastError.substring(0, 255) : lastError;
+    }
+}
@@ -0,0 +1,22 @@
+package uk.ac.newcastle.enterprisemiddleware.travelagent;
+
+/**
+ * <p>Whether a remote booking recorded in the {@link PartnerLedgerEntry ledger} is still held at the partner.</p>
+ *
+ * <pre>
+ * ISSUED -> RELEASED
+ *        -> ABANDONED
+ * </pre>
+ *
+ * @author aryamanpatronia
+ * @see OrphanedBookingReconciler
+ */
+public enum PartnerLedgerState
+{
+    /** The partner made the booking and, as far as we know, still holds it. */
+    ISSUED,
+    /** The booking has been cancelled at the partner, or the partner no longer knows it. */
+    RELEASED,
+    /** The booking was orphaned and could not be cancelled within the retry limit. */
+    ABANDONED
+}
@@ -0,0 +1,77 @@
+package uk.ac.newcastle.enterprisemiddleware.travelagent;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Latencies of one partner operation over a sliding window.</p>
+ *
+ * <p>Callers record into an HdrHistogram {@link Recorder}, which never blocks them. {@link #rotate()} closes the
+ * current slice and drops the oldest, so the window is {@code slices} rotations long; the percentiles are worked out
+ * at rotation time and read from then on without locking.</p>
+ *
+ * @author aryamanpatronia
+ */
+class RollingLatencyHistogram
+{
+    private final Recorder recorder = new Recorder(2);
+    private final Histogram[] slices;
+    private final Histogram window = new Histogram(2);
+    private int next;
+
+    private volatile long count;
+    private volatile long p50Micros;
+    private volatile long p95Micros;
+    private volatile long p99Micros;
+
+    RollingLatencyHistogram(int slices)
+    {
+        this.slices = new Histogram[slices];
+    }
+
+    void record(long nanos)
+    {
+        recorder.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos)));
+    }
+
+    synchronized void rotate()
+    {
+        slices[next] = recorder.getIntervalHistogram(slices[next]);
+        next = (next + 1) % slices.length;
+
+        window.reset();
+        for (Histogram slice : slices)
+        {
+            if (slice != null)
+            {
+                window.add(slice);
+            }
+        }
+        p50Micros = window.getValueAtPercentile(50);
+        p95Micros = window.getValueAtPercentile(95);
+        p99Micros = window.getValueAtPercentile(99);
+        count = window.getTotalCount();
+    }
+
+    long count()
+    {
+        return count;
+    }
+
+    long p50Micros()
+    {
+        return p50Micros;
+    }
+
+    long p95Micros()
+    {
+        return p95Micros;
+    }
+
+    long p99Micros()
+    {
+        return p99Micros;
+    }
+}
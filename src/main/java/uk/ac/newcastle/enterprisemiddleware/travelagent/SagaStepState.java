@@ -0,0 +1,30 @@
+package uk.ac.newcastle.enterprisemiddleware.travelagent;
+
+/**
+ * <p>The states a single partner call of a travel agent saga moves through.</p>
+ *
+ * <pre>
+ * PENDING -> BOOKED -> COMPENSATING -> COMPENSATED
+ *         -> FAILED                 -> COMPENSATION_FAILED
+ * </pre>
+ *
+ * <p>A BOOKED step may also go straight to COMPENSATED when its first cancellation succeeds.</p>
+ *
+ * @author aryamanpatronia
+ * @see TravelAgentSagaStep
+ */
+public enum SagaStepState
+{
+    /** The partner has been (or is about to be) called and has not answered yet. */
+    PENDING,
+    /** The partner made a booking, its id is recorded on the step. */
+    BOOKED,
+    /** The partner did not make a booking, so there is nothing to cancel. */
+    FAILED,
+    /** The partner booking needs cancelling and is waiting in the retry queue. */
+    COMPENSATING,
+    /** The partner booking has been cancelled. */
+    COMPENSATED,
+    /** The partner booking could not be cancelled within the retry limit. */
+    COMPENSATION_FAILED
+}
@@ -1,6 +1,8 @@
 package uk.ac.newcastle.enterprisemiddleware.travelagent;
 
+import io.smallrye.mutiny.Uni;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
+import uk.ac.newcastle.enterprisemiddleware.util.Measured;
 
 import javax.ws.rs.*;
 import javax.ws.rs.core.Response;
@@ -9,6 +11,7 @@ import javax.ws.rs.core.Response;
  * @author aryamanpatronia
  */
 
+@Measured(Measured.CLIENT)
 @RegisterRestClient(configKey = "taxi-api") //Using the taxi service on Openshift...
 public interface TaxiClient {
 
@@ -16,9 +19,9 @@ public interface TaxiClient {
     @Path("/taxis/bookings")
     @Consumes("application/json")
     @Produces("application/json")
-    Response createTaxiBooking(TaxiBookingRequest request);
+    Uni<Response> createTaxiBooking(TaxiBookingRequest request); // Uni so the taxi and flight calls can run side by side...
 
     @DELETE
     @Path("/taxis/bookings/{id}")
-    Response cancelTaxiBooking(@PathParam("id") Long id);
+    Uni<Response> cancelTaxiBooking(@PathParam("id") Long id);
 }
\ No newline at end of file
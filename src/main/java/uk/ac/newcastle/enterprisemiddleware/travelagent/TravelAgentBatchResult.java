@@ -0,0 +1,63 @@
+package uk.ac.newcastle.enterprisemiddleware.travelagent;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+/**
+ * <p>The outcome of one request in a batch of travel agent bookings.</p>
+ *
+ * <p>{@code status} is the HTTP status the same request would have got on its own: 201 with the booking when it was
+ * made, otherwise a 4xx or 5xx with the reason. Partner bookings made for a request that failed have been (or
+ * are being) cancelled.</p>
+ *
+ * @author aryamanpatronia
+ * @see TravelAgentService#createBookings
+ */
+@RegisterForReflection
+public class TravelAgentBatchResult
+{
+    private final int index;
+    private final int status;
+    private final TravelAgentBooking booking;
+    private final String error;
+
+    private TravelAgentBatchResult(int index, int status, TravelAgentBooking booking, String error)
+    {
+        this.index = index;
+        this.status = status;
+        this.booking = booking;
+        this.error = error;
+    }
+
+    static TravelAgentBatchResult created(int index, TravelAgentBooking booking)
+    {
+        return new TravelAgentBatchResult(index, 201, booking, null);
+    }
+
+    static TravelAgentBatchResult failed(int index, int status, String error)
+    {
+        return new TravelAgentBatchResult(index, status, null, error);
+    }
+
+    /**
+     * @return The position of the request in the batch, starting at 0
+     */
+    public int getIndex()
+    {
+        return index;
+    }
+
+    public int getStatus()
+    {
+        return status;
+    }
+
+    public TravelAgentBooking getBooking()
+    {
+        return booking;
+    }
+
+    public String getError()
+    {
+        return error;
+    }
+}
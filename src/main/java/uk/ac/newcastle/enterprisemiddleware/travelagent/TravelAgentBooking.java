@@ -4,6 +4,7 @@ import uk.ac.newcastle.enterprisemiddleware.hotel.Hotel;
 
 import javax.persistence.*;
 import java.io.Serializable;
+import java.time.Instant;
 
 /**
  * @author aryamanpatronia
@@ -14,7 +15,9 @@ import java.io.Serializable;
 public class TravelAgentBooking implements Serializable
 {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // allocationSize > 1 lets Hibernate hand out ids from memory, so a batch of bookings can be sent as JDBC batches...
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "travel_agent_booking_seq")
+    @SequenceGenerator(name = "travel_agent_booking_seq", sequenceName = "travel_agent_booking_sequence", allocationSize = 50)
     private Long id;
 
     @Column(name = "customer_id", nullable = false)
@@ -24,12 +27,24 @@ public class TravelAgentBooking implements Serializable
     @JoinColumn(name = "hotel_id", nullable = false)
     private Hotel hotel;
 
-    @Column(name = "taxi_booking_id", nullable = false)
+    // Only known once the partner has answered, see TravelAgentSagaStep for the in-flight state...
+    @Column(name = "taxi_booking_id")
     private Long taxiBookingId;
 
-    @Column(name = "flight_booking_id", nullable = false)
+    @Column(name = "flight_booking_id")
     private Long flightBookingId;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "state", nullable = false)
+    private TravelAgentBookingState state;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    // Set when the client asked to cancel: the booking is removed as soon as its partner bookings are...
+    @Column(name = "cancel_requested", nullable = false)
+    private boolean cancelRequested;
+
     public Long getId()
     {
         return id;
@@ -79,4 +94,35 @@ public class TravelAgentBooking implements Serializable
     {
         this.flightBookingId = flightBookingId;
     }
+
+    public TravelAgentBookingState getState()
+    {
+        return state;
+    }
+
+    public void setState(TravelAgentBookingState state)
+    {
+        this.state = state;
+        this.updatedAt = Instant.now();
+    }
+
+    public Instant getUpdatedAt()
+    {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt)
+    {
+        this.updatedAt = updatedAt;
+    }
+
+    public boolean isCancelRequested()
+    {
+        return cancelRequested;
+    }
+
+    public void setCancelRequested(boolean cancelRequested)
+    {
+        this.cancelRequested = cancelRequested;
+    }
 }
@@ -0,0 +1,27 @@
+package uk.ac.newcastle.enterprisemiddleware.travelagent;
+
+/**
+ * <p>The states a {@link TravelAgentBooking} moves through while its saga runs.</p>
+ *
+ * <pre>
+ * PENDING -> CONFIRMED
+ *         -> COMPENSATING -> COMPENSATED
+ *                         -> COMPENSATION_FAILED
+ * </pre>
+ *
+ * @author aryamanpatronia
+ * @see TravelAgentSagaStep
+ */
+public enum TravelAgentBookingState
+{
+    /** The row exists and the partner bookings are being made. */
+    PENDING,
+    /** Both partner bookings were made and the booking is complete. */
+    CONFIRMED,
+    /** Something failed and the partner bookings that were made are being cancelled. */
+    COMPENSATING,
+    /** Every partner booking that was made has been cancelled. */
+    COMPENSATED,
+    /** At least one partner booking could not be cancelled within the retry limit. */
+    COMPENSATION_FAILED
+}
@@ -0,0 +1,21 @@
+package uk.ac.newcastle.enterprisemiddleware.travelagent;
+
+/**
+ * <p>What happened to a request to cancel a travel agent booking.</p>
+ *
+ * @author aryamanpatronia
+ * @see TravelAgentService#cancelBooking(Long)
+ */
+public enum TravelAgentCancellation
+{
+    /** The partner bookings were cancelled and the booking removed. */
+    CANCELLED,
+    /** A partner cancellation failed; it is being retried in the background and the booking is kept until then. */
+    RETRYING,
+    /** There is no booking with that id. */
+    NOT_FOUND,
+    /** The booking is still being made or unwound, so it can't be cancelled yet. */
+    IN_PROGRESS,
+    /** The cancellation could not be recorded. */
+    FAILED
+}
@@ -0,0 +1,161 @@
+package uk.ac.newcastle.enterprisemiddleware.travelagent;
+
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.ws.rs.core.Response;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * <p>Cancels the partner bookings of travel agent sagas that could not be completed.</p>
+ *
+ * <p>{@link #compensate(Long)} makes the first attempt straight away. Cancellations that fail stay queued in
+ * travel_agent_saga_steps and are retried by {@link #retryDueCompensations()} with exponential backoff, a bounded
+ * number at a time, until they succeed or run out of attempts. The same background run also picks up sagas left
+ * PENDING by a process that died mid-booking.</p>
+ *
+ * @author aryamanpatronia
+ * @see TravelAgentSagaRepository
+ */
+@ApplicationScoped
+public class TravelAgentCompensator
+{
+
+    @Inject
+    @Named("logger")
+    Logger log;
+
+    @Inject
+    PartnerGateway partners;
+
+    @Inject
+    TravelAgentSagaRepository sagas;
+
+    @ConfigProperty(name = "travelagent.saga.retry.initial-backoff", defaultValue = "1s")
+    Duration initialBackoff;
+
+    @ConfigProperty(name = "travelagent.saga.retry.max-backoff", defaultValue = "5m")
+    Duration maxBackoff;
+
+    @ConfigProperty(name = "travelagent.saga.retry.max-attempts", defaultValue = "10")
+    int maxAttempts;
+
+    @ConfigProperty(name = "travelagent.saga.retry.lease", defaultValue = "1m")
+    Duration lease;
+
+    @ConfigProperty(name = "travelagent.saga.worker.batch-size", defaultValue = "20")
+    int batchSize;
+
+    @ConfigProperty(name = "travelagent.saga.worker.concurrency", defaultValue = "4")
+    int concurrency;
+
+    @ConfigProperty(name = "travelagent.saga.pending-timeout", defaultValue = "2m")
+    Duration pendingTimeout;
+
+    /**
+     * <p>Moves the saga into compensation and tries to cancel each partner booking it made, all at once.</p>
+     *
+     * <p>The returned Uni never fails because of a partner: cancellations that don't go through are left for the
+     * background worker.</p>
+     */
+    public Uni<Void> compensate(Long bookingId)
+    {
+        return compensate(bookingId, false);
+    }
+
+    /**
+     * <p>Compensates a booking the client asked to cancel, as {@link #compensate(Long)} does. Once every partner
+     * booking has been cancelled - straight away or by the background worker - the booking is removed.</p>
+     */
+    public Uni<Void> cancel(Long bookingId)
+    {
+        return compensate(bookingId, true);
+    }
+
+    private Uni<Void> compensate(Long bookingId, boolean cancelRequested)
+    {
+        return TravelAgentService.blocking(() -> sagas.startCompensation(bookingId, Instant.now().plus(lease), cancelRequested))
+                .onItem().transformToMulti(steps -> Multi.createFrom().iterable(steps))
+                .onItem().transformToUniAndMerge(this::attempt)
+                .collect().last()
+                .replaceWithVoid();
+    }
+
+    /**
+     * Background worker: recovers abandoned sagas, then retries the cancellations that are due...
+     */
+    @Scheduled(every = "{travelagent.saga.worker.interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void retryDueCompensations()
+    {
+        Instant now = Instant.now();
+        int recovered = sagas.recoverStalePending(now.minus(pendingTimeout), now);
+        if (recovered > 0)
+        {
+            log.warning("TravelAgentCompensator - Recovered " + recovered + " interrupted travel agent bookings");
+        }
+
+        List<TravelAgentSagaStep> due = sagas.claimDueCompensations(now, batchSize, now.plus(lease));
+        if (due.isEmpty())
+        {
+            return;
+        }
+        log.info("TravelAgentCompensator - Retrying " + due.size() + " partner cancellations");
+        Multi.createFrom().iterable(due)
+                .onItem().transformToUni(this::attempt).merge(concurrency)
+                .collect().last()
+                .await().indefinitely();
+    }
+
+    /**
+     * Makes one cancellation attempt for a step and records the outcome...
+     */
+    private Uni<Void> attempt(TravelAgentSagaStep step)
+    {
+        Uni<Response> cancellation = partners.cancelBooking(step.getPartner(), step.getRemoteBookingId());
+        return cancellation.onItemOrFailure().transformToUni((response, failure) ->
+        {
+            if (failure == null || PartnerGateway.isNotFound(failure))
+            {
+                return TravelAgentService.blocking(() ->
+                {
+                    sagas.stepCompensated(step.getId());
+                    return null;
+                });
+            }
+
+            int attempts = step.getAttempts() + 1;
+            Instant nextAttemptAt = attempts >= maxAttempts ? null : Instant.now().plus(backoff(attempts));
+            if (nextAttemptAt == null)
+            {
+                log.severe("TravelAgentCompensator - Giving up cancelling " + step.getPartner() + " booking "
+                        + step.getRemoteBookingId() + " after " + attempts + " attempts: " + failure.getMessage());
+            } else
+            {
+                log.warning("TravelAgentCompensator - Failed to cancel " + step.getPartner() + " booking "
+                        + step.getRemoteBookingId() + ", retrying at " + nextAttemptAt + ": " + failure.getMessage());
+            }
+            return TravelAgentService.blocking(() ->
+            {
+                sagas.compensationAttemptFailed(step.getId(), failure.getMessage(), nextAttemptAt);
+                return null;
+            });
+        }).replaceWithVoid();
+    }
+
+    /**
+     * initialBackoff, doubled for every failed attempt, capped at maxBackoff...
+     */
+    Duration backoff(int attempts)
+    {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 30));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+}
@@ -0,0 +1,24 @@
+package uk.ac.newcastle.enterprisemiddleware.travelagent;
+
+/**
+ * <p>The remote services a travel agent booking is made with, one {@link TravelAgentSagaStep} each.</p>
+ *
+ * @author aryamanpatronia
+ */
+public enum TravelAgentPartner
+{
+    TAXI("Taxi"),
+    FLIGHT("Flight");
+
+    private final String displayName;
+
+    TravelAgentPartner(String displayName)
+    {
+        this.displayName = displayName;
+    }
+
+    public String displayName()
+    {
+        return displayName;
+    }
+}
@@ -1,5 +1,7 @@
 package uk.ac.newcastle.enterprisemiddleware.travelagent;
 
+import uk.ac.newcastle.enterprisemiddleware.util.Measured;
+
 import javax.enterprise.context.ApplicationScoped;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -10,6 +12,7 @@ import java.util.List;
  * @author aryamanpatronia
  */
 
+@Measured
 @ApplicationScoped
 public class TravelAgentRepository
 {
@@ -17,16 +20,28 @@ public class TravelAgentRepository
     @PersistenceContext
     private EntityManager em;
 
-    @Transactional
-    public TravelAgentBooking create(TravelAgentBooking booking)
+    public List<TravelAgentBooking> findAll()
     {
-        em.persist(booking);
-        return booking;
+        return em.createQuery("SELECT b FROM TravelAgentBooking b", TravelAgentBooking.class).getResultList();
     }
 
-    public List<TravelAgentBooking> findAll()
+    /**
+     * One page of bookings, oldest first...
+     *
+     * @param first The position of the first booking to return
+     * @param max The most bookings to return
+     */
+    public List<TravelAgentBooking> findPage(int first, int max)
     {
-        return em.createQuery("SELECT b FROM TravelAgentBooking b", TravelAgentBooking.class).getResultList();
+        return em.createQuery("SELECT b FROM TravelAgentBooking b ORDER BY b.id", TravelAgentBooking.class)
+                .setFirstResult(first)
+                .setMaxResults(max)
+                .getResultList();
+    }
+
+    public long count()
+    {
+        return em.createQuery("SELECT COUNT(b) FROM TravelAgentBooking b", Long.class).getSingleResult();
     }
 
     public TravelAgentBooking findById(Long id)
@@ -40,6 +55,9 @@ public class TravelAgentRepository
         TravelAgentBooking booking = findById(id);
         if (booking != null)
         {
+            em.createQuery("DELETE FROM TravelAgentSagaStep s WHERE s.booking.id = :bookingId")
+                    .setParameter("bookingId", id)
+                    .executeUpdate();
             em.remove(booking);
         }
     }
@@ -1,13 +1,22 @@
 package uk.ac.newcastle.enterprisemiddleware.travelagent;
 
+import io.smallrye.mutiny.Uni;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import uk.ac.newcastle.enterprisemiddleware.util.BlockingExecution;
+import uk.ac.newcastle.enterprisemiddleware.util.RequestRejectedException;
+import uk.ac.newcastle.enterprisemiddleware.util.RestServiceException;
 
 import javax.inject.Inject;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.util.List;
 
 /**
  * @author aryamanpatronia
@@ -19,26 +28,209 @@ import javax.ws.rs.core.Response;
 public class TravelAgentRestService
 {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Inject
     TravelAgentService travelAgentService;
 
+    @Inject
+    TravelAgentRepository travelAgentRepository;
+
+    @Inject
+    BlockingExecution blocking;
+
+    @ConfigProperty(name = "travelagent.batch.max-size", defaultValue = "500")
+    int maxBatchSize;
+
+    /**
+     * Fetches one page of travel agent bookings, oldest first. The total number of bookings is sent in the
+     * X-Total-Count header...
+     */
+    @GET
+    @Operation(summary = "Fetch a page of travel agent bookings...", description = "Returns a JSON array of at most size TravelAgentBooking objects.")
+    @Tag(name = "5. Travel Agent", description = "Make a booking across three commodities...")
+    public Uni<Response> retrieveBookings(
+            @Parameter(description = "Page to fetch, starting at 0")
+            @QueryParam("page") @DefaultValue("0") int page,
+            @Parameter(description = "Bookings per page, at most 100")
+            @QueryParam("size") @DefaultValue("20") int size)
+    {
+        return blocking.run(() ->
+        {
+            if (page < 0 || size < 1 || size > MAX_PAGE_SIZE)
+            {
+                throw new RestServiceException("page must be 0 or more and size between 1 and " + MAX_PAGE_SIZE, Response.Status.BAD_REQUEST);
+            }
+            // In long, so a huge page number is an empty page rather than an overflowed offset
+            long first = (long) page * size;
+            List<TravelAgentBooking> bookings = first > Integer.MAX_VALUE
+                    ? List.of()
+                    : travelAgentRepository.findPage((int) first, size);
+            return Response.ok(bookings).header("X-Total-Count", travelAgentRepository.count()).build();
+        });
+    }
+
+    @GET
+    @Path("/{id:[0-9]+}")
+    @Operation(summary = "Fetch a travel agent booking by id...", description = "Returns a JSON representation of the TravelAgentBooking with the provided id.")
+    @Tag(name = "5. Travel Agent", description = "Make a booking across three commodities...")
+    @APIResponses(value = {
+            @APIResponse(responseCode = "200", description = "Travel agent booking found"),
+            @APIResponse(responseCode = "404", description = "Travel agent booking with id not found")
+    })
+    public Uni<Response> retrieveBookingById(@PathParam("id") long id)
+    {
+        return blocking.run(() ->
+        {
+            TravelAgentBooking booking = travelAgentRepository.findById(id);
+            if (booking == null)
+            {
+                throw new RequestRejectedException("No Travel Agent Booking with the id " + id + " was found!", Response.Status.NOT_FOUND);
+            }
+            return Response.ok(booking).build();
+        });
+    }
+
     @POST
     @Operation(summary = "Create a booking for flight,taxi and hotel...", description = "Creates a travel agent booking...")
     @Tag(name = "5. Travel Agent", description = "Make a booking across three commodities...")
-    public Response createBooking(TravelAgentBookingRequest request)
+    public Uni<Response> createBooking(TravelAgentBookingRequest request)
     {
-        try
+        return blocking.run(() ->
         {
-            var booking = travelAgentService.createBooking(
-                    request.customerId,
-                    request.hotelId,
-                    request.taxiBookingRequest,
-                    request.flightBookingRequest
-            );
-            return Response.status(201).entity(booking).build();
-        } catch (Exception e)
+            try
+            {
+                var booking = travelAgentService.createBooking(
+                        request.customerId,
+                        request.hotelId,
+                        request.taxiBookingRequest,
+                        request.flightBookingRequest
+                );
+                return Response.status(201).entity(booking).build();
+            } catch (Exception e)
+            {
+                return failed(e);
+            }
+        });
+    }
+
+    /**
+     * Non-blocking variant of {@link #createBooking}. The request does not hold a worker thread while the taxi and
+     * flight services answer, so slow partners can't starve the other endpoints of threads...
+     */
+    @POST
+    @Path("/async")
+    @Operation(summary = "Create a booking for flight,taxi and hotel without blocking...", description = "Creates a travel agent booking on the event loop...")
+    @Tag(name = "5. Travel Agent", description = "Make a booking across three commodities...")
+    public Uni<Response> createBookingAsync(TravelAgentBookingRequest request)
+    {
+        return travelAgentService.createBookingAsync(
+                        request.customerId,
+                        request.hotelId,
+                        request.taxiBookingRequest,
+                        request.flightBookingRequest)
+                .onItem().transform(booking -> Response.status(201).entity(booking).build())
+                .onFailure().recoverWithItem(this::failed);
+    }
+
+    /**
+     * Makes a batch of travel agent bookings, e.g. for a tour group. Each request succeeds or fails on its own; the
+     * response lists the outcome of every one, in the order they were sent...
+     */
+    @POST
+    @Path("/batch")
+    @Operation(summary = "Create a batch of bookings for flight,taxi and hotel...", description = "Takes a JSON array of travel agent booking requests, returns the outcome for each one.")
+    @Tag(name = "5. Travel Agent", description = "Make a booking across three commodities...")
+    @APIResponses(value = {
+            @APIResponse(responseCode = "200", description = "Batch processed, see the status of each result"),
+            @APIResponse(responseCode = "400", description = "The batch is empty, too large or contains an invalid request")
+    })
+    public Uni<Response> createBookings(List<TravelAgentBookingRequest> requests)
+    {
+        if (requests == null || requests.isEmpty() || requests.size() > maxBatchSize)
+        {
+            throw new RestServiceException("A batch must hold between 1 and " + maxBatchSize + " requests", Response.Status.BAD_REQUEST);
+        }
+        for (TravelAgentBookingRequest request : requests)
+        {
+            if (request == null || request.hotelId == null)
+            {
+                throw new RestServiceException("Every request in the batch needs a hotelId", Response.Status.BAD_REQUEST);
+            }
+        }
+        return travelAgentService.createBookings(requests).map(results -> Response.ok(results).build());
+    }
+
+    /**
+     * Cancels the taxi and flight bookings of a travel agent booking at the same time, then removes it...
+     */
+    @DELETE
+    @Path("/{id:[0-9]+}")
+    @Operation(summary = "Cancel a travel agent booking...", description = "Cancels the taxi and flight bookings, then removes the travel agent booking.")
+    @Tag(name = "5. Travel Agent", description = "Make a booking across three commodities...")
+    @APIResponses(value = {
+            @APIResponse(responseCode = "204", description = "The booking has been cancelled"),
+            @APIResponse(responseCode = "202", description = "A partner cancellation failed and is being retried, the booking is removed once it succeeds"),
+            @APIResponse(responseCode = "404", description = "Travel agent booking with id not found"),
+            @APIResponse(responseCode = "409", description = "The booking is still being made or unwound")
+    })
+    public Uni<Response> cancelBooking(@PathParam("id") long id)
+    {
+        return travelAgentService.cancelBooking(id).map(outcome ->
+        {
+            switch (outcome)
+            {
+                case CANCELLED:
+                    return Response.noContent().build();
+                case RETRYING:
+                    return Response.accepted().entity(outcome).build();
+                case NOT_FOUND:
+                    throw new RequestRejectedException("No Travel Agent Booking with the id " + id + " was found!", Response.Status.NOT_FOUND);
+                case IN_PROGRESS:
+                    throw new RequestRejectedException("Travel Agent Booking " + id + " is still in progress", Response.Status.CONFLICT);
+                default:
+                    return Response.serverError().entity(outcome).build();
+            }
+        });
+    }
+
+    /**
+     * Cancels many travel agent bookings at once, e.g. for a whole tour group. The cancellations run side by side,
+     * a bounded number at a time, and the outcome of each is returned by booking id...
+     */
+    @POST
+    @Path("/cancel")
+    @Operation(summary = "Cancel many travel agent bookings...", description = "Takes a JSON array of booking ids, returns the outcome for each one.")
+    @Tag(name = "5. Travel Agent", description = "Make a booking across three commodities...")
+    @APIResponses(value = {
+            @APIResponse(responseCode = "200", description = "Cancellations processed, see the outcome for each id"),
+            @APIResponse(responseCode = "400", description = "The list of ids is empty or too large")
+    })
+    public Uni<Response> cancelBookings(List<Long> ids)
+    {
+        if (ids == null || ids.isEmpty() || ids.size() > maxBatchSize)
+        {
+            throw new RestServiceException("A batch must hold between 1 and " + maxBatchSize + " ids", Response.Status.BAD_REQUEST);
+        }
+        return travelAgentService.cancelBookings(ids).map(outcomes -> Response.ok(outcomes).build());
+    }
+
+    /**
+     * A partner that was cut off by its timeout, bulkhead or circuit breaker is reported as 503, so the client knows
+     * to try again later; a RestServiceException with its own status; anything else is a 400 as before...
+     */
+    private Response failed(Throwable e)
+    {
+        if (e instanceof RestServiceException)
+        {
+            return Response.status(((RestServiceException) e).getStatus()).entity(e.getMessage()).build();
+        }
+        if (PartnerGateway.isRejection(e))
         {
-            return Response.status(400).entity(e.getMessage()).build();
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .entity("A partner service is unavailable, please try again later: " + e.getMessage())
+                    .build();
         }
+        return Response.status(400).entity(e.getMessage()).build();
     }
 }
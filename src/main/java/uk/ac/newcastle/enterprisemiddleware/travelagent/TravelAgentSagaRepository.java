@@ -0,0 +1,527 @@
+package uk.ac.newcastle.enterprisemiddleware.travelagent;
+
+import uk.ac.newcastle.enterprisemiddleware.hotel.Hotel;
+import uk.ac.newcastle.enterprisemiddleware.util.Measured;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import javax.transaction.Transactional;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>Records the progress of travel agent sagas: one {@link TravelAgentBooking} row per saga, one
+ * {@link TravelAgentSagaStep} row per partner call, and one {@link PartnerLedgerEntry} per remote booking made.</p>
+ *
+ * <p>Every method runs in its own short transaction, so no database connection is held while a partner is being
+ * called.</p>
+ *
+ * @author aryamanpatronia
+ * @see TravelAgentService
+ * @see TravelAgentCompensator
+ * @see OrphanedBookingReconciler
+ */
+@Measured
+@ApplicationScoped
+public class TravelAgentSagaRepository
+{
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * <p>Starts a saga: writes the booking in the PENDING state along with a PENDING step for each partner.</p>
+     *
+     * @return The new booking, or null if there is no Hotel with the given id
+     */
+    @Transactional
+    public TravelAgentBooking begin(Long customerId, Long hotelId)
+    {
+        Hotel hotel = em.find(Hotel.class, hotelId);
+        if (hotel == null)
+        {
+            return null;
+        }
+
+        TravelAgentBooking booking = new TravelAgentBooking();
+        booking.setCustomerId(customerId);
+        booking.setHotel(hotel);
+        booking.setState(TravelAgentBookingState.PENDING);
+        em.persist(booking);
+
+        for (TravelAgentPartner partner : TravelAgentPartner.values())
+        {
+            TravelAgentSagaStep step = new TravelAgentSagaStep();
+            step.setBooking(booking);
+            step.setPartner(partner);
+            step.setState(SagaStepState.PENDING);
+            em.persist(step);
+        }
+        return booking;
+    }
+
+    /**
+     * <p>Starts a saga for each request of a batch, in one transaction: the hotels are looked up with a single query,
+     * and the bookings and their steps are inserted in JDBC batches.</p>
+     *
+     * @return The new bookings, in the same order as the requests, with null wherever the Hotel does not exist
+     */
+    @Transactional
+    public List<TravelAgentBooking> beginAll(List<TravelAgentBookingRequest> requests)
+    {
+        Set<Long> hotelIds = new HashSet<>();
+        for (TravelAgentBookingRequest request : requests)
+        {
+            hotelIds.add(request.hotelId);
+        }
+        Map<Long, Hotel> hotels = new HashMap<>();
+        for (Hotel hotel : em.createNamedQuery(Hotel.FIND_BY_IDS, Hotel.class).setParameter("ids", hotelIds).getResultList())
+        {
+            hotels.put(hotel.getId(), hotel);
+        }
+
+        List<TravelAgentBooking> bookings = new ArrayList<>(requests.size());
+        for (TravelAgentBookingRequest request : requests)
+        {
+            Hotel hotel = hotels.get(request.hotelId);
+            if (hotel == null)
+            {
+                bookings.add(null);
+                continue;
+            }
+
+            TravelAgentBooking booking = new TravelAgentBooking();
+            booking.setCustomerId(request.customerId);
+            booking.setHotel(hotel);
+            booking.setState(TravelAgentBookingState.PENDING);
+            em.persist(booking);
+            for (TravelAgentPartner partner : TravelAgentPartner.values())
+            {
+                TravelAgentSagaStep step = new TravelAgentSagaStep();
+                step.setBooking(booking);
+                step.setPartner(partner);
+                step.setState(SagaStepState.PENDING);
+                em.persist(step);
+            }
+            bookings.add(booking);
+        }
+        return bookings;
+    }
+
+    /**
+     * @return The state of a booking, or null if there is no booking with the given id
+     */
+    @Transactional
+    public TravelAgentBookingState findState(Long bookingId)
+    {
+        TravelAgentBooking booking = em.find(TravelAgentBooking.class, bookingId);
+        return booking == null ? null : booking.getState();
+    }
+
+    /**
+     * Records the id of the booking a partner made, on the step and in the {@link PartnerLedgerEntry ledger}...
+     *
+     * <p>If the saga is no longer PENDING - {@link #recoverStalePending} took it over while the partner was answering -
+     * the step is left as it is and only the ledger entry is written. No booking holds it, so the
+     * {@link OrphanedBookingReconciler} cancels it.</p>
+     *
+     * @return True if the step was BOOKED, false if the saga had already moved on without it
+     */
+    @Transactional
+    public boolean stepBooked(Long bookingId, TravelAgentPartner partner, Long remoteBookingId)
+    {
+        TravelAgentBooking booking = lock(bookingId);
+
+        PartnerLedgerEntry entry = new PartnerLedgerEntry();
+        entry.setPartner(partner);
+        entry.setRemoteBookingId(remoteBookingId);
+        entry.setTravelAgentBookingId(bookingId);
+        entry.setState(PartnerLedgerState.ISSUED);
+        entry.setIssuedAt(Instant.now());
+        em.persist(entry);
+
+        TravelAgentSagaStep step = findStep(bookingId, partner);
+        if (booking.getState() != TravelAgentBookingState.PENDING || step.getState() != SagaStepState.PENDING)
+        {
+            return false;
+        }
+        step.setState(SagaStepState.BOOKED);
+        step.setRemoteBookingId(remoteBookingId);
+        return true;
+    }
+
+    /**
+     * Records that a partner did not make a booking, unless the step has already been settled by recovery...
+     */
+    @Transactional
+    public void stepFailed(Long bookingId, TravelAgentPartner partner, String error)
+    {
+        lock(bookingId);
+        TravelAgentSagaStep step = findStep(bookingId, partner);
+        if (step.getState() == SagaStepState.PENDING)
+        {
+            step.setState(SagaStepState.FAILED);
+            step.setLastError(error);
+        }
+    }
+
+    /**
+     * Completes a saga whose partner bookings were all made...
+     *
+     * @return The confirmed booking, or null if it is no longer PENDING, as recovery has started compensating it
+     */
+    @Transactional
+    public TravelAgentBooking confirm(Long bookingId, Long taxiBookingId, Long flightBookingId)
+    {
+        TravelAgentBooking booking = lock(bookingId);
+        if (booking.getState() != TravelAgentBookingState.PENDING)
+        {
+            return null;
+        }
+        booking.setTaxiBookingId(taxiBookingId);
+        booking.setFlightBookingId(flightBookingId);
+        booking.setState(TravelAgentBookingState.CONFIRMED);
+        return booking;
+    }
+
+    /**
+     * <p>Completes many sagas in one transaction; the updates are sent in JDBC batches. Only sagas that are still
+     * PENDING are confirmed, as in {@link #confirm}.</p>
+     *
+     * @param partnerIds The taxi and flight booking ids to confirm, by travel agent booking id
+     * @return The confirmed bookings; any id missing from them was no longer PENDING
+     */
+    @Transactional
+    public List<TravelAgentBooking> confirmAll(Map<Long, Long[]> partnerIds)
+    {
+        if (partnerIds.isEmpty())
+        {
+            return new ArrayList<>();
+        }
+        List<TravelAgentBooking> bookings = em.createQuery(
+                        "SELECT b FROM TravelAgentBooking b WHERE b.id IN :ids AND b.state = :state", TravelAgentBooking.class)
+                .setParameter("ids", partnerIds.keySet())
+                .setParameter("state", TravelAgentBookingState.PENDING)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+        for (TravelAgentBooking booking : bookings)
+        {
+            Long[] ids = partnerIds.get(booking.getId());
+            booking.setTaxiBookingId(ids[0]);
+            booking.setFlightBookingId(ids[1]);
+            booking.setState(TravelAgentBookingState.CONFIRMED);
+        }
+        return bookings;
+    }
+
+    /**
+     * <p>Marks sagas that are still PENDING as alive at {@code now}, so {@link #recoverStalePending} doesn't take
+     * them for abandoned while a long batch is still working through them.</p>
+     *
+     * @return The number of sagas touched
+     */
+    @Transactional
+    public int touchPending(Collection<Long> bookingIds, Instant now)
+    {
+        if (bookingIds.isEmpty())
+        {
+            return 0;
+        }
+        return em.createQuery("UPDATE TravelAgentBooking b SET b.updatedAt = :now WHERE b.id IN :ids AND b.state = :state")
+                .setParameter("now", now)
+                .setParameter("ids", bookingIds)
+                .setParameter("state", TravelAgentBookingState.PENDING)
+                .executeUpdate();
+    }
+
+    /**
+     * <p>Moves a saga into compensation: every BOOKED step is queued for cancellation.</p>
+     *
+     * <p>The queued steps are leased until {@code leaseUntil} so the background worker leaves them alone while the
+     * caller makes the first cancellation attempt itself.</p>
+     *
+     * @param cancelRequested True if the client asked to cancel the booking, so it is removed once it settles
+     * @return The steps that now need cancelling
+     */
+    @Transactional
+    public List<TravelAgentSagaStep> startCompensation(Long bookingId, Instant leaseUntil, boolean cancelRequested)
+    {
+        TravelAgentBooking booking = lock(bookingId);
+        if (cancelRequested)
+        {
+            booking.setCancelRequested(true);
+        }
+        List<TravelAgentSagaStep> toCancel = new ArrayList<>();
+        for (TravelAgentSagaStep step : findSteps(bookingId))
+        {
+            if (step.getState() == SagaStepState.BOOKED)
+            {
+                step.setState(SagaStepState.COMPENSATING);
+                step.setNextAttemptAt(leaseUntil);
+                toCancel.add(step);
+            }
+        }
+        booking.setState(TravelAgentBookingState.COMPENSATING);
+        settle(booking);
+        return toCancel;
+    }
+
+    /**
+     * Records that a partner booking has been cancelled, completing the saga if it was the last one...
+     */
+    @Transactional
+    public void stepCompensated(Long stepId)
+    {
+        TravelAgentSagaStep step = em.find(TravelAgentSagaStep.class, stepId);
+        TravelAgentBooking booking = lock(step.getBooking().getId());
+        step.setState(SagaStepState.COMPENSATED);
+        step.setNextAttemptAt(null);
+        release(step.getPartner(), step.getRemoteBookingId());
+        settle(booking);
+    }
+
+    /**
+     * <p>Records a failed cancellation attempt.</p>
+     *
+     * @param nextAttemptAt When to try again, or null to give up on this step
+     */
+    @Transactional
+    public void compensationAttemptFailed(Long stepId, String error, Instant nextAttemptAt)
+    {
+        TravelAgentSagaStep step = em.find(TravelAgentSagaStep.class, stepId);
+        step.setAttempts(step.getAttempts() + 1);
+        step.setLastError(error);
+        step.setNextAttemptAt(nextAttemptAt);
+        if (nextAttemptAt == null)
+        {
+            TravelAgentBooking booking = lock(step.getBooking().getId());
+            step.setState(SagaStepState.COMPENSATION_FAILED);
+            settle(booking);
+        }
+    }
+
+    /**
+     * <p>Takes up to {@code limit} queued cancellations that are due, leasing them until {@code leaseUntil} so another
+     * worker does not pick them up at the same time.</p>
+     */
+    @Transactional
+    public List<TravelAgentSagaStep> claimDueCompensations(Instant now, int limit, Instant leaseUntil)
+    {
+        List<TravelAgentSagaStep> due = em.createNamedQuery(TravelAgentSagaStep.FIND_DUE, TravelAgentSagaStep.class)
+                .setParameter("state", SagaStepState.COMPENSATING)
+                .setParameter("now", now)
+                .setMaxResults(limit)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+        for (TravelAgentSagaStep step : due)
+        {
+            step.setNextAttemptAt(leaseUntil);
+        }
+        return due;
+    }
+
+    /**
+     * <p>Finds sagas that have been PENDING since before {@code cutoff} - left behind by a process that died mid-saga -
+     * and moves them into compensation. Steps that were still waiting on their partner can't be cancelled without
+     * an id, so they are marked FAILED with a note saying so.</p>
+     *
+     * @return The number of sagas recovered
+     */
+    @Transactional
+    public int recoverStalePending(Instant cutoff, Instant now)
+    {
+        List<TravelAgentBooking> stale = em.createQuery(
+                        "SELECT b FROM TravelAgentBooking b WHERE b.state = :state AND b.updatedAt < :cutoff", TravelAgentBooking.class)
+                .setParameter("state", TravelAgentBookingState.PENDING)
+                .setParameter("cutoff", cutoff)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+        for (TravelAgentBooking booking : stale)
+        {
+            for (TravelAgentSagaStep step : findSteps(booking.getId()))
+            {
+                if (step.getState() == SagaStepState.BOOKED)
+                {
+                    step.setState(SagaStepState.COMPENSATING);
+                    step.setNextAttemptAt(now);
+                } else if (step.getState() == SagaStepState.PENDING)
+                {
+                    step.setState(SagaStepState.FAILED);
+                    step.setLastError("Outcome unknown, the saga was interrupted before the partner answered");
+                }
+            }
+            booking.setState(TravelAgentBookingState.COMPENSATING);
+            settle(booking);
+        }
+        return stale.size();
+    }
+
+    /**
+     * <p>Removes a booking and its steps, unless its saga is still running.</p>
+     *
+     * @return True if the booking is gone, false if it is still PENDING or COMPENSATING
+     */
+    @Transactional
+    public boolean removeIfSettled(Long bookingId)
+    {
+        TravelAgentBooking booking = lock(bookingId);
+        if (booking == null)
+        {
+            return true;
+        }
+        if (booking.getState() == TravelAgentBookingState.PENDING || booking.getState() == TravelAgentBookingState.COMPENSATING)
+        {
+            return false;
+        }
+        remove(booking);
+        return true;
+    }
+
+    /**
+     * <p>Finds remote bookings that are still ISSUED according to the ledger, were issued before {@code cutoff}, and
+     * are not held by any travel agent booking: the booking that asked for them is gone, or it has finished without
+     * them. Bookings whose saga is still running are left alone.</p>
+     */
+    @Transactional
+    public List<PartnerLedgerEntry> findOrphans(Instant cutoff, int limit)
+    {
+        return em.createNamedQuery(PartnerLedgerEntry.FIND_ORPHANS, PartnerLedgerEntry.class)
+                .setParameter("issued", PartnerLedgerState.ISSUED)
+                .setParameter("cutoff", cutoff)
+                .setParameter("inProgress", List.of(TravelAgentBookingState.PENDING, TravelAgentBookingState.COMPENSATING))
+                .setParameter("taxi", TravelAgentPartner.TAXI)
+                .setParameter("flight", TravelAgentPartner.FLIGHT)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Records that an orphaned remote booking has been cancelled. If its saga had given up on cancelling it, the
+     * step is marked COMPENSATED after all and the booking settled again...
+     */
+    @Transactional
+    public void orphanReleased(Long entryId)
+    {
+        PartnerLedgerEntry entry = em.find(PartnerLedgerEntry.class, entryId);
+        release(entry.getPartner(), entry.getRemoteBookingId());
+
+        if (entry.getTravelAgentBookingId() == null)
+        {
+            return;
+        }
+        TravelAgentBooking booking = lock(entry.getTravelAgentBookingId());
+        if (booking == null)
+        {
+            return;
+        }
+        for (TravelAgentSagaStep step : findSteps(booking.getId()))
+        {
+            if (step.getPartner() == entry.getPartner() && step.getState() == SagaStepState.COMPENSATION_FAILED)
+            {
+                step.setState(SagaStepState.COMPENSATED);
+                settle(booking);
+            }
+        }
+    }
+
+    /**
+     * <p>Records a failed attempt to cancel an orphaned remote booking.</p>
+     *
+     * @param abandon True to stop trying
+     */
+    @Transactional
+    public void orphanCancelFailed(Long entryId, String error, boolean abandon)
+    {
+        PartnerLedgerEntry entry = em.find(PartnerLedgerEntry.class, entryId);
+        entry.setCancelAttempts(entry.getCancelAttempts() + 1);
+        entry.setLastError(error);
+        if (abandon)
+        {
+            entry.setState(PartnerLedgerState.ABANDONED);
+        }
+    }
+
+    /**
+     * Marks a remote booking RELEASED in the ledger, if it is there...
+     */
+    private void release(TravelAgentPartner partner, Long remoteBookingId)
+    {
+        List<PartnerLedgerEntry> entries = em.createNamedQuery(PartnerLedgerEntry.FIND_BY_REMOTE_ID, PartnerLedgerEntry.class)
+                .setParameter("partner", partner)
+                .setParameter("remoteBookingId", remoteBookingId)
+                .getResultList();
+        for (PartnerLedgerEntry entry : entries)
+        {
+            entry.setState(PartnerLedgerState.RELEASED);
+            entry.setReleasedAt(Instant.now());
+        }
+    }
+
+    /**
+     * Locks a booking before its steps are changed and it is settled. Without it, two steps finishing at the same time
+     * each still see the other as COMPENSATING, and the booking is never settled...
+     */
+    private TravelAgentBooking lock(Long bookingId)
+    {
+        return em.find(TravelAgentBooking.class, bookingId, LockModeType.PESSIMISTIC_WRITE);
+    }
+
+    /**
+     * Moves a compensating booking to its final state once none of its steps are waiting to be cancelled, and removes
+     * it then if the client asked to cancel it. A step that could not be cancelled is left to the reconciler, as in
+     * {@link #removeIfSettled}...
+     */
+    private void settle(TravelAgentBooking booking)
+    {
+        boolean failed = false;
+        for (TravelAgentSagaStep step : findSteps(booking.getId()))
+        {
+            if (step.getState() == SagaStepState.COMPENSATING)
+            {
+                return;
+            }
+            failed |= step.getState() == SagaStepState.COMPENSATION_FAILED;
+        }
+        booking.setState(failed ? TravelAgentBookingState.COMPENSATION_FAILED : TravelAgentBookingState.COMPENSATED);
+        if (booking.isCancelRequested())
+        {
+            remove(booking);
+        }
+    }
+
+    private void remove(TravelAgentBooking booking)
+    {
+        for (TravelAgentSagaStep step : findSteps(booking.getId()))
+        {
+            em.remove(step);
+        }
+        em.remove(booking);
+    }
+
+    private List<TravelAgentSagaStep> findSteps(Long bookingId)
+    {
+        return em.createNamedQuery(TravelAgentSagaStep.FIND_BY_BOOKING, TravelAgentSagaStep.class)
+                .setParameter("bookingId", bookingId)
+                .getResultList();
+    }
+
+    private TravelAgentSagaStep findStep(Long bookingId, TravelAgentPartner partner)
+    {
+        for (TravelAgentSagaStep step : findSteps(bookingId))
+        {
+            if (step.getPartner() == partner)
+            {
+                return step;
+            }
+        }
+        throw new IllegalStateException("No " + partner + " step for travel agent booking " + bookingId);
+    }
+}
@@ -0,0 +1,140 @@
+package uk.ac.newcastle.enterprisemiddleware.travelagent;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * <p>One row per partner call of a {@link TravelAgentBooking}. The row is written before the partner is called and
+ * updated as soon as it answers, so the id of every remote booking that was made survives a crash, and failed
+ * cancellations can be retried from here.</p>
+ *
+ * @author aryamanpatronia
+ * @see SagaStepState
+ * @see TravelAgentCompensator
+ */
+@Entity
+@NamedQueries({
+        @NamedQuery(name = TravelAgentSagaStep.FIND_BY_BOOKING,
+                query = "SELECT s FROM TravelAgentSagaStep s WHERE s.booking.id = :bookingId"),
+        @NamedQuery(name = TravelAgentSagaStep.FIND_DUE,
+                query = "SELECT s FROM TravelAgentSagaStep s WHERE s.state = :state AND s.nextAttemptAt <= :now ORDER BY s.nextAttemptAt")
+})
+@Table(name = "travel_agent_saga_steps", uniqueConstraints = @UniqueConstraint(columnNames = {"booking_id", "partner"}))
+public class TravelAgentSagaStep implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    public static final String FIND_BY_BOOKING = "TravelAgentSagaStep.findByBooking";
+    public static final String FIND_DUE = "TravelAgentSagaStep.findDue";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "travel_agent_saga_step_seq")
+    @SequenceGenerator(name = "travel_agent_saga_step_seq", sequenceName = "travel_agent_saga_step_sequence", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "booking_id", nullable = false)
+    private TravelAgentBooking booking;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "partner", nullable = false)
+    private TravelAgentPartner partner;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "state", nullable = false)
+    private SagaStepState state;
+
+    @Column(name = "remote_booking_id")
+    private Long remoteBookingId;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at")
+    private Instant nextAttemptAt;
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    public Long getId()
+    {
+        return id;
+    }
+
+    public void setId(Long id)
+    {
+        this.id = id;
+    }
+
+    public TravelAgentBooking getBooking()
+    {
+        return booking;
+    }
+
+    public void setBooking(TravelAgentBooking booking)
+    {
+        this.booking = booking;
+    }
+
+    public TravelAgentPartner getPartner()
+    {
+        return partner;
+    }
+
+    public void setPartner(TravelAgentPartner partner)
+    {
+        this.partner = partner;
+    }
+
+    public SagaStepState getState()
+    {
+        return state;
+    }
+
+    public void setState(SagaStepState state)
+    {
+        this.state = state;
+    }
+
+    public Long getRemoteBookingId()
+    {
+        return remoteBookingId;
+    }
+
+    public void setRemoteBookingId(Long remoteBookingId)
+    {
+        this.remoteBookingId = remoteBookingId;
+    }
+
+    public int getAttempts()
+    {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts)
+    {
+        this.attempts = attempts;
+    }
+
+    public Instant getNextAttemptAt()
+    {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(Instant nextAttemptAt)
+    {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public String getLastError()
+    {
+        return lastError;
+    }
+
+    public void setLastError(String lastError)
+    {
+        // Keep within the default column length...
+        this.lastError = lastError != null && lastError.length() > 255 ? lastError.substring(0, 255) : lastError;
+    }
+}
@@ -1,78 +1,475 @@
 package uk.ac.newcastle.enterprisemiddleware.travelagent;
 
-import org.eclipse.microprofile.rest.client.inject.RestClient;
-import uk.ac.newcastle.enterprisemiddleware.hotel.HotelService;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.smallrye.mutiny.subscription.Cancellable;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import uk.ac.newcastle.enterprisemiddleware.util.Measured;
+import uk.ac.newcastle.enterprisemiddleware.util.RequestRejectedException;
+import uk.ac.newcastle.enterprisemiddleware.util.RestServiceException;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import javax.inject.Named;
+import javax.transaction.Transactional;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
 
 /**
+ * <p>Each database step of a booking runs in its own short transaction on a worker thread, and none is open while
+ * waiting on the taxi and flight services, so a slow partner can't tie up the connection pool. The service can't be
+ * called from inside a transaction either, as the caller's would stay open while the partners answer.</p>
+ *
  * @author aryamanpatronia
  */
 
+@Measured
 @ApplicationScoped
+@Transactional(Transactional.TxType.NEVER)
 public class TravelAgentService
 {
 
     @Inject
-    @RestClient
-    TaxiClient taxiClient;
+    @Named("logger")
+    Logger log;
 
     @Inject
-    @RestClient
-    FlightClient flightClient;
+    PartnerGateway partners;
 
     @Inject
-    HotelService hotelService;
+    TravelAgentSagaRepository sagas;
 
     @Inject
-    TravelAgentRepository travelAgentRepository;
+    TravelAgentCompensator compensator;
 
-    public TravelAgentBooking createBooking(Long customerId, Long hotelId, TaxiBookingRequest taxiRequest, FlightBookingRequest flightRequest) throws Exception {
-        Long taxiBookingId = null;
-        Long flightBookingId = null;
+    @ConfigProperty(name = "travelagent.cancel.concurrency", defaultValue = "16")
+    int cancelConcurrency;
+
+    @ConfigProperty(name = "travelagent.batch.concurrency", defaultValue = "16")
+    int batchConcurrency;
+
+    @ConfigProperty(name = "travelagent.batch.heartbeat", defaultValue = "30s")
+    Duration batchHeartbeat;
 
+    /**
+     * Blocking version of {@link #createBookingAsync}, for callers running on a worker thread...
+     */
+    public TravelAgentBooking createBooking(Long customerId, Long hotelId, TaxiBookingRequest taxiRequest, FlightBookingRequest flightRequest) throws Exception {
         try
         {
-            /**
-             * Validate hotel..
-             */
-            var hotel = hotelService.findById(hotelId);
-            if (hotel == null)
+            return createBookingAsync(customerId, hotelId, taxiRequest, flightRequest).await().indefinitely();
+        }
+        catch (CompletionException e)
+        {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    /**
+     * <p>Books a taxi, a flight and a hotel for a customer without blocking the calling thread.</p>
+     *
+     * <p>The booking is run as a saga: the booking row and one step per partner are written first (which also checks
+     * the hotel), the taxi and flight are then booked at the same time, and each answer is recorded on its step as it
+     * arrives. If either partner fails, or the booking can't be confirmed, the saga is handed to the
+     * {@link TravelAgentCompensator}, which cancels whichever partner bookings were made and keeps retrying in the
+     * background if a cancellation fails. The JDBC steps are moved onto a worker thread; everything else runs on
+     * whichever thread the partner responses arrive on.</p>
+     *
+     * @return A Uni emitting the confirmed TravelAgentBooking, or failing with the reason it could not be made
+     */
+    public Uni<TravelAgentBooking> createBookingAsync(Long customerId, Long hotelId, TaxiBookingRequest taxiRequest, FlightBookingRequest flightRequest)
+    {
+        return blocking(() -> sagas.begin(customerId, hotelId))
+                .onItem().ifNull().failWith(() -> hotelNotFound(hotelId))
+                .chain(booking -> bookPartners(booking.getId(), taxiRequest, flightRequest)
+                        .chain(partnerBookings ->
+                        {
+                            Throwable failure = partnerBookings.failure();
+                            if (failure != null)
+                            {
+                                return compensator.compensate(booking.getId())
+                                        .chain(() -> Uni.createFrom().<TravelAgentBooking>failure(failure));
+                            }
+
+                            return blocking(() -> sagas.confirm(booking.getId(), partnerBookings.taxi.id, partnerBookings.flight.id))
+                                    .onFailure().call(() -> compensator.compensate(booking.getId()))
+                                    .onFailure().transform(e -> notConfirmed(booking.getId(), e))
+                                    .onItem().ifNull().failWith(() -> timedOut(booking.getId()));
+                        }));
+    }
+
+    /**
+     * <p>Makes a batch of travel agent bookings, e.g. for a tour group.</p>
+     *
+     * <p>Each request is run as its own saga, as in {@link #createBookingAsync}, but the database work is shared: the
+     * sagas of the whole batch are started in one transaction that looks all the hotels up with a single query, and
+     * the bookings that were made are confirmed together in one more. In between, the partner calls are pipelined,
+     * with up to {@code travelagent.batch.concurrency} requests being booked at once. A request that fails is
+     * compensated straight away and does not affect the others.</p>
+     *
+     * <p>A large batch can take longer than {@code travelagent.saga.pending-timeout}, so while it runs its sagas that
+     * are still PENDING are touched every {@code travelagent.batch.heartbeat}, and the background worker doesn't take
+     * them for abandoned. Should it take one over anyway, that request fails rather than being confirmed.</p>
+     *
+     * @return A Uni emitting the outcome of every request, in the order they were given
+     */
+    public Uni<List<TravelAgentBatchResult>> createBookings(List<TravelAgentBookingRequest> requests)
+    {
+        return blocking(() -> sagas.beginAll(requests))
+                .chain(bookings ->
+                {
+                    Cancellable heartbeat = heartbeat(bookings);
+                    return Multi.createFrom().range(0, requests.size())
+                            .onItem().transformToUni(i -> bookBatchItem(i, bookings.get(i), requests.get(i)))
+                            .merge(batchConcurrency)
+                            .collect().asList()
+                            .chain(this::confirmBatch)
+                            .onTermination().invoke(heartbeat::cancel);
+                })
+                .map(results ->
+                {
+                    results.sort(Comparator.comparingInt(TravelAgentBatchResult::getIndex));
+                    return results;
+                });
+    }
+
+    /**
+     * Touches the batch's PENDING sagas every {@code travelagent.batch.heartbeat} until cancelled...
+     */
+    private Cancellable heartbeat(List<TravelAgentBooking> bookings)
+    {
+        List<Long> bookingIds = new ArrayList<>();
+        for (TravelAgentBooking booking : bookings)
+        {
+            if (booking != null)
             {
-                throw new WebApplicationException("Hotel not found", 404);
+                bookingIds.add(booking.getId());
             }
-            /**
-             * Validate Taxi
-             */
-            var taxiResponse = taxiClient.createTaxiBooking(taxiRequest);
-            if (taxiResponse.getStatus() != 201)
+        }
+        return Multi.createFrom().ticks().every(batchHeartbeat)
+                .onOverflow().drop()
+                .onItem().transformToUniAndConcatenate(tick -> blocking(() -> sagas.touchPending(bookingIds, Instant.now())))
+                .subscribe().with(touched -> { }, failure -> log.warning("TravelAgentService - Batch heartbeat stopped: " + failure));
+    }
+
+    /**
+     * Books the partners for one request of a batch, compensating straight away if that fails. Any failure, a saga
+     * write included, ends as a failed result for this request only, so it can't fail the rest of the batch...
+     */
+    private Uni<BatchItem> bookBatchItem(int index, TravelAgentBooking booking, TravelAgentBookingRequest request)
+    {
+        if (booking == null)
+        {
+            RestServiceException failure = hotelNotFound(request.hotelId);
+            return Uni.createFrom().item(new BatchItem(index, null, null,
+                    TravelAgentBatchResult.failed(index, statusOf(failure), failure.getMessage())));
+        }
+        return bookPartners(booking.getId(), request.taxiBookingRequest, request.flightBookingRequest)
+                .chain(partnerBookings ->
+                {
+                    Throwable failure = partnerBookings.failure();
+                    if (failure == null)
+                    {
+                        return Uni.createFrom().item(new BatchItem(index, booking.getId(), partnerBookings, null));
+                    }
+                    return compensator.compensate(booking.getId())
+                            .map(ignored -> new BatchItem(index, booking.getId(), partnerBookings,
+                                    TravelAgentBatchResult.failed(index, statusOf(failure), failure.getMessage())));
+                })
+                .onFailure().recoverWithUni(failure -> compensator.compensate(booking.getId())
+                        .onFailure().invoke(e -> log.warning("TravelAgentService - Could not compensate travel agent booking "
+                                + booking.getId() + ", the background worker will: " + e))
+                        .onItemOrFailure().transform((ignored, e) -> new BatchItem(index, booking.getId(), null,
+                                TravelAgentBatchResult.failed(index, statusOf(failure), failure.getMessage()))));
+    }
+
+    /**
+     * Confirms every booking of a batch whose partners were booked, in one transaction. If that fails, they are all
+     * compensated instead...
+     */
+    private Uni<List<TravelAgentBatchResult>> confirmBatch(List<BatchItem> items)
+    {
+        List<TravelAgentBatchResult> results = new ArrayList<>();
+        Map<Long, Long[]> toConfirm = new HashMap<>();
+        Map<Long, Integer> indexes = new HashMap<>();
+        for (BatchItem item : items)
+        {
+            if (item.result != null)
             {
-                throw new WebApplicationException("Failed to create Taxi booking");
+                results.add(item.result);
+            } else
+            {
+                toConfirm.put(item.bookingId, new Long[]{item.partnerBookings.taxi.id, item.partnerBookings.flight.id});
+                indexes.put(item.bookingId, item.index);
             }
-            taxiBookingId = taxiResponse.readEntity(Long.class);
+        }
+
+        return blocking(() -> sagas.confirmAll(toConfirm))
+                .map(confirmed ->
+                {
+                    for (TravelAgentBooking booking : confirmed)
+                    {
+                        results.add(TravelAgentBatchResult.created(indexes.get(booking.getId()), booking));
+                        indexes.remove(booking.getId());
+                    }
+                    // Whatever is left was taken over by recovery before it could be confirmed
+                    for (Map.Entry<Long, Integer> unconfirmed : indexes.entrySet())
+                    {
+                        RestServiceException failure = timedOut(unconfirmed.getKey());
+                        results.add(TravelAgentBatchResult.failed(unconfirmed.getValue(), statusOf(failure), failure.getMessage()));
+                    }
+                    return results;
+                })
+                .onFailure().recoverWithUni(e -> Multi.createFrom().iterable(toConfirm.keySet())
+                        .onItem().transformToUni(bookingId -> compensator.compensate(bookingId)
+                                .map(ignored ->
+                                {
+                                    RestServiceException failure = notConfirmed(bookingId, e);
+                                    return TravelAgentBatchResult.failed(indexes.get(bookingId), statusOf(failure), failure.getMessage());
+                                }))
+                        .merge(batchConcurrency)
+                        .collect().asList()
+                        .map(failed ->
+                        {
+                            results.addAll(failed);
+                            return results;
+                        }));
+    }
+
+    /**
+     * Books the taxi and the flight of a saga at the same time...
+     */
+    private Uni<PartnerBookings> bookPartners(Long bookingId, TaxiBookingRequest taxiRequest, FlightBookingRequest flightRequest)
+    {
+        return Uni.combine().all()
+                .unis(book(bookingId, TravelAgentPartner.TAXI, partners.createTaxiBooking(taxiRequest)),
+                        book(bookingId, TravelAgentPartner.FLIGHT, partners.createFlightBooking(flightRequest)))
+                .combinedWith(PartnerBookings::new);
+    }
+
+    /**
+     * The HTTP status a failed booking is reported with: 503 if a partner was cut off by its fault tolerance guards,
+     * the status of a {@link RestServiceException}, 400 otherwise...
+     */
+    static int statusOf(Throwable failure)
+    {
+        if (failure instanceof RestServiceException)
+        {
+            return ((RestServiceException) failure).getStatus().getStatusCode();
+        }
+        return PartnerGateway.isRejection(failure) ? Response.Status.SERVICE_UNAVAILABLE.getStatusCode() : 400;
+    }
+
+    /**
+     * Why a booking at a hotel that doesn't exist fails: a 404, as for GET /hotels/{id}...
+     */
+    static RestServiceException hotelNotFound(Long hotelId)
+    {
+        return new RequestRejectedException("No Hotel with the id " + hotelId + " was found!", Response.Status.NOT_FOUND);
+    }
 
-            var flightResponse = flightClient.createFlightBooking(flightRequest);
-            if (flightResponse.getStatus() != 201)
+    /**
+     * Why a saga whose partners were booked could not be confirmed: a database failure, which is logged here and
+     * reported as a 500 without its details...
+     */
+    private RestServiceException notConfirmed(Long bookingId, Throwable cause)
+    {
+        log.warning("TravelAgentService - Could not confirm travel agent booking " + bookingId + ", compensated it: " + cause);
+        return new RestServiceException("Travel agent booking " + bookingId + " could not be confirmed and has been cancelled",
+                Response.Status.INTERNAL_SERVER_ERROR);
+    }
+
+    /**
+     * Why a saga that recovery took over while it was still running is not confirmed: it was taken for abandoned, and
+     * its partner bookings are being cancelled...
+     */
+    static RestServiceException timedOut(Long bookingId)
+    {
+        return new RestServiceException("Travel agent booking " + bookingId + " took too long and is being cancelled, please try again",
+                Response.Status.SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * <p>Cancels a travel agent booking: its taxi and flight bookings are cancelled at the same time, then the booking
+     * is removed.</p>
+     *
+     * <p>The cancellations are run by the {@link TravelAgentCompensator}, so one that fails is retried in the
+     * background like any other compensation; the booking is kept until it has gone through, then removed by the
+     * background worker. A partner booking that could never be cancelled is left to the
+     * {@link OrphanedBookingReconciler}.</p>
+     *
+     * @return A Uni emitting what happened
+     */
+    public Uni<TravelAgentCancellation> cancelBooking(Long bookingId)
+    {
+        return blocking(() -> sagas.findState(bookingId))
+                .chain(state ->
+                {
+                    if (state == null)
+                    {
+                        return Uni.createFrom().item(TravelAgentCancellation.NOT_FOUND);
+                    }
+                    if (state == TravelAgentBookingState.PENDING || state == TravelAgentBookingState.COMPENSATING)
+                    {
+                        return Uni.createFrom().item(TravelAgentCancellation.IN_PROGRESS);
+                    }
+                    return compensator.cancel(bookingId)
+                            .chain(() -> blocking(() -> sagas.removeIfSettled(bookingId)))
+                            .map(removed -> removed ? TravelAgentCancellation.CANCELLED : TravelAgentCancellation.RETRYING);
+                });
+    }
+
+    /**
+     * <p>Cancels many travel agent bookings, {@code travelagent.cancel.concurrency} at a time.</p>
+     *
+     * @return A Uni emitting what happened to each booking, by id
+     */
+    public Uni<Map<Long, TravelAgentCancellation>> cancelBookings(List<Long> bookingIds)
+    {
+        return Multi.createFrom().iterable(new LinkedHashSet<>(bookingIds))
+                .onItem().transformToUni(id -> cancelBooking(id)
+                        .onFailure().recoverWithItem(e ->
+                        {
+                            log.warning("TravelAgentService - Failed to cancel travel agent booking " + id + ": " + e);
+                            return TravelAgentCancellation.FAILED;
+                        })
+                        .map(outcome -> Map.entry(id, outcome)))
+                .merge(cancelConcurrency)
+                .collect().asMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+    /**
+     * Runs a piece of blocking (JDBC) work on a worker thread, so it never holds up the event loop...
+     */
+    static <T> Uni<T> blocking(Supplier<T> work)
+    {
+        return Uni.createFrom().item(work).runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+    }
+
+    /**
+     * Turns a partner's create call into its booking id and records the outcome on the saga step. A failure is kept
+     * as a value instead of failing the Uni, so the other partner's booking is still known when only one of them
+     * goes wrong...
+     */
+    private Uni<PartnerBooking> book(Long bookingId, TravelAgentPartner partner, Uni<Response> call)
+    {
+        return call.onItemOrFailure().transform((response, failure) ->
+        {
+            if (failure != null)
+            {
+                return new PartnerBooking(null, failure);
+            }
+            if (response.getStatus() != 201)
+            {
+                return new PartnerBooking(null, new WebApplicationException("Failed to create " + partner.displayName() + " booking"));
+            }
+            try
+            {
+                return new PartnerBooking(response.readEntity(Long.class), null);
+            } catch (RuntimeException e)
+            {
+                return new PartnerBooking(null, e);
+            }
+        }).chain(outcome -> blocking(() ->
+        {
+            if (outcome.id == null)
             {
-                throw new WebApplicationException("Failed to create Flight booking");
+                sagas.stepFailed(bookingId, partner, outcome.failure.getMessage());
+                return outcome;
             }
-            flightBookingId = flightResponse.readEntity(Long.class);
+            // The ledger has it either way; if the saga has moved on, the reconciler cancels it
+            return sagas.stepBooked(bookingId, partner, outcome.id) ? outcome : new PartnerBooking(null, timedOut(bookingId));
+        }).onFailure().recoverWithUni(failure -> outcome.id == null
+                ? Uni.createFrom().item(outcome)
+                : cancelUnrecorded(bookingId, partner, outcome.id, failure)));
+    }
+
+    /**
+     * <p>Cancels a partner booking whose id could not be written to its step or the ledger, so the saga fails
+     * without it.</p>
+     *
+     * <p>Neither the compensator nor the reconciler can cancel a booking they have no record of, so this is the only
+     * attempt; if it fails too the booking is left at the partner, and logged so it can be cancelled by hand.</p>
+     */
+    private Uni<PartnerBooking> cancelUnrecorded(Long bookingId, TravelAgentPartner partner, Long remoteBookingId, Throwable failure)
+    {
+        log.warning("TravelAgentService - Could not record " + partner.displayName() + " booking " + remoteBookingId
+                + " of travel agent booking " + bookingId + ", cancelling it: " + failure);
+        return partners.cancelBooking(partner, remoteBookingId)
+                .onItemOrFailure().transform((response, cancelFailure) ->
+                {
+                    if (cancelFailure != null && !PartnerGateway.isNotFound(cancelFailure))
+                    {
+                        log.severe("TravelAgentService - " + partner.displayName() + " booking " + remoteBookingId
+                                + " could not be cancelled and is in no ledger, cancel it by hand: " + cancelFailure);
+                    }
+                    return new PartnerBooking(null, failure);
+                });
+    }
 
-            TravelAgentBooking booking = new TravelAgentBooking();
-            booking.setCustomerId(customerId);
-            booking.setHotel(hotel);
-            booking.setTaxiBookingId(taxiBookingId);
-            booking.setFlightBookingId(flightBookingId);
-            return travelAgentRepository.create(booking);
+    /**
+     * The outcome of a single create call to a partner service: either the id of the booking it made, or why it failed.
+     */
+    private static class PartnerBooking
+    {
+        final Long id;
+        final Throwable failure;
 
+        PartnerBooking(Long id, Throwable failure)
+        {
+            this.id = id;
+            this.failure = failure;
         }
-        catch (Exception e)
+    }
+
+    /**
+     * The outcome of both create calls of a saga...
+     */
+    private static class PartnerBookings
+    {
+        final PartnerBooking taxi;
+        final PartnerBooking flight;
+
+        PartnerBookings(PartnerBooking taxi, PartnerBooking flight)
+        {
+            this.taxi = taxi;
+            this.flight = flight;
+        }
+
+        Throwable failure()
+        {
+            return taxi.failure != null ? taxi.failure : flight.failure;
+        }
+    }
+
+    /**
+     * One request of a batch once its partners have answered: either waiting to be confirmed, or already failed...
+     */
+    private static class BatchItem
+    {
+        final int index;
+        final Long bookingId;
+        final PartnerBookings partnerBookings;
+        final TravelAgentBatchResult result;
+
+        BatchItem(int index, Long bookingId, PartnerBookings partnerBookings, TravelAgentBatchResult result)
         {
-            if (taxiBookingId != null) taxiClient.cancelTaxiBooking(taxiBookingId);
-            if (flightBookingId != null) flightClient.cancelFlightBooking(flightBookingId);
-            throw e;
+            this.index = index;
+            this.bookingId = bookingId;
+            this.partnerBookings = partnerBookings;
+            this.result = result;
         }
     }
 }
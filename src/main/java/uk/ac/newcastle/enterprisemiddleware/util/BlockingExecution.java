@@ -0,0 +1,124 @@
+package uk.ac.newcastle.enterprisemiddleware.util;
+
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.transaction.Transactional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * <p>Runs the blocking (JDBC) part of a REST request off the event loop, on either the worker pool or a virtual
+ * thread of its own.</p>
+ *
+ * <p>The REST services return a {@link Uni} and hand their body to {@link #run} or {@link #runInTransaction}. By
+ * default that body runs on the worker pool, exactly as a blocking endpoint would. With
+ * {@code app.virtual-threads.enabled=true} each request gets a new virtual thread instead, so a request waiting on the
+ * database or a partner holds no platform thread and the worker pool size stops capping concurrency; the datasource
+ * pool ({@code quarkus.datasource.jdbc.max-size}) is then the limit. Virtual threads need Java 21; on an older JVM the
+ * setting is ignored with a warning and the worker pool is used.</p>
+ *
+ * <p>The reads go through here too, rather than through Hibernate Reactive on the event loop: that needs one of the
+ * Vert.x reactive SQL clients (PostgreSQL, MySQL, DB2, SQL Server or Oracle), and H2 has none. Quarkus 2.10 also
+ * doesn't let Hibernate ORM and Hibernate Reactive run in the same application.</p>
+ *
+ * <p>Until Java 24 (JEP 491) a virtual thread blocking inside a {@code synchronized} block pins its carrier thread.
+ * The H2 remote driver holds the session monitor while it waits on the network, and Narayana commits and rolls back
+ * inside synchronized methods, so on Java 21 to 23 every query and commit pins a carrier; a warning is logged when the
+ * mode is enabled there.</p>
+ *
+ * <p>The request context is carried to the other thread by context propagation, so request scoped repositories work
+ * as before. A JTA transaction is tied to the thread that started it, which is why endpoints that need one use
+ * {@link #runInTransaction} rather than being annotated themselves.</p>
+ *
+ * @author aryamanpatronia
+ */
+@ApplicationScoped
+public class BlockingExecution
+{
+    private static final int UNPINNED_MONITORS_SINCE = 24;
+
+    @Inject
+    @Named("logger")
+    Logger log;
+
+    @ConfigProperty(name = "app.virtual-threads.enabled", defaultValue = "false")
+    boolean virtualThreads;
+
+    // Null when the worker pool is used...
+    private ExecutorService perRequest;
+
+    @PostConstruct
+    void start()
+    {
+        if (!virtualThreads)
+        {
+            return;
+        }
+        try
+        {
+            perRequest = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e)
+        {
+            log.warning("BlockingExecution - Virtual threads need Java 21, this is Java " + Runtime.version().feature()
+                    + "; requests run on the worker pool");
+            return;
+        }
+        log.info("BlockingExecution - Requests run on virtual threads");
+        if (Runtime.version().feature() < UNPINNED_MONITORS_SINCE)
+        {
+            log.warning("BlockingExecution - On Java " + Runtime.version().feature() + " the H2 driver and Narayana block "
+                    + "inside synchronized code, which pins the carrier thread for every query and commit");
+        }
+    }
+
+    @PreDestroy
+    void stop()
+    {
+        if (perRequest != null)
+        {
+            perRequest.shutdown();
+        }
+    }
+
+    /**
+     * @param work The blocking work
+     * @return A Uni of its result, computed on a virtual thread or a worker thread
+     */
+    public <T> Uni<T> run(Supplier<T> work)
+    {
+        return Uni.createFrom().item(work).runSubscriptionOn(executor());
+    }
+
+    /**
+     * Like {@link #run}, but in a transaction begun and ended on the thread that does the work; it is rolled back if
+     * the work throws...
+     *
+     * @param work The blocking work
+     * @return A Uni of its result
+     */
+    public <T> Uni<T> runInTransaction(Supplier<T> work)
+    {
+        return run(() -> transactional(work));
+    }
+
+    @Transactional
+    <T> T transactional(Supplier<T> work)
+    {
+        return work.get();
+    }
+
+    private Executor executor()
+    {
+        return perRequest != null ? perRequest : Infrastructure.getDefaultWorkerPool();
+    }
+}
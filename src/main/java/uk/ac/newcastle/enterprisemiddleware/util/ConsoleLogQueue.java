@@ -0,0 +1,78 @@
+package uk.ac.newcastle.enterprisemiddleware.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.logging.Handler;
+import java.util.logging.Logger;
+
+/**
+ * <p>Puts a {@link LogQueueHandler} of {@code logging.queue-length} records in front of the root logger's handlers
+ * (the console), so logging never makes a request thread wait on stdout, and a full queue only ever drops records
+ * below WARNING. A warning waits at most {@code logging.queue-wait} for room before it is written directly.</p>
+ *
+ * <p>Quarkus's own async console handler can only discard everything or block everything when full, so it is left
+ * off. Records dropped are counted in {@code logging.records.dropped}. At 0 the handlers are left as they are and
+ * records are written on the thread that logs them.</p>
+ *
+ * @author aryamanpatronia
+ * @see LogQueueHandler
+ */
+@ApplicationScoped
+public class ConsoleLogQueue
+{
+    @ConfigProperty(name = "logging.queue-length", defaultValue = "0")
+    int queueLength;
+
+    @ConfigProperty(name = "logging.queue-wait", defaultValue = "0.1S")
+    Duration queueWait;
+
+    @Inject
+    MeterRegistry registry;
+
+    private Logger root;
+    private Handler[] handlers;
+    private LogQueueHandler queue;
+
+    void install(@Observes StartupEvent event)
+    {
+        if (queueLength <= 0)
+        {
+            return;
+        }
+        Counter dropped = Counter.builder("logging.records.dropped")
+                .description("Log records below WARNING dropped because the log queue was full")
+                .register(registry);
+        root = Logger.getLogger("");
+        handlers = root.getHandlers();
+        queue = new LogQueueHandler(handlers, queueLength, queueWait, dropped);
+        // Added before the others are removed: a record logged in between may be written twice, but none is lost
+        root.addHandler(queue);
+        for (Handler handler : handlers)
+        {
+            root.removeHandler(handler);
+        }
+    }
+
+    void uninstall(@Observes ShutdownEvent event)
+    {
+        if (queue == null)
+        {
+            return;
+        }
+        for (Handler handler : handlers)
+        {
+            root.addHandler(handler);
+        }
+        root.removeHandler(queue);
+        queue.close();
+        queue = null;
+    }
+}
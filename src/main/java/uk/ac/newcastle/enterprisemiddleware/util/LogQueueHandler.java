@@ -0,0 +1,137 @@
+package uk.ac.newcastle.enterprisemiddleware.util;
+
+import io.micrometer.core.instrument.Counter;
+import org.jboss.logmanager.ExtLogRecord;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * <p>Hands records to the handlers it wraps from one background thread, through a bounded queue, so a request thread
+ * doesn't wait on the console to log.</p>
+ *
+ * <p>When the queue is full, records below WARNING are dropped and counted, and WARNING and above wait for room. A
+ * lost INFO line under load is the price of not blocking, but the warnings and errors are the records needed to find
+ * out what went wrong under that load. Both go through the one queue, so the log stays in order.</p>
+ *
+ * <p>A warning waits at most {@code wait}, as it may be logged from an event loop thread, and is then written on the
+ * thread that logged it, out of order but not lost. One logged by the writer thread itself, from inside a wrapped
+ * handler, is always written straight away, since that thread is the only one that can make room.</p>
+ *
+ * @author aryamanpatronia
+ * @see ConsoleLogQueue
+ */
+class LogQueueHandler extends Handler
+{
+    private final Handler[] handlers;
+    private final BlockingQueue<LogRecord> queue;
+    private final Counter dropped;
+    private final long waitNanos;
+    private final Thread writer;
+
+    private volatile boolean closed;
+
+    LogQueueHandler(Handler[] handlers, int capacity, Duration wait, Counter dropped)
+    {
+        this.handlers = handlers.clone();
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.dropped = dropped;
+        this.waitNanos = wait.toNanos();
+        writer = new Thread(this::write, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void publish(LogRecord record)
+    {
+        if (closed || Thread.currentThread() == writer)
+        {
+            publishNow(record);
+            return;
+        }
+        // The writer thread can't see this thread's MDC, nor format the message after the arguments have changed
+        if (record instanceof ExtLogRecord)
+        {
+            ((ExtLogRecord) record).copyAll();
+        }
+        if (record.getLevel().intValue() < Level.WARNING.intValue())
+        {
+            if (!queue.offer(record))
+            {
+                dropped.increment();
+            }
+            return;
+        }
+        try
+        {
+            if (!queue.offer(record, waitNanos, TimeUnit.NANOSECONDS))
+            {
+                publishNow(record);
+            }
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            publishNow(record);
+        }
+    }
+
+    @Override
+    public void flush()
+    {
+        for (Handler handler : handlers)
+        {
+            handler.flush();
+        }
+    }
+
+    /**
+     * <p>Stops the writer thread and publishes whatever is still queued on the calling thread.</p>
+     */
+    @Override
+    public void close()
+    {
+        closed = true;
+        writer.interrupt();
+        try
+        {
+            writer.join();
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        LogRecord record;
+        while ((record = queue.poll()) != null)
+        {
+            publishNow(record);
+        }
+        flush();
+    }
+
+    private void write()
+    {
+        try
+        {
+            while (true)
+            {
+                publishNow(queue.take());
+            }
+        } catch (InterruptedException e)
+        {
+            // Closed; close() publishes the rest
+        }
+    }
+
+    private void publishNow(LogRecord record)
+    {
+        for (Handler handler : handlers)
+        {
+            handler.publish(record);
+        }
+    }
+}
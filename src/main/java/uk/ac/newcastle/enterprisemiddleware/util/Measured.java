@@ -0,0 +1,36 @@
+package uk.ac.newcastle.enterprisemiddleware.util;
+
+import javax.enterprise.util.Nonbinding;
+import javax.interceptor.InterceptorBinding;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Times every call to the annotated bean's methods, or to the annotated method, with a Micrometer timer. See
+ * {@link MeasuredInterceptor} for the tags.</p>
+ *
+ * <p>Services and repositories use the default {@value #METHOD} timer, validators {@value #VALIDATOR} and REST
+ * clients {@value #CLIENT}, so each layer can be looked at on its own.</p>
+ *
+ * @author aryamanpatronia
+ * @see MeasuredInterceptor
+ */
+@Inherited
+@InterceptorBinding
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Measured
+{
+    String METHOD = "app.method";
+    String VALIDATOR = "app.validator";
+    String CLIENT = "app.client";
+
+    /**
+     * @return The name of the timer
+     */
+    @Nonbinding
+    String value() default METHOD;
+}
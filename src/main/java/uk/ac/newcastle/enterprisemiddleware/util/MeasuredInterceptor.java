@@ -0,0 +1,84 @@
+package uk.ac.newcastle.enterprisemiddleware.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.arc.ArcInvocationContext;
+import io.smallrye.mutiny.Uni;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.Interceptor;
+import javax.interceptor.InvocationContext;
+import javax.validation.ValidationException;
+
+/**
+ * <p>Records each call to a {@link Measured} method in a timer tagged with class, method, outcome and exception.</p>
+ *
+ * <p>The outcome is {@code success}, {@code rejected} when the call ends in a {@link ValidationException} (the
+ * request broke a rule: bad fields, a taken email, a missing hotel...), or {@code error} for any other exception;
+ * exception names it, or is {@code none}. For a method returning a {@link Uni} the call is timed until the Uni
+ * completes, not until it is returned.</p>
+ *
+ * <p>It runs outside the transaction interceptor, so a {@code @Transactional} method's time includes its commit, and
+ * a failed commit is counted as an error.</p>
+ *
+ * @author aryamanpatronia
+ * @see Measured
+ */
+@Measured
+@Interceptor
+@Priority(Interceptor.Priority.PLATFORM_BEFORE)
+public class MeasuredInterceptor
+{
+    @Inject
+    MeterRegistry registry;
+
+    @AroundInvoke
+    Object measure(InvocationContext context) throws Exception
+    {
+        Timer.Sample sample = Timer.start(registry);
+        Object result;
+        try
+        {
+            result = context.proceed();
+        } catch (Exception | Error e)
+        {
+            record(context, sample, e);
+            throw e;
+        }
+        if (result instanceof Uni)
+        {
+            return ((Uni<?>) result).onTermination().invoke((item, failure, cancelled) -> record(context, sample, failure));
+        }
+        record(context, sample, null);
+        return result;
+    }
+
+    private void record(InvocationContext context, Timer.Sample sample, Throwable failure)
+    {
+        String outcome = failure == null ? "success" : failure instanceof ValidationException ? "rejected" : "error";
+        sample.stop(registry.timer(name(context), Tags.of(
+                "class", className(context),
+                "method", context.getMethod().getName(),
+                "outcome", outcome,
+                "exception", failure == null ? "none" : failure.getClass().getSimpleName())));
+    }
+
+    /**
+     * The class the method is declared on, without the suffix of a generated wrapper such as a REST client's...
+     */
+    private static String className(InvocationContext context)
+    {
+        String name = context.getMethod().getDeclaringClass().getSimpleName();
+        int generated = name.indexOf("$$");
+        return generated > 0 ? name.substring(0, generated) : name;
+    }
+
+    private static String name(InvocationContext context)
+    {
+        Measured measured = ArcInvocationContext.findIterceptorBinding(context, Measured.class);
+        return measured == null ? Measured.METHOD : measured.value();
+    }
+}
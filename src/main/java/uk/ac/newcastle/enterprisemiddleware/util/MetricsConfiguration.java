@@ -0,0 +1,51 @@
+package uk.ac.newcastle.enterprisemiddleware.util;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+
+import javax.enterprise.inject.Produces;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * <p>Publishes percentile histograms for the request timers: every REST resource method
+ * ({@code http.server.requests}, tagged by uri, method and outcome), every outbound HTTP call
+ * ({@code http.client.requests}) and the {@link Measured} REST clients ({@value Measured#CLIENT}).</p>
+ *
+ * <p>Histogram buckets, rather than quantiles worked out in the application, can be added up across instances and
+ * over any time range in Prometheus with histogram_quantile(). The service, repository and validator timers only
+ * keep count, total and max; there are many more of them.</p>
+ *
+ * @author aryamanpatronia
+ * @see Measured
+ */
+@Singleton
+public class MetricsConfiguration
+{
+    private static final Set<String> HISTOGRAMS = Set.of("http.server.requests", "http.client.requests", Measured.CLIENT);
+
+    @Produces
+    @Singleton
+    public MeterFilter requestHistograms()
+    {
+        return new MeterFilter()
+        {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config)
+            {
+                if (!HISTOGRAMS.contains(id.getName()))
+                {
+                    return config;
+                }
+                return DistributionStatisticConfig.builder()
+                        .percentilesHistogram(true)
+                        .minimumExpectedValue((double) Duration.ofMillis(1).toNanos())
+                        .maximumExpectedValue((double) Duration.ofSeconds(30).toNanos())
+                        .build()
+                        .merge(config);
+            }
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package uk.ac.newcastle.enterprisemiddleware.util;
+
+import javax.validation.Constraint;
+import javax.validation.Payload;
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>The annotated String must be a name made only of ASCII letters, hyphens and apostrophes, at least one of them.
+ * Null is valid.</p>
+ *
+ * <p>It accepts exactly what {@code @Pattern(regexp = "[A-Za-z-']+")} did, but is checked by
+ * {@link PersonNameValidator} without a regular expression.</p>
+ *
+ * @author aryamanpatronia
+ * @see PersonNameValidator
+ */
+@Documented
+@Constraint(validatedBy = PersonNameValidator.class)
+@Target({ElementType.FIELD, ElementType.METHOD, ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface PersonName
+{
+    String message() default "Please use a name without numbers or specials";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
@@ -0,0 +1,36 @@
+package uk.ac.newcastle.enterprisemiddleware.util;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+
+/**
+ * <p>Checks a {@link PersonName} one character at a time, without allocating, as it runs for every Customer and
+ * Contact written.</p>
+ *
+ * @author aryamanpatronia
+ * @see PersonName
+ */
+public class PersonNameValidator implements ConstraintValidator<PersonName, CharSequence>
+{
+    @Override
+    public boolean isValid(CharSequence value, ConstraintValidatorContext context)
+    {
+        if (value == null)
+        {
+            return true;
+        }
+        if (value.length() == 0)
+        {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            if (!(c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c == '-' || c == '\''))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,34 @@
+package uk.ac.newcastle.enterprisemiddleware.util;
+
+import javax.validation.Constraint;
+import javax.validation.Payload;
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>The annotated String must be a US phone number written as {@code (NXX) NXX-XXXX}: an area code whose first digit
+ * is 2-9 and second 0-8, in brackets, then an optional single whitespace character, three digits, a hyphen and four
+ * digits. Null is valid.</p>
+ *
+ * <p>It accepts exactly what {@code @Pattern(regexp = "^\\([2-9][0-8][0-9]\\)\\s?[0-9]{3}\\-[0-9]{4}$")} did, and
+ * reports the same message, but is checked by {@link PhoneNumberValidator} without a regular expression.</p>
+ *
+ * @author aryamanpatronia
+ * @see PhoneNumberValidator
+ */
+@Documented
+@Constraint(validatedBy = PhoneNumberValidator.class)
+@Target({ElementType.FIELD, ElementType.METHOD, ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface PhoneNumber
+{
+    // Braces and backslashes are escaped for message interpolation...
+    String message() default "must match \"^\\\\([2-9][0-8][0-9]\\\\)\\\\s?[0-9]\\{3\\}\\\\-[0-9]\\{4\\}$\"";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
@@ -0,0 +1,64 @@
+package uk.ac.newcastle.enterprisemiddleware.util;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+
+/**
+ * <p>Checks a {@link PhoneNumber} one character at a time. It is called for every Customer and Contact written,
+ * including each row of a bulk import, so it makes no allocations and compiles nothing.</p>
+ *
+ * @author aryamanpatronia
+ * @see PhoneNumber
+ */
+public class PhoneNumberValidator implements ConstraintValidator<PhoneNumber, CharSequence>
+{
+    @Override
+    public boolean isValid(CharSequence value, ConstraintValidatorContext context)
+    {
+        if (value == null)
+        {
+            return true;
+        }
+        int length = value.length();
+        if (length != 13 && length != 14)
+        {
+            return false;
+        }
+        if (value.charAt(0) != '(' || !between(value.charAt(1), '2', '9') || !between(value.charAt(2), '0', '8')
+                || !between(value.charAt(3), '0', '9') || value.charAt(4) != ')')
+        {
+            return false;
+        }
+        int i = 5;
+        if (length == 14 && !isWhitespace(value.charAt(i++)))
+        {
+            return false;
+        }
+        return digits(value, i, 3) && value.charAt(i + 3) == '-' && digits(value, i + 4, 4);
+    }
+
+    private static boolean digits(CharSequence value, int start, int count)
+    {
+        for (int i = start; i < start + count; i++)
+        {
+            if (!between(value.charAt(i), '0', '9'))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean between(char c, char low, char high)
+    {
+        return c >= low && c <= high;
+    }
+
+    /**
+     * The characters of the regex class \s, which is narrower than {@link Character#isWhitespace}...
+     */
+    private static boolean isWhitespace(char c)
+    {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -0,0 +1,68 @@
+package uk.ac.newcastle.enterprisemiddleware.util;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.quarkus.runtime.configuration.MemorySize;
+import io.quarkus.vertx.http.runtime.VertxHttpRecorder;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+
+/**
+ * <p>Limits request bodies to {@code app.http.max-body-size}, except for {@code POST /customers/import}, which may
+ * send up to {@code quarkus.http.limits.max-body-size}.</p>
+ *
+ * <p>Quarkus 2.10 has a single body limit, checked by a router handler of its own before any route, so it has to be
+ * set to the largest body any route accepts: the bulk import. This handler runs straight after it and applies the
+ * smaller limit to every other route, the same way: a body whose Content-Length is over the limit is answered with a
+ * 413 and the connection closed, and a chunked body is given the limit that the request's input stream enforces as
+ * it is read.</p>
+ *
+ * @author aryamanpatronia
+ */
+@ApplicationScoped
+public class RequestBodyLimits
+{
+    static final String IMPORT_PATH = "/customers/import";
+
+    // Quarkus's own body limit handler has order -2
+    private static final int ORDER = -1;
+
+    @ConfigProperty(name = "app.http.max-body-size")
+    MemorySize maxBodySize;
+
+    void install(@Observes Router router)
+    {
+        long limit = maxBodySize.asLongValue();
+        router.route().order(ORDER).handler(context ->
+        {
+            if (isImport(context))
+            {
+                context.next();
+                return;
+            }
+            String length = context.request().getHeader(HttpHeaderNames.CONTENT_LENGTH);
+            if (length == null)
+            {
+                context.put(VertxHttpRecorder.MAX_REQUEST_SIZE_KEY, limit);
+            } else if (Long.parseLong(length) > limit)
+            {
+                // Closed rather than read to the end, so the client stops sending
+                context.response().putHeader(HttpHeaderNames.CONNECTION, "close");
+                context.response().endHandler(ended -> context.request().connection().close());
+                context.response().setStatusCode(HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE.code()).end();
+                return;
+            }
+            context.next();
+        });
+    }
+
+    private static boolean isImport(RoutingContext context)
+    {
+        return context.request().method() == HttpMethod.POST && IMPORT_PATH.equals(context.normalizedPath());
+    }
+}
@@ -0,0 +1,40 @@
+package uk.ac.newcastle.enterprisemiddleware.util;
+
+import javax.ws.rs.core.Response;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>A {@link RestServiceException} for a request the client got wrong, such as an id that doesn't exist, rather than
+ * for something that went wrong in the application.</p>
+ *
+ * <p>These are thrown for every 404 and 409, so under scanner traffic there are a great many of them. They carry no
+ * stack trace, which says nothing about a client error and is the dearest part of creating an exception. Where the
+ * message never changes the exception can be created once and thrown every time, like {@link #SIMULATOR_DISABLED};
+ * such shared instances have no reasons, because the reasons map could otherwise be changed by any thrower.</p>
+ *
+ * <p>{@link RestServiceExceptionMapper} maps them to the same response as any other RestServiceException.</p>
+ *
+ * @author aryamanpatronia
+ */
+public class RequestRejectedException extends RestServiceException
+{
+    private static final long serialVersionUID = 4520197433617L;
+
+    /**
+     * Thrown for every /simulator path when the partner simulator is not enabled...
+     */
+    public static final RequestRejectedException SIMULATOR_DISABLED =
+            new RequestRejectedException("The partner simulator is not enabled", Collections.emptyMap(), Response.Status.NOT_FOUND);
+
+    public RequestRejectedException(String msg, Response.Status status)
+    {
+        this(msg, new HashMap<>(), status);
+    }
+
+    public RequestRejectedException(String msg, Map<String, String> reasons, Response.Status status)
+    {
+        super(msg, reasons, status, false);
+    }
+}
@@ -62,6 +62,17 @@ public class RestServiceException extends RuntimeException implements
         this.status = status;
     }
 
+    /**
+     * For subclasses whose exceptions are expected often enough that filling in the stack trace would be wasted work;
+     * see {@link RequestRejectedException}.
+     */
+    protected RestServiceException(String msg, Map<String, String> reasons, Response.Status status,
+                                   boolean writableStackTrace) {
+        super(msg, null, false, writableStackTrace);
+        this.reasons = reasons;
+        this.status = status;
+    }
+
     public Map<String, String> getReasons() {
         return reasons;
     }
@@ -1,5 +1,7 @@
 package uk.ac.newcastle.enterprisemiddleware.util;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.ws.rs.core.Context;
@@ -7,12 +9,20 @@ import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.ExceptionMapper;
 import javax.ws.rs.ext.Provider;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * <p>Handler object to convert {@link RestServiceException} exception into an actual {@link Response} containing JSON
  * so we can get a nice friendly error message, easily parsable by our API clients.</p>
  *
+ * <p>Server errors are logged at SEVERE with their stack trace. Client errors (4xx) are expected, and can come in
+ * floods, so only the first {@code logging.client-errors.per-second} of them in each second are logged, at INFO, each
+ * with a count of those skipped since the last one logged. All of them are logged at FINE.</p>
+ *
  * @author hugofirth
  */
 @Provider
@@ -25,13 +35,46 @@ public class RestServiceExceptionMapper implements ExceptionMapper<RestServiceEx
     @Context
     HttpHeaders headers;
 
+    @ConfigProperty(name = "logging.client-errors.per-second", defaultValue = "10")
+    int clientErrorsPerSecond;
+
+    private final AtomicLong second = new AtomicLong();
+    private final AtomicInteger loggedThisSecond = new AtomicInteger();
+    private final AtomicLong skipped = new AtomicLong();
+
     @Override
     public Response toResponse(final RestServiceException e) {
 
-        log.severe("Mapping RestServiceException with status + \"" + e.getStatus() + "\", message: \"" + e.getMessage()
-                + "\" and stack trace:" + System.getProperty("line.separator") + e);
+        if (e.getStatus().getFamily() == Response.Status.Family.CLIENT_ERROR) {
+            logClientError(e);
+        } else {
+            log.log(Level.SEVERE, "Mapping RestServiceException with status \"" + e.getStatus() + "\" and message: \""
+                    + e.getMessage() + "\"", e);
+        }
 
         Response.ResponseBuilder builder = Response.status(e.getStatus()).entity(new ErrorMessage(e.getMessage(), e.getReasons()));
         return builder.build();
     }
-}
\ No newline at end of file
+
+    private void logClientError(RestServiceException e) {
+        if (log.isLoggable(Level.FINE)) {
+            log.log(Level.FINE, "Mapping RestServiceException with status \"{0}\" and message: \"{1}\"",
+                    new Object[]{e.getStatus(), e.getMessage()});
+            return;
+        }
+        if (!log.isLoggable(Level.INFO)) {
+            return;
+        }
+        long now = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+        long current = second.get();
+        if (now != current && second.compareAndSet(current, now)) {
+            loggedThisSecond.set(0);
+        }
+        if (loggedThisSecond.incrementAndGet() > clientErrorsPerSecond) {
+            skipped.incrementAndGet();
+            return;
+        }
+        log.log(Level.INFO, "Mapping RestServiceException with status \"{0}\" and message: \"{1}\" ({2} more not logged)",
+                new Object[]{e.getStatus(), e.getMessage(), skipped.getAndSet(0)});
+    }
+}
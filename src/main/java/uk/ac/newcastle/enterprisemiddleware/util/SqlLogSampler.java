@@ -0,0 +1,46 @@
+package uk.ac.newcastle.enterprisemiddleware.util;
+
+import io.quarkus.runtime.StartupEvent;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Logs one SQL statement in every {@code logging.sql.sample-every}, rather than all of them or none.</p>
+ *
+ * <p>Hibernate logs each statement to the {@value #CATEGORY} category at debug level. When sampling is on, that
+ * category is opened at debug and a filter lets every Nth record through, so the log shows what the application is
+ * running without writing a line per statement. At 0, the default, the category stays off and Hibernate doesn't build
+ * the records at all. Statements slower than {@code quarkus.hibernate-orm.log.queries-slower-than-ms} are logged
+ * separately, whatever the sampling.</p>
+ *
+ * @author aryamanpatronia
+ */
+@ApplicationScoped
+public class SqlLogSampler
+{
+    static final String CATEGORY = "org.hibernate.SQL";
+
+    @ConfigProperty(name = "logging.sql.sample-every", defaultValue = "0")
+    long sampleEvery;
+
+    private final AtomicLong statements = new AtomicLong();
+
+    // Held so the logger, and the level and filter set on it, can't be garbage collected...
+    private Logger sql;
+
+    void install(@Observes StartupEvent event)
+    {
+        if (sampleEvery <= 0)
+        {
+            return;
+        }
+        sql = Logger.getLogger(CATEGORY);
+        sql.setFilter(record -> statements.getAndIncrement() % sampleEvery == 0);
+        sql.setLevel(Level.FINE);
+    }
+}
@@ -0,0 +1,80 @@
+package uk.ac.newcastle.enterprisemiddleware.area;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * <p>A refresh from the area service adds to and updates the bundled snapshot, but never removes a code from it.</p>
+ *
+ * @author aryamanpatronia
+ */
+class AreaCodeDirectoryTest
+{
+    private AreaCodeDirectory directory;
+    private List<Area> served;
+
+    @BeforeEach
+    void loadSnapshot()
+    {
+        directory = new AreaCodeDirectory();
+        directory.log = Logger.getLogger(AreaCodeDirectoryTest.class.getName());
+        directory.mapper = new ObjectMapper();
+        directory.registry = new SimpleMeterRegistry();
+        directory.areaService = new AreaService()
+        {
+            @Override
+            public List<Area> getAreas()
+            {
+                return served;
+            }
+
+            @Override
+            public Area getAreaById(int id)
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+        directory.loadSnapshot();
+    }
+
+    @Test
+    void partialRefreshKeepsTheOtherCodes()
+    {
+        int before = directory.size();
+        assertNotNull(directory.find(212));
+
+        served = List.of(area(201, "Updated"), area(999, "Added"));
+        directory.refresh();
+
+        assertEquals("Updated", directory.find(201).getState());
+        assertEquals("Added", directory.find(999).getState());
+        assertNotNull(directory.find(212), "A code the service left out was removed");
+        assertEquals(before + 1, directory.size());
+    }
+
+    @Test
+    void emptyRefreshIsIgnored()
+    {
+        int before = directory.size();
+        served = List.of();
+        directory.refresh();
+        assertEquals(before, directory.size());
+    }
+
+    private static Area area(int id, String state)
+    {
+        Area area = new Area();
+        area.setId(id);
+        area.setState(state);
+        area.setAbbr("XX");
+        return area;
+    }
+}
@@ -1,100 +1,218 @@
-//package uk.ac.newcastle.enterprisemiddleware.contact;
-//
-//import io.quarkus.test.common.QuarkusTestResource;
-//import io.quarkus.test.common.http.TestHTTPEndpoint;
-//import io.quarkus.test.h2.H2DatabaseTestResource;
-//import io.quarkus.test.junit.QuarkusTest;
-//import io.restassured.http.ContentType;
-//import io.restassured.response.Response;
-//import org.junit.jupiter.api.*;
-//
-//import java.util.Calendar;
-//
-//import static io.restassured.RestAssured.given;
-//import static io.restassured.RestAssured.when;
-//import static org.hamcrest.CoreMatchers.containsString;
-//import static org.junit.jupiter.api.Assertions.assertEquals;
-//import static org.junit.jupiter.api.Assertions.assertTrue;
-//
-//@QuarkusTest
-//@TestHTTPEndpoint(ContactRestService.class)
-//@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
-//@QuarkusTestResource(H2DatabaseTestResource.class)
-//class ContactRestServiceIntegrationTest {
-//
-//    private static Contact contact;
-//
-//    @BeforeAll
-//    static void setup() {
-//        contact = new Contact();
-//        contact.setFirstName("Test");
-//        contact.setLastName("Account");
-//        contact.setEmail("test@email.com");
-//        contact.setBirthDate(Calendar.getInstance().getTime());
-//        contact.setPhoneNumber("(201) 123-4567");
-//        contact.setState("New Jersey");
-//    }
-//
-//    @Test
-//    @Order(1)
-//    public void testCanCreateContact() {
-//        given().
-//                contentType(ContentType.JSON).
-//                body(contact).
-//        when()
-//                .post().
-//        then().
-//                statusCode(201);
-//    }
-//
-//    @Test
-//    @Order(2)
-//    public void testCanGetContacts() {
-//        Response response = when().
-//                get().
-//        then().
-//                statusCode(200).
-//                extract().response();
-//
-//        Contact[] result = response.body().as(Contact[].class);
-//
-//        System.out.println(result[0]);
-//
-//        assertEquals(1, result.length);
-//        assertTrue(contact.getFirstName().equals(result[0].getFirstName()), "First name not equal");
-//        assertTrue(contact.getLastName().equals(result[0].getLastName()), "Last name not equal");
-//        assertTrue(contact.getEmail().equals(result[0].getEmail()), "Email not equal");
-//        assertTrue(contact.getState().equals(result[0].getState()), "State not equal Expected " + contact.getState() + " Got " + result[0].getState());
-//        assertTrue(contact.getPhoneNumber().equals(result[0].getPhoneNumber()), "Phone number not equal");
-//    }
-//
-//    @Test
-//    @Order(3)
-//    public void testDuplicateEmailCausesError() {
-//        given().
-//                contentType(ContentType.JSON).
-//                body(contact).
-//        when().
-//                post().
-//        then().
-//                statusCode(409).
-//                body("reasons.email", containsString("email is already used"));
-//    }
-//
-//    @Test
-//    @Order(4)
-//    public void testCanDeleteContact() {
-//        Response response = when().
-//                get().
-//                then().
-//                statusCode(200).
-//                extract().response();
-//
-//        Contact[] result = response.body().as(Contact[].class);
-//
-//        when().
-//                delete(result[0].getId().toString()).
-//        then().
-//                statusCode(204);
-//    }
-//}
\ No newline at end of file
+package uk.ac.newcastle.enterprisemiddleware.contact;
+
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.common.http.TestHTTPEndpoint;
+import io.quarkus.test.h2.H2DatabaseTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import org.junit.jupiter.api.*;
+
+import java.util.Calendar;
+
+import static io.restassured.RestAssured.given;
+import static io.restassured.RestAssured.when;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@QuarkusTest
+@TestHTTPEndpoint(ContactRestService.class)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@QuarkusTestResource(H2DatabaseTestResource.class)
+class ContactRestServiceIntegrationTest {
+
+    private static Contact contact;
+
+    @BeforeAll
+    static void setup() {
+        contact = newContact("Test", "Account", "test@email.com", "(201) 123-4567");
+    }
+
+    private static Contact newContact(String firstName, String lastName, String email, String phoneNumber) {
+        Calendar birthDate = Calendar.getInstance();
+        birthDate.add(Calendar.YEAR, -30);
+
+        Contact contact = new Contact();
+        contact.setFirstName(firstName);
+        contact.setLastName(lastName);
+        contact.setEmail(email);
+        contact.setBirthDate(birthDate.getTime());
+        contact.setPhoneNumber(phoneNumber);
+        return contact;
+    }
+
+    @Test
+    @Order(1)
+    public void testCanCreateContact() {
+        given().
+                contentType(ContentType.JSON).
+                body(contact).
+        when()
+                .post().
+        then().
+                statusCode(201);
+    }
+
+    @Test
+    @Order(2)
+    public void testCanGetContacts() {
+        Response response = when().
+                get().
+        then().
+                statusCode(200).
+                extract().response();
+
+        Contact[] result = response.body().as(Contact[].class);
+
+        assertEquals(1, result.length);
+        assertTrue(contact.getFirstName().equals(result[0].getFirstName()), "First name not equal");
+        assertTrue(contact.getLastName().equals(result[0].getLastName()), "Last name not equal");
+        assertTrue(contact.getEmail().equals(result[0].getEmail()), "Email not equal");
+        // The state comes from the phone number's area code
+        assertTrue("New Jersey".equals(result[0].getState()), "State not equal Expected New Jersey Got " + result[0].getState());
+        assertTrue(contact.getPhoneNumber().equals(result[0].getPhoneNumber()), "Phone number not equal");
+    }
+
+    @Test
+    @Order(3)
+    public void testDuplicateEmailCausesError() {
+        given().
+                contentType(ContentType.JSON).
+                body(contact).
+        when().
+                post().
+        then().
+                statusCode(409).
+                body("reasons.email", containsString("email is already used"));
+    }
+
+    @Test
+    @Order(4)
+    public void testCanDeleteContact() {
+        Response response = when().
+                get().
+                then().
+                statusCode(200).
+                extract().response();
+
+        Contact[] result = response.body().as(Contact[].class);
+
+        when().
+                delete(result[0].getId().toString()).
+        then().
+                statusCode(204);
+    }
+
+    @Test
+    @Order(5)
+    public void testCanSearchByNamePrefix() {
+        String[][] names = {{"Anna", "Pager"}, {"Anne", "Pager"}, {"Bob", "Pager"}, {"Anna", "Pagett"}, {"Anna", "Smith"}};
+        for (int i = 0; i < names.length; i++) {
+            given().
+                    contentType(ContentType.JSON).
+                    body(newContact(names[i][0], names[i][1], "search" + i + "@email.com", "(201) 123-456" + i)).
+            when().
+                    post().
+            then().
+                    statusCode(201);
+        }
+
+        given().
+                queryParam("lastname", "Page").
+        when().
+                get().
+        then().
+                statusCode(200).
+                body("firstName", contains("Anna", "Anne", "Bob", "Anna")).
+                body("lastName", contains("Pager", "Pager", "Pager", "Pagett"));
+
+        given().
+                queryParam("firstname", "Ann").
+                queryParam("lastname", "Pager").
+        when().
+                get().
+        then().
+                statusCode(200).
+                body("firstName", contains("Anna", "Anne"));
+    }
+
+    @Test
+    @Order(6)
+    public void testSearchTreatsWildcardsAsText() {
+        given().
+                queryParam("lastname", "%").
+        when().
+                get().
+        then().
+                statusCode(200).
+                body("$", empty());
+    }
+
+    @Test
+    @Order(7)
+    public void testCanPageThroughResults() {
+        given().
+                queryParam("lastname", "Page").
+                queryParam("size", 2).
+        when().
+                get().
+        then().
+                statusCode(200).
+                body("firstName", contains("Anna", "Anne"));
+
+        given().
+                queryParam("lastname", "Page").
+                queryParam("size", 2).
+                queryParam("page", 1).
+        when().
+                get().
+        then().
+                statusCode(200).
+                body("firstName", contains("Bob", "Anna")).
+                body("lastName", contains("Pager", "Pagett"));
+
+        given().
+                queryParam("lastname", "Page").
+                queryParam("size", 2).
+                queryParam("page", 2).
+        when().
+                get().
+        then().
+                statusCode(200).
+                body("$", empty());
+    }
+
+    @Test
+    @Order(8)
+    public void testPageBeyondTheLastIsEmpty() {
+        given().
+                queryParam("page", Integer.MAX_VALUE).
+                queryParam("size", 100).
+        when().
+                get().
+        then().
+                statusCode(200).
+                body("$", empty());
+    }
+
+    @Test
+    @Order(9)
+    public void testInvalidPagingIsBadRequest() {
+        given().
+                queryParam("size", 101).
+        when().
+                get().
+        then().
+                statusCode(400);
+
+        given().
+                queryParam("page", -1).
+        when().
+                get().
+        then().
+                statusCode(400);
+    }
+}
@@ -0,0 +1,79 @@
+package uk.ac.newcastle.enterprisemiddleware.guestbooking;
+
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.h2.H2DatabaseTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import io.restassured.response.ValidatableResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * <p>A returning guest is only taken to be the customer with their email if their name and phone number match too.</p>
+ *
+ * @author aryamanpatronia
+ */
+@QuarkusTest
+@QuarkusTestResource(H2DatabaseTestResource.class)
+class GuestBookingRestServiceTest
+{
+    private long hotelId;
+    private String email;
+
+    @BeforeEach
+    void bookOnce()
+    {
+        hotelId = given()
+                .contentType(ContentType.JSON)
+                .body("{\"hotelName\":\"Guests " + System.nanoTime() % 100000 + "\",\"hotelLocation\":\"Newcastle\"}")
+        .when()
+                .post("/hotels")
+        .then()
+                .statusCode(201)
+                .extract().jsonPath().getLong("id");
+        email = "guest" + hotelId + "@example.com";
+        book("Guest", phone(), "2031-01-01").statusCode(201);
+    }
+
+    @Test
+    void matchingGuestBooksAsTheCustomer()
+    {
+        book("GUEST", phone().replace(" ", ""), "2031-02-01")
+                .statusCode(201)
+                .body("customer.customerName", equalTo("GUEST"))
+                .body("customer.customerPhoneNumber", equalTo(phone().replace(" ", "")));
+    }
+
+    @Test
+    void differentNameIsAConflict()
+    {
+        book("Someoneelse", phone(), "2031-02-01").statusCode(409);
+    }
+
+    @Test
+    void differentPhoneNumberIsAConflict()
+    {
+        book("Guest", "(212) 555-0000", "2031-02-01").statusCode(409);
+    }
+
+    private String phone()
+    {
+        return "(212) 555-" + (1000 + hotelId % 9000);
+    }
+
+    private ValidatableResponse book(String name, String phone, String checkinDate)
+    {
+        return given()
+                .contentType(ContentType.JSON)
+                .body("{\"customer\":{\"customerName\":\"" + name + "\",\"customerEmail\":\"" + email
+                        + "\",\"customerPhoneNumber\":\"" + phone + "\"},"
+                        + "\"booking\":{\"hotel\":{\"id\":" + hotelId + "},\"bookingDurationDays\":2,"
+                        + "\"checkinDate\":\"" + checkinDate + "\"}}")
+        .when()
+                .post("/guest-booking")
+        .then();
+    }
+}
@@ -0,0 +1,92 @@
+package uk.ac.newcastle.enterprisemiddleware.guestbooking;
+
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.h2.H2DatabaseTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>A guest booking takes at most three statements, for a new guest and for a returning one. Counted with the
+ * Hibernate statistics, which the Micrometer binding turns on.</p>
+ *
+ * @author aryamanpatronia
+ */
+@QuarkusTest
+@QuarkusTestResource(H2DatabaseTestResource.class)
+class GuestBookingStatementsTest
+{
+    private static final long MAX_STATEMENTS = 3;
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    private long hotelId;
+
+    @BeforeEach
+    void createHotel()
+    {
+        hotelId = given()
+                .contentType(ContentType.JSON)
+                .body("{\"hotelName\":\"Statements " + System.nanoTime() % 100000 + "\",\"hotelLocation\":\"Newcastle\"}")
+        .when()
+                .post("/hotels")
+        .then()
+                .statusCode(201)
+                .extract().jsonPath().getLong("id");
+        // The first booking also loads the hotel into the second-level cache and allocates booking ids...
+        book("Warmup", "warmup" + hotelId + "@example.com", "(212) 555-" + (1000 + hotelId % 9000), "2031-01-01");
+    }
+
+    @Test
+    void newGuest()
+    {
+        long statements = statementsFor(() ->
+                book("Newguest", "new" + hotelId + "@example.com", "(213) 555-" + (1000 + hotelId % 9000), "2031-02-01"));
+        assertTrue(statements <= MAX_STATEMENTS, "A new guest's booking took " + statements + " statements");
+    }
+
+    @Test
+    void returningGuest()
+    {
+        String email = "returning" + hotelId + "@example.com";
+        String phone = "(214) 555-" + (1000 + hotelId % 9000);
+        book("Returning", email, phone, "2031-03-01");
+
+        long statements = statementsFor(() -> book("Returning", email, phone, "2031-04-01"));
+        assertTrue(statements <= MAX_STATEMENTS, "A returning guest's booking took " + statements + " statements");
+    }
+
+    private long statementsFor(Runnable request)
+    {
+        Statistics statistics = sessionFactory.getStatistics();
+        assertTrue(statistics.isStatisticsEnabled(), "The Hibernate statistics are off");
+        long before = statistics.getPrepareStatementCount();
+        request.run();
+        long statements = statistics.getPrepareStatementCount() - before;
+        assertTrue(statements > 0, "No statements were counted");
+        return statements;
+    }
+
+    private void book(String name, String email, String phone, String checkinDate)
+    {
+        given()
+                .contentType(ContentType.JSON)
+                .body("{\"customer\":{\"customerName\":\"" + name + "\",\"customerEmail\":\"" + email
+                        + "\",\"customerPhoneNumber\":\"" + phone + "\"},"
+                        + "\"booking\":{\"hotel\":{\"id\":" + hotelId + "},\"bookingDurationDays\":2,"
+                        + "\"checkinDate\":\"" + checkinDate + "\"}}")
+        .when()
+                .post("/guest-booking")
+        .then()
+                .statusCode(201);
+    }
+}
@@ -0,0 +1,151 @@
+package uk.ac.newcastle.enterprisemiddleware.travelagent;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.h2.H2DatabaseTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.newcastle.enterprisemiddleware.simulator.PartnerSimulator;
+import uk.ac.newcastle.enterprisemiddleware.simulator.SimulatorBehaviour;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.UserTransaction;
+import java.time.Duration;
+import java.time.Instant;
+
+import static io.restassured.RestAssured.given;
+import static io.restassured.RestAssured.when;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * <p>The reconciler cancels partner bookings that the ledger says were issued but that no travel agent booking
+ * holds, and reports what it did.</p>
+ *
+ * @author aryamanpatronia
+ */
+@QuarkusTest
+@QuarkusTestResource(H2DatabaseTestResource.class)
+class OrphanedBookingReconcilerTest
+{
+    private static final long UNKNOWN_BOOKING = Long.MAX_VALUE;
+
+    @Inject
+    OrphanedBookingReconciler reconciler;
+
+    @Inject
+    PartnerSimulator simulator;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    UserTransaction transaction;
+
+    @ConfigProperty(name = "travelagent.reconciler.grace-period")
+    Duration gracePeriod;
+
+    @ConfigProperty(name = "travelagent.reconciler.max-attempts")
+    int maxAttempts;
+
+    private SimulatorBehaviour flight;
+
+    @BeforeEach
+    void keepBehaviour()
+    {
+        flight = simulator.behaviour(PartnerSimulator.FLIGHT);
+    }
+
+    @AfterEach
+    void restoreBehaviour()
+    {
+        simulator.changeBehaviour(PartnerSimulator.FLIGHT, flight);
+    }
+
+    @Test
+    void orphansAreCancelled() throws Exception
+    {
+        // Issued well before the grace period: two taxis the partner still holds, one for a booking that is gone...
+        long taxiId = bookTaxi();
+        long goneTaxiId = bookTaxi();
+        Long taxi = seed(TravelAgentPartner.TAXI, taxiId, null, 0);
+        Long goneTaxi = seed(TravelAgentPartner.TAXI, goneTaxiId, UNKNOWN_BOOKING, 0);
+        // ...and two flights the partner fails to cancel, one of them on its last attempt
+        Long flightEntry = seed(TravelAgentPartner.FLIGHT, UNKNOWN_BOOKING - 1, null, 0);
+        Long lastFlight = seed(TravelAgentPartner.FLIGHT, UNKNOWN_BOOKING - 2, null, maxAttempts - 1);
+        simulator.changeBehaviour(PartnerSimulator.FLIGHT, new SimulatorBehaviour(0, 0, 1.0, 0));
+
+        double found = orphans("found");
+        double released = orphans("released");
+        double failed = orphans("failed");
+        double abandoned = orphans("abandoned");
+
+        OrphanedBookingReconciler.Report report = reconciler.reconcile();
+
+        assertEquals(4, report.getFound());
+        assertEquals(2, report.getReleased());
+        assertEquals(2, report.getFailed());
+        assertEquals(4, orphans("found") - found);
+        assertEquals(2, orphans("released") - released);
+        assertEquals(1, orphans("failed") - failed);
+        assertEquals(1, orphans("abandoned") - abandoned);
+
+        em.clear();
+        assertEquals(PartnerLedgerState.RELEASED, em.find(PartnerLedgerEntry.class, taxi).getState());
+        assertEquals(PartnerLedgerState.RELEASED, em.find(PartnerLedgerEntry.class, goneTaxi).getState());
+        PartnerLedgerEntry retried = em.find(PartnerLedgerEntry.class, flightEntry);
+        assertEquals(PartnerLedgerState.ISSUED, retried.getState());
+        assertEquals(1, retried.getCancelAttempts());
+        assertNotNull(retried.getLastError());
+        assertEquals(PartnerLedgerState.ABANDONED, em.find(PartnerLedgerEntry.class, lastFlight).getState());
+
+        // The taxis really were cancelled at the partner
+        when().delete("/simulator/taxi/taxis/bookings/" + taxiId).then().statusCode(404);
+        when().delete("/simulator/taxi/taxis/bookings/" + goneTaxiId).then().statusCode(404);
+
+        // Only the orphan that can still be retried is left for the next pass
+        assertEquals(1, reconciler.reconcile().getFound());
+    }
+
+    private Long seed(TravelAgentPartner partner, Long remoteBookingId, Long travelAgentBookingId, int cancelAttempts)
+            throws Exception
+    {
+        PartnerLedgerEntry entry = new PartnerLedgerEntry();
+        entry.setPartner(partner);
+        entry.setRemoteBookingId(remoteBookingId);
+        entry.setTravelAgentBookingId(travelAgentBookingId);
+        entry.setState(PartnerLedgerState.ISSUED);
+        entry.setIssuedAt(Instant.now().minus(gracePeriod).minus(Duration.ofHours(1)));
+        entry.setCancelAttempts(cancelAttempts);
+
+        transaction.begin();
+        em.persist(entry);
+        transaction.commit();
+        return entry.getId();
+    }
+
+    private static long bookTaxi()
+    {
+        return given()
+                .contentType(ContentType.JSON)
+                .body("{}")
+        .when()
+                .post("/simulator/taxi/taxis/bookings")
+        .then()
+                .statusCode(201)
+                .extract().as(Long.class);
+    }
+
+    private double orphans(String outcome)
+    {
+        return registry.counter("travelagent.reconciler.orphans", "outcome", outcome).count();
+    }
+}
@@ -0,0 +1,132 @@
+package uk.ac.newcastle.enterprisemiddleware.travelagent;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.h2.H2DatabaseTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>Taxi calls to a {@link PartnerTlsStub TLS partner} reuse a few pooled keep-alive connections instead of making
+ * a handshake each, waiting for one when the pool is busy, and every connection permit is given back, hedged
+ * cancellations included.</p>
+ *
+ * @author aryamanpatronia
+ */
+@QuarkusTest
+@QuarkusTestResource(H2DatabaseTestResource.class)
+@QuarkusTestResource(value = PartnerTlsStub.class, restrictToAnnotatedClass = true)
+class PartnerConnectionPoolTest
+{
+    private static final int BATCHES = 3;
+    private static final int BATCH_SIZE = 100;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    PartnerLatencyTracker latency;
+
+    // Set by PartnerTlsStub: the TLS connections it has accepted
+    AtomicInteger stubConnections;
+
+    @Test
+    void batchesReuseThePooledConnections()
+    {
+        long hotelId = TravelAgentTests.createHotel("Pooled");
+        // The first booking sets the pools up
+        book(hotelId, 1);
+        Timer wait = registry.get("travelagent.partner.connections.wait").tag("partner", "taxi").timer();
+        int before = stubConnections.get();
+        long waitsBefore = wait.count();
+        double waitedBefore = wait.totalTime(TimeUnit.MILLISECONDS);
+        for (int i = 0; i < BATCHES; i++)
+        {
+            assertTrue(book(hotelId, BATCH_SIZE).stream().allMatch(status -> 201 == (Integer) status.get("status")));
+        }
+
+        int opened = stubConnections.get() - before;
+        assertTrue(opened <= PartnerTlsStub.CONNECTIONS,
+                BATCHES * BATCH_SIZE + " taxi bookings opened " + opened + " connections, more than the pool holds");
+        // A batch books 16 requests at a time, so with 4 connections they took turns: on average each waited for at
+        // least one other booking to finish
+        double meanWait = (wait.totalTime(TimeUnit.MILLISECONDS) - waitedBefore) / (wait.count() - waitsBefore);
+        assertTrue(meanWait >= PartnerTlsStub.CREATE_MILLIS, "Waited " + meanWait + "ms on average for a connection");
+    }
+
+    @Test
+    void hedgedCancellationsGiveTheirPermitsBack() throws InterruptedException
+    {
+        long hotelId = TravelAgentTests.createHotel("Hedged");
+        // Enough cancellations for the tracker to know the p95, and the slice they are in closed, as the scheduler
+        // would every travelagent.partner.latency.slice
+        cancel(book(hotelId, PartnerTlsStub.HEDGE_MIN_SAMPLES * 2));
+        latency.rotate();
+
+        cancel(book(hotelId, BATCH_SIZE));
+        assertTrue(registry.get("travelagent.partner.hedges").tag("partner", "taxi").counter().count() > 0,
+                "No cancellation was slow enough to be hedged");
+
+        // The requests that lost their race are cancelled, and give their permits back as they unwind
+        for (int tries = 0; tries < 50 && permits("active") + permits("pending") > 0; tries++)
+        {
+            Thread.sleep(20);
+        }
+        assertEquals(0, permits("active"));
+        assertEquals(0, permits("pending"));
+    }
+
+    private double permits(String state)
+    {
+        return registry.get("travelagent.partner.connections").tag("partner", "taxi").tag("state", state).gauge().value();
+    }
+
+    /**
+     * @return The result of each booking of the batch
+     */
+    private static List<Map<String, Object>> book(long hotelId, int size)
+    {
+        String batch = "[" + String.join(",", Collections.nCopies(size, TravelAgentTests.bookingRequest(1L, hotelId))) + "]";
+        return given()
+                .contentType(ContentType.JSON)
+                .body(batch)
+        .when()
+                .post("/travelagent/bookings/batch")
+        .then()
+                .statusCode(200)
+                .extract().jsonPath().getList("$");
+    }
+
+    private static void cancel(List<Map<String, Object>> results)
+    {
+        List<Object> ids = new ArrayList<>();
+        for (Map<String, Object> result : results)
+        {
+            assertEquals(201, result.get("status"));
+            ids.add(((Map<?, ?>) result.get("booking")).get("id"));
+        }
+        Map<String, String> outcomes = given()
+                .contentType(ContentType.JSON)
+                .body(ids)
+        .when()
+                .post("/travelagent/bookings/cancel")
+        .then()
+                .statusCode(200)
+                .extract().jsonPath().getMap("$", String.class, String.class);
+        assertTrue(outcomes.values().stream().allMatch("CANCELLED"::equals), "Not all cancelled: " + outcomes);
+    }
+}
@@ -0,0 +1,104 @@
+package uk.ac.newcastle.enterprisemiddleware.travelagent;
+
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.h2.H2DatabaseTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.faulttolerance.api.CircuitBreakerMaintenance;
+import io.smallrye.faulttolerance.api.CircuitBreakerState;
+import org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException;
+import org.eclipse.microprofile.faulttolerance.exceptions.TimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.newcastle.enterprisemiddleware.simulator.PartnerSimulator;
+import uk.ac.newcastle.enterprisemiddleware.simulator.SimulatorBehaviour;
+
+import javax.inject.Inject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>The guards on the partner calls, against the simulator: only a partner that is failing or too slow counts
+ * against its circuit breaker, not one that answers with a 4xx.</p>
+ *
+ * @author aryamanpatronia
+ */
+@QuarkusTest
+@QuarkusTestResource(H2DatabaseTestResource.class)
+class PartnerGatewayTest
+{
+    // More calls than the breakers' requestVolumeThreshold
+    private static final int CALLS = 25;
+    private static final long UNKNOWN_BOOKING = Long.MAX_VALUE;
+
+    @Inject
+    PartnerGateway gateway;
+
+    @Inject
+    CircuitBreakerMaintenance breakers;
+
+    @Inject
+    PartnerSimulator simulator;
+
+    private SimulatorBehaviour taxi;
+
+    @BeforeEach
+    void keepBehaviour()
+    {
+        taxi = simulator.behaviour(PartnerSimulator.TAXI);
+        simulator.changeBehaviour(PartnerSimulator.TAXI, new SimulatorBehaviour(0, 0, 0, 0));
+        breakers.resetAll();
+    }
+
+    @AfterEach
+    void restoreBehaviour()
+    {
+        simulator.changeBehaviour(PartnerSimulator.TAXI, taxi);
+        breakers.resetAll();
+    }
+
+    @Test
+    void alreadyCancelledBookingsLeaveTheBreakerClosed()
+    {
+        for (int i = 0; i < CALLS; i++)
+        {
+            Throwable failure = cancelFailure();
+            assertTrue(PartnerGateway.isNotFound(failure), "Expected a 404, got " + failure);
+        }
+        assertEquals(CircuitBreakerState.CLOSED, breakers.currentState(GuardedPartnerClients.TAXI_CANCEL));
+    }
+
+    @Test
+    void failingPartnerOpensTheBreaker()
+    {
+        simulator.changeBehaviour(PartnerSimulator.TAXI, new SimulatorBehaviour(0, 0, 1.0, 0));
+        for (int i = 0; i < CALLS; i++)
+        {
+            cancelFailure();
+        }
+        assertEquals(CircuitBreakerState.OPEN, breakers.currentState(GuardedPartnerClients.TAXI_CANCEL));
+        assertInstanceOf(CircuitBreakerOpenException.class, cancelFailure());
+    }
+
+    @Test
+    void slowPartnerTimesOut()
+    {
+        simulator.changeBehaviour(PartnerSimulator.TAXI, new SimulatorBehaviour(6000, 6000, 0, 0));
+        Throwable failure = gateway.createTaxiBooking(new TaxiBookingRequest("NE1 4ST", 2))
+                .onItem().transform(response -> (Throwable) null)
+                .onFailure().recoverWithItem(f -> f)
+                .await().indefinitely();
+        assertTrue(PartnerGateway.isRejection(failure), "Expected a rejection, got " + failure);
+        assertInstanceOf(TimeoutException.class, failure);
+    }
+
+    private Throwable cancelFailure()
+    {
+        return gateway.cancelBooking(TravelAgentPartner.TAXI, UNKNOWN_BOOKING)
+                .onItem().transform(response -> (Throwable) null)
+                .onFailure().recoverWithItem(f -> f)
+                .await().indefinitely();
+    }
+}
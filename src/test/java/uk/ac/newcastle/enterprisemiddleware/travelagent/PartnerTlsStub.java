@@ -0,0 +1,115 @@
+package uk.ac.newcastle.enterprisemiddleware.travelagent;
+
+import io.quarkus.test.common.QuarkusTestResourceLifecycleManager;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.net.PfxOptions;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>A taxi service over TLS on a local port, for the tests that look at the partner connections: the simulator is
+ * plain HTTP and shares the application's own server, so it can't show how many connections the client opens.</p>
+ *
+ * <p>Creates answer after {@link #CREATE_MILLIS}. Cancels answer after {@link #CANCEL_MILLIS}, except one in every
+ * {@link #SLOW_CANCEL_EVERY}, which takes {@link #SLOW_CANCEL_MILLIS}: few enough to stay above the p95, so those
+ * are the ones that get hedged. The TLS connections it accepts are counted in the {@link AtomicInteger} field of the
+ * test.</p>
+ *
+ * <p>The TaxiClient is pointed at it with a pool of {@link #CONNECTIONS}, trusting the stub's self-signed certificate
+ * for localhost (src/test/resources/tls), and hedging starts after {@link #HEDGE_MIN_SAMPLES} calls. Half as many
+ * bookings are cancelled at once as there are connections, as a hedged cancellation can hold two.</p>
+ *
+ * @author aryamanpatronia
+ */
+public class PartnerTlsStub implements QuarkusTestResourceLifecycleManager
+{
+    static final int CONNECTIONS = 4;
+    static final int HEDGE_MIN_SAMPLES = 5;
+    static final long CREATE_MILLIS = 20;
+    static final long CANCEL_MILLIS = 5;
+    static final long SLOW_CANCEL_MILLIS = 400;
+    static final int SLOW_CANCEL_EVERY = 25;
+
+    private static final String CLIENT = "quarkus.rest-client.\"uk.ac.newcastle.enterprisemiddleware.travelagent.TaxiClient\".";
+
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicLong bookings = new AtomicLong();
+    private final AtomicLong cancels = new AtomicLong();
+
+    private Vertx vertx;
+    private HttpServer server;
+
+    @Override
+    public Map<String, String> start()
+    {
+        vertx = Vertx.vertx();
+        HttpServerOptions options = new HttpServerOptions()
+                .setSsl(true)
+                .setPfxKeyCertOptions(new PfxOptions().setPath("tls/partner-stub-keystore.p12").setPassword("partner-stub"));
+        try
+        {
+            server = vertx.createHttpServer(options)
+                    .connectionHandler(connection -> connections.incrementAndGet())
+                    .requestHandler(this::answer)
+                    .listen(0, "localhost")
+                    .toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        } catch (Exception e)
+        {
+            throw new IllegalStateException("The partner TLS stub did not start", e);
+        }
+
+        return Map.of(
+                CLIENT + "url", "https://localhost:" + server.actualPort(),
+                CLIENT + "trust-store", "classpath:tls/partner-stub-truststore.p12",
+                CLIENT + "trust-store-password", "partner-stub",
+                CLIENT + "trust-store-type", "PKCS12",
+                "travelagent.partner.taxi.connections", Integer.toString(CONNECTIONS),
+                "travelagent.cancel.concurrency", Integer.toString(CONNECTIONS / 2),
+                "travelagent.partner.timeout.min-samples", Integer.toString(HEDGE_MIN_SAMPLES));
+    }
+
+    @Override
+    public void inject(TestInjector testInjector)
+    {
+        testInjector.injectIntoFields(connections, new TestInjector.MatchesType(AtomicInteger.class));
+    }
+
+    @Override
+    public void stop()
+    {
+        if (vertx != null)
+        {
+            vertx.close();
+        }
+    }
+
+    private void answer(HttpServerRequest request)
+    {
+        // The body of a create has to be read before answering, or the connection can't be used again
+        request.body(body ->
+        {
+            if (request.method() == HttpMethod.POST && request.path().equals("/taxis/bookings"))
+            {
+                long id = bookings.incrementAndGet();
+                vertx.setTimer(CREATE_MILLIS, timer -> request.response()
+                        .setStatusCode(201)
+                        .putHeader("Content-Type", "application/json")
+                        .end(Long.toString(id)));
+            } else if (request.method() == HttpMethod.DELETE && request.path().startsWith("/taxis/bookings/"))
+            {
+                long delay = cancels.incrementAndGet() % SLOW_CANCEL_EVERY == 0 ? SLOW_CANCEL_MILLIS : CANCEL_MILLIS;
+                vertx.setTimer(delay, timer -> request.response().setStatusCode(204).end());
+            } else
+            {
+                request.response().setStatusCode(404).end();
+            }
+        });
+    }
+}
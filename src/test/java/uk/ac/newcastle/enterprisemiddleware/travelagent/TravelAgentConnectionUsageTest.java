@@ -0,0 +1,127 @@
+package uk.ac.newcastle.enterprisemiddleware.travelagent;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.h2.H2DatabaseTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.newcastle.enterprisemiddleware.simulator.PartnerSimulator;
+import uk.ac.newcastle.enterprisemiddleware.simulator.SimulatorBehaviour;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * <p>No database connection is held while the taxi and flight services answer, so however slow they get, the
+ * bookings waiting on them use none of the datasource pool. Measured on the Agroal active connection gauge.</p>
+ *
+ * @author aryamanpatronia
+ */
+@QuarkusTest
+@QuarkusTestResource(H2DatabaseTestResource.class)
+class TravelAgentConnectionUsageTest
+{
+    private static final int CONCURRENT_BOOKINGS = 10;
+    // Only sample once every booking has started its saga, and stop before any has its partners' answers
+    private static final long SETTLE_MILLIS = 400;
+
+    @Inject
+    PartnerSimulator simulator;
+
+    @Inject
+    MeterRegistry registry;
+
+    private SimulatorBehaviour taxi;
+    private SimulatorBehaviour flight;
+
+    @BeforeEach
+    void keepBehaviour()
+    {
+        taxi = simulator.behaviour(PartnerSimulator.TAXI);
+        flight = simulator.behaviour(PartnerSimulator.FLIGHT);
+    }
+
+    @AfterEach
+    void restoreBehaviour()
+    {
+        simulator.changeBehaviour(PartnerSimulator.TAXI, taxi);
+        simulator.changeBehaviour(PartnerSimulator.FLIGHT, flight);
+    }
+
+    @Test
+    void connectionsStayFlatAsPartnersSlowDown() throws Exception
+    {
+        long hotelId = TravelAgentTests.createHotel("Connections");
+        Gauge active = registry.find("agroal.active.count").gauge();
+        assertNotNull(active, "The Agroal pool metrics are not published");
+        // Warm the database path up first, so every saga has started by the time sampling begins...
+        peakActiveConnections(hotelId, 0, active);
+
+        for (long latencyMillis : new long[]{1000, 2000, 4000})
+        {
+            double peak = peakActiveConnections(hotelId, latencyMillis, active);
+            assertEquals(0, peak, "Connections were held while the partners took " + latencyMillis + "ms");
+        }
+    }
+
+    /**
+     * Makes concurrent bookings with the partners taking the given time, and returns the most connections seen in use
+     * while they were waiting on the partners...
+     */
+    private double peakActiveConnections(long hotelId, long latencyMillis, Gauge active) throws Exception
+    {
+        simulator.changeBehaviour(PartnerSimulator.TAXI, new SimulatorBehaviour(latencyMillis, latencyMillis, 0, 0));
+        simulator.changeBehaviour(PartnerSimulator.FLIGHT, new SimulatorBehaviour(latencyMillis, latencyMillis, 0, 0));
+
+        ExecutorService clients = Executors.newFixedThreadPool(CONCURRENT_BOOKINGS);
+        try
+        {
+            long start = System.nanoTime();
+            List<CompletableFuture<Integer>> bookings = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_BOOKINGS; i++)
+            {
+                bookings.add(CompletableFuture.supplyAsync(() -> book(hotelId), clients));
+            }
+
+            double peak = 0;
+            Thread.sleep(SETTLE_MILLIS);
+            while (System.nanoTime() - start < (latencyMillis - SETTLE_MILLIS) * 1_000_000)
+            {
+                peak = Math.max(peak, active.value());
+                Thread.sleep(5);
+            }
+
+            for (CompletableFuture<Integer> booking : bookings)
+            {
+                assertEquals(201, booking.get());
+            }
+            return peak;
+        } finally
+        {
+            clients.shutdown();
+        }
+    }
+
+    private static int book(long hotelId)
+    {
+        return given()
+                .contentType(ContentType.JSON)
+                .body(TravelAgentTests.bookingRequest(1L, hotelId))
+        .when()
+                .post("/travelagent/bookings/async")
+        .then()
+                .extract().statusCode();
+    }
+}
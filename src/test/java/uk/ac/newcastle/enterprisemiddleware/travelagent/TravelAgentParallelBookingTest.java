@@ -0,0 +1,81 @@
+package uk.ac.newcastle.enterprisemiddleware.travelagent;
+
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.h2.H2DatabaseTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.newcastle.enterprisemiddleware.simulator.PartnerSimulator;
+import uk.ac.newcastle.enterprisemiddleware.simulator.SimulatorBehaviour;
+
+import javax.inject.Inject;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>The taxi and flight are booked at the same time, so a travel agent booking takes about as long as the slower of
+ * the two partners rather than both added together.</p>
+ *
+ * @author aryamanpatronia
+ */
+@QuarkusTest
+@QuarkusTestResource(H2DatabaseTestResource.class)
+class TravelAgentParallelBookingTest
+{
+    private static final long TAXI_MILLIS = 800;
+    private static final long FLIGHT_MILLIS = 1000;
+
+    @Inject
+    PartnerSimulator simulator;
+
+    private SimulatorBehaviour taxi;
+    private SimulatorBehaviour flight;
+
+    @BeforeEach
+    void keepBehaviour()
+    {
+        taxi = simulator.behaviour(PartnerSimulator.TAXI);
+        flight = simulator.behaviour(PartnerSimulator.FLIGHT);
+    }
+
+    @AfterEach
+    void restoreBehaviour()
+    {
+        simulator.changeBehaviour(PartnerSimulator.TAXI, taxi);
+        simulator.changeBehaviour(PartnerSimulator.FLIGHT, flight);
+    }
+
+    @Test
+    void bookingTakesAsLongAsTheSlowerPartner()
+    {
+        long hotelId = TravelAgentTests.createHotel("Parallel");
+        // Warm the database path up first, so only the partners' latency is measured...
+        simulator.changeBehaviour(PartnerSimulator.TAXI, new SimulatorBehaviour(0, 0, 0, 0));
+        simulator.changeBehaviour(PartnerSimulator.FLIGHT, new SimulatorBehaviour(0, 0, 0, 0));
+        book(hotelId);
+
+        simulator.changeBehaviour(PartnerSimulator.TAXI, new SimulatorBehaviour(TAXI_MILLIS, TAXI_MILLIS, 0, 0));
+        simulator.changeBehaviour(PartnerSimulator.FLIGHT, new SimulatorBehaviour(FLIGHT_MILLIS, FLIGHT_MILLIS, 0, 0));
+        long start = System.nanoTime();
+        book(hotelId);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis >= FLIGHT_MILLIS, "Took " + elapsedMillis + "ms, less than the flight alone");
+        assertTrue(elapsedMillis < FLIGHT_MILLIS + TAXI_MILLIS / 2,
+                "Took " + elapsedMillis + "ms, the partners look to have been called one after the other");
+    }
+
+    private static void book(long hotelId)
+    {
+        given()
+                .contentType(ContentType.JSON)
+                .body(TravelAgentTests.bookingRequest(1L, hotelId))
+        .when()
+                .post("/travelagent/bookings")
+        .then()
+                .statusCode(201);
+    }
+}
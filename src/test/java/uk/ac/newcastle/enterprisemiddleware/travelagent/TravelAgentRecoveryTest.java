@@ -0,0 +1,281 @@
+package uk.ac.newcastle.enterprisemiddleware.travelagent;
+
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.h2.H2DatabaseTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.newcastle.enterprisemiddleware.simulator.PartnerSimulator;
+import uk.ac.newcastle.enterprisemiddleware.simulator.SimulatorBehaviour;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static io.restassured.RestAssured.given;
+import static io.restassured.RestAssured.when;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>A saga left PENDING by a process that died mid-booking is picked up by the background worker and driven to a
+ * settled state, retrying a failing partner cancellation with exponential backoff. A booking whose cancellation is
+ * being retried is removed once it goes through. A saga the worker takes over while its batch is still running is
+ * never confirmed afterwards, and a running batch keeps its sagas from being taken over.</p>
+ *
+ * @author aryamanpatronia
+ */
+@QuarkusTest
+@QuarkusTestResource(H2DatabaseTestResource.class)
+class TravelAgentRecoveryTest
+{
+    @Inject
+    TravelAgentSagaRepository sagas;
+
+    @Inject
+    TravelAgentCompensator compensator;
+
+    @Inject
+    PartnerSimulator simulator;
+
+    @Inject
+    EntityManager em;
+
+    private SimulatorBehaviour taxi;
+    private SimulatorBehaviour flight;
+
+    @BeforeEach
+    void keepBehaviour()
+    {
+        taxi = simulator.behaviour(PartnerSimulator.TAXI);
+        flight = simulator.behaviour(PartnerSimulator.FLIGHT);
+    }
+
+    @AfterEach
+    void restoreBehaviour()
+    {
+        simulator.changeBehaviour(PartnerSimulator.TAXI, taxi);
+        simulator.changeBehaviour(PartnerSimulator.FLIGHT, flight);
+    }
+
+    @Test
+    void interruptedSagaIsCompensatedWithBackoff() throws InterruptedException
+    {
+        // The process "died" after the taxi was booked and while the flight was still being booked...
+        long taxiId = given()
+                .contentType(ContentType.JSON)
+                .body("{}")
+        .when()
+                .post("/simulator/taxi/taxis/bookings")
+        .then()
+                .statusCode(201)
+                .extract().as(Long.class);
+        Long bookingId = sagas.begin(1L, TravelAgentTests.createHotel("Recovery")).getId();
+        sagas.stepBooked(bookingId, TravelAgentPartner.TAXI, taxiId);
+        simulator.changeBehaviour(PartnerSimulator.TAXI, new SimulatorBehaviour(0, 0, 1.0, 0));
+
+        Instant now = Instant.now();
+        assertTrue(sagas.recoverStalePending(now.plusSeconds(1), now) >= 1);
+        assertEquals(TravelAgentBookingState.COMPENSATING, sagas.findState(bookingId));
+        assertEquals(SagaStepState.FAILED, step(bookingId, TravelAgentPartner.FLIGHT).getState());
+        assertEquals(SagaStepState.COMPENSATING, step(bookingId, TravelAgentPartner.TAXI).getState());
+
+        // First retry fails and is put back by the initial backoff...
+        Instant attempted = Instant.now();
+        compensator.retryDueCompensations();
+        assertBackoff(bookingId, 1, attempted);
+
+        // ...so the worker leaves it alone until then...
+        compensator.retryDueCompensations();
+        assertEquals(1, step(bookingId, TravelAgentPartner.TAXI).getAttempts());
+
+        // ...and the second failure doubles it
+        attempted = waitUntilDue(bookingId);
+        compensator.retryDueCompensations();
+        assertBackoff(bookingId, 2, attempted);
+
+        simulator.changeBehaviour(PartnerSimulator.TAXI, taxi);
+        waitUntilDue(bookingId);
+        compensator.retryDueCompensations();
+
+        assertEquals(SagaStepState.COMPENSATED, step(bookingId, TravelAgentPartner.TAXI).getState());
+        assertEquals(TravelAgentBookingState.COMPENSATED, sagas.findState(bookingId));
+        // The taxi booking really was cancelled: cancelling it again is a 404
+        when().delete("/simulator/taxi/taxis/bookings/" + taxiId).then().statusCode(404);
+    }
+
+    @Test
+    void retriedCancellationRemovesTheBooking() throws InterruptedException
+    {
+        long bookingId = given()
+                .contentType(ContentType.JSON)
+                .body(TravelAgentTests.bookingRequest(1L, TravelAgentTests.createHotel("Retried cancel")))
+        .when()
+                .post("/travelagent/bookings")
+        .then()
+                .statusCode(201)
+                .extract().jsonPath().getLong("id");
+
+        simulator.changeBehaviour(PartnerSimulator.TAXI, new SimulatorBehaviour(0, 0, 1.0, 0));
+        when().delete("/travelagent/bookings/" + bookingId).then().statusCode(202);
+        when().get("/travelagent/bookings/" + bookingId).then().statusCode(200);
+
+        simulator.changeBehaviour(PartnerSimulator.TAXI, taxi);
+        waitUntilDue(bookingId);
+        compensator.retryDueCompensations();
+
+        when().get("/travelagent/bookings/" + bookingId).then().statusCode(404);
+    }
+
+    @Test
+    void sagaRecoveredMidBatchIsNotConfirmed() throws Exception
+    {
+        long hotelId = TravelAgentTests.createHotel("Taken over");
+        slowPartners(1000);
+        CompletableFuture<List<Integer>> batch = batch(hotelId, 2);
+
+        // Recovery runs while both partners are still answering, as if the sagas had been PENDING too long
+        List<Long> bookingIds = pendingBookings(hotelId, 2);
+        Instant now = Instant.now();
+        assertTrue(sagas.recoverStalePending(now.plusSeconds(1), now) >= 2);
+
+        assertEquals(List.of(503, 503), batch.get(30, TimeUnit.SECONDS));
+        for (Long bookingId : bookingIds)
+        {
+            assertEquals(TravelAgentBookingState.COMPENSATED, sagas.findState(bookingId));
+            // The partner bookings that came back late were not recorded on the failed steps...
+            assertEquals(SagaStepState.FAILED, step(bookingId, TravelAgentPartner.TAXI).getState());
+            assertEquals(SagaStepState.FAILED, step(bookingId, TravelAgentPartner.FLIGHT).getState());
+        }
+        // ...but are in the ledger, held by no booking, so the reconciler cancels them
+        long orphans = sagas.findOrphans(Instant.now().plusSeconds(1), 1000).stream()
+                .filter(entry -> bookingIds.contains(entry.getTravelAgentBookingId()))
+                .count();
+        assertEquals(4, orphans);
+    }
+
+    @Test
+    void recoveredSagaIsNotConfirmed()
+    {
+        Long bookingId = sagas.begin(1L, TravelAgentTests.createHotel("Late confirm")).getId();
+        // Ids no partner hands out, so they can't clash with a real booking in the ledger
+        assertTrue(sagas.stepBooked(bookingId, TravelAgentPartner.TAXI, -bookingId));
+        assertTrue(sagas.stepBooked(bookingId, TravelAgentPartner.FLIGHT, -bookingId));
+
+        Instant now = Instant.now();
+        assertTrue(sagas.recoverStalePending(now.plusSeconds(1), now) >= 1);
+
+        assertTrue(sagas.confirmAll(Map.of(bookingId, new Long[]{-bookingId, -bookingId})).isEmpty());
+        assertNull(sagas.confirm(bookingId, -bookingId, -bookingId));
+        assertEquals(TravelAgentBookingState.COMPENSATING, sagas.findState(bookingId));
+    }
+
+    @Test
+    void runningBatchIsNotRecovered() throws Exception
+    {
+        long hotelId = TravelAgentTests.createHotel("Heartbeat");
+        slowPartners(1500);
+        CompletableFuture<List<Integer>> batch = batch(hotelId, 2);
+
+        // By now the sagas were begun longer ago than the cutoff, but the heartbeat has touched them since
+        pendingBookings(hotelId, 2);
+        Thread.sleep(1000);
+        Instant now = Instant.now();
+        sagas.recoverStalePending(now.minusMillis(600), now);
+
+        assertEquals(List.of(201, 201), batch.get(30, TimeUnit.SECONDS));
+    }
+
+    private void slowPartners(long millis)
+    {
+        simulator.changeBehaviour(PartnerSimulator.TAXI, new SimulatorBehaviour(millis, millis, 0, 0));
+        simulator.changeBehaviour(PartnerSimulator.FLIGHT, new SimulatorBehaviour(millis, millis, 0, 0));
+    }
+
+    /**
+     * Sends a batch of {@code size} bookings at the hotel without waiting for it...
+     *
+     * @return The status of each request in the batch, once it has been answered
+     */
+    private static CompletableFuture<List<Integer>> batch(long hotelId, int size)
+    {
+        String request = TravelAgentTests.bookingRequest(1L, hotelId);
+        String body = "[" + String.join(",", Collections.nCopies(size, request)) + "]";
+        return CompletableFuture.supplyAsync(() -> given()
+                .contentType(ContentType.JSON)
+                .body(body)
+        .when()
+                .post("/travelagent/bookings/batch")
+        .then()
+                .statusCode(200)
+                .extract().jsonPath().getList("status", Integer.class));
+    }
+
+    /**
+     * Waits for the batch to begin its sagas at the hotel...
+     *
+     * @return Their ids
+     */
+    private List<Long> pendingBookings(long hotelId, int count) throws InterruptedException
+    {
+        for (int tries = 0; tries < 100; tries++)
+        {
+            em.clear();
+            List<Long> ids = em.createQuery("SELECT b.id FROM TravelAgentBooking b WHERE b.hotel.id = :hotelId AND b.state = :state", Long.class)
+                    .setParameter("hotelId", hotelId)
+                    .setParameter("state", TravelAgentBookingState.PENDING)
+                    .getResultList();
+            if (ids.size() == count)
+            {
+                return ids;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("The batch did not begin " + count + " sagas");
+    }
+
+    private void assertBackoff(Long bookingId, int attempts, Instant attempted)
+    {
+        TravelAgentSagaStep step = step(bookingId, TravelAgentPartner.TAXI);
+        assertEquals(SagaStepState.COMPENSATING, step.getState());
+        assertEquals(attempts, step.getAttempts());
+        assertFalse(step.getLastError() == null);
+
+        Duration backoff = compensator.backoff(attempts);
+        Instant earliest = attempted.plus(backoff);
+        Instant latest = Instant.now().plus(backoff);
+        assertFalse(step.getNextAttemptAt().isBefore(earliest), "Retry at " + step.getNextAttemptAt() + " is before " + earliest);
+        assertFalse(step.getNextAttemptAt().isAfter(latest), "Retry at " + step.getNextAttemptAt() + " is after " + latest);
+    }
+
+    private Instant waitUntilDue(Long bookingId) throws InterruptedException
+    {
+        Duration wait = Duration.between(Instant.now(), step(bookingId, TravelAgentPartner.TAXI).getNextAttemptAt());
+        if (!wait.isNegative())
+        {
+            Thread.sleep(wait.toMillis() + 50);
+        }
+        return Instant.now();
+    }
+
+    private TravelAgentSagaStep step(Long bookingId, TravelAgentPartner partner)
+    {
+        em.clear();
+        return em.createNamedQuery(TravelAgentSagaStep.FIND_BY_BOOKING, TravelAgentSagaStep.class)
+                .setParameter("bookingId", bookingId)
+                .getResultStream()
+                .filter(step -> step.getPartner() == partner)
+                .findFirst()
+                .orElseThrow();
+    }
+}
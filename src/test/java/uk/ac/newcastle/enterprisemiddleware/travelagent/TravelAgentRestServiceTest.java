@@ -0,0 +1,91 @@
+package uk.ac.newcastle.enterprisemiddleware.travelagent;
+
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.h2.H2DatabaseTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static io.restassured.RestAssured.given;
+import static io.restassured.RestAssured.when;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * <p>The client errors of the travel agent REST API.</p>
+ *
+ * @author aryamanpatronia
+ */
+@QuarkusTest
+@QuarkusTestResource(H2DatabaseTestResource.class)
+class TravelAgentRestServiceTest
+{
+    @ConfigProperty(name = "travelagent.batch.max-size")
+    int maxBatchSize;
+
+    @Test
+    void cancellingAnUnknownBookingIsAnErrorMessage()
+    {
+        when()
+                .delete("/travelagent/bookings/" + Long.MAX_VALUE)
+        .then()
+                .statusCode(404)
+                .contentType(ContentType.JSON)
+                .body("error", containsString("No Travel Agent Booking"));
+    }
+
+    @Test
+    void bookingAnUnknownHotelIsNotFound()
+    {
+        given()
+                .contentType(ContentType.JSON)
+                .body(TravelAgentTests.bookingRequest(1L, Long.MAX_VALUE))
+        .when()
+                .post("/travelagent/bookings/async")
+        .then()
+                .statusCode(404);
+
+        given()
+                .contentType(ContentType.JSON)
+                .body("[" + TravelAgentTests.bookingRequest(1L, Long.MAX_VALUE) + "]")
+        .when()
+                .post("/travelagent/bookings/batch")
+        .then()
+                .statusCode(200)
+                .body("[0].status", equalTo(404))
+                .body("[0].error", containsString("No Hotel"));
+    }
+
+    @Test
+    void pageBeyondTheLastIsEmpty()
+    {
+        given()
+                .queryParam("page", Integer.MAX_VALUE)
+                .queryParam("size", 100)
+        .when()
+                .get("/travelagent/bookings")
+        .then()
+                .statusCode(200)
+                .body("$", empty());
+    }
+
+    @Test
+    void tooManyCancellationsAreRefused()
+    {
+        String ids = LongStream.rangeClosed(1, maxBatchSize + 1L)
+                .mapToObj(Long::toString)
+                .collect(Collectors.joining(",", "[", "]"));
+        given()
+                .contentType(ContentType.JSON)
+                .body(ids)
+        .when()
+                .post("/travelagent/bookings/cancel")
+        .then()
+                .statusCode(400);
+    }
+}
@@ -0,0 +1,49 @@
+package uk.ac.newcastle.enterprisemiddleware.travelagent;
+
+import io.restassured.http.ContentType;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.restassured.RestAssured.given;
+
+/**
+ * <p>Data the travel agent tests share.</p>
+ *
+ * @author aryamanpatronia
+ */
+final class TravelAgentTests
+{
+    private static final AtomicInteger HOTELS = new AtomicInteger();
+
+    private TravelAgentTests()
+    {
+    }
+
+    /**
+     * Creates a hotel through the REST API...
+     *
+     * @return Its id
+     */
+    static long createHotel(String name)
+    {
+        return given()
+                .contentType(ContentType.JSON)
+                .body("{\"hotelName\":\"" + name + " " + HOTELS.incrementAndGet() + "\",\"hotelLocation\":\"Newcastle\"}")
+        .when()
+                .post("/hotels")
+        .then()
+                .statusCode(201)
+                .extract().jsonPath().getLong("id");
+    }
+
+    /**
+     * @return The JSON of a travel agent booking request
+     */
+    static String bookingRequest(Long customerId, long hotelId)
+    {
+        return "{\"customerId\":" + customerId + ",\"hotelId\":" + hotelId
+                + ",\"taxiBookingRequest\":{\"registration\":\"NE1 4ST\",\"numberOfSeats\":2}"
+                + ",\"flightBookingRequest\":{\"flightNumber\":\"NC0001\",\"departureLocation\":\"NCL\","
+                + "\"arrivalLocation\":\"LHR\",\"departureDate\":\"2031-01-01\"}}";
+    }
+}
@@ -0,0 +1,159 @@
+package uk.ac.newcastle.enterprisemiddleware.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>A full log queue drops and counts records below WARNING, and makes WARNING and above wait for room, for a while.
+ * The writer thread's own warnings never wait.</p>
+ *
+ * @author aryamanpatronia
+ */
+class LogQueueHandlerTest
+{
+    private static final Duration WAIT = Duration.ofSeconds(1);
+
+    private final List<String> written = new CopyOnWriteArrayList<>();
+    private final CountDownLatch writing = new CountDownLatch(1);
+    private final CountDownLatch console = new CountDownLatch(1);
+
+    private Counter dropped;
+    private LogQueueHandler queue;
+
+    @BeforeEach
+    void stallTheConsole()
+    {
+        // A console that holds the writer thread on the first record until it is released; other threads aren't held
+        Handler slow = new Handler()
+        {
+            @Override
+            public void publish(LogRecord record)
+            {
+                if (Thread.currentThread().getName().equals("log-writer"))
+                {
+                    writing.countDown();
+                    try
+                    {
+                        console.await();
+                    } catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                written.add(record.getMessage());
+                if (record.getMessage().equals("reentrant"))
+                {
+                    queue.publish(new LogRecord(Level.WARNING, "from the writer"));
+                }
+            }
+
+            @Override
+            public void flush()
+            {
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        };
+        dropped = Counter.builder("logging.records.dropped").register(new SimpleMeterRegistry());
+        queue = new LogQueueHandler(new Handler[]{slow}, 2, WAIT, dropped);
+    }
+
+    @AfterEach
+    void close()
+    {
+        console.countDown();
+        queue.close();
+    }
+
+    @Test
+    void fullQueueDropsInfoAndCountsIt() throws Exception
+    {
+        fillQueue();
+
+        queue.publish(new LogRecord(Level.INFO, "dropped"));
+        assertEquals(1, dropped.count());
+
+        console.countDown();
+        queue.close();
+        assertEquals(List.of("first", "queued 1", "queued 2"), written);
+    }
+
+    @Test
+    void fullQueueMakesWarningsWait() throws Exception
+    {
+        fillQueue();
+
+        CompletableFuture<Void> warning = CompletableFuture.runAsync(() ->
+                queue.publish(new LogRecord(Level.SEVERE, "severe")));
+        Thread.sleep(200);
+        assertFalse(warning.isDone(), "A SEVERE record didn't wait for room in the queue");
+
+        console.countDown();
+        warning.get(5, TimeUnit.SECONDS);
+        queue.close();
+        assertEquals(0, dropped.count());
+        assertEquals(List.of("first", "queued 1", "queued 2", "severe"), written);
+    }
+
+    @Test
+    void warningsWaitOnlySoLong() throws Exception
+    {
+        fillQueue();
+
+        long started = System.nanoTime();
+        queue.publish(new LogRecord(Level.SEVERE, "severe"));
+        long waited = System.nanoTime() - started;
+        assertTrue(waited >= WAIT.toNanos(), "A SEVERE record didn't wait for room in the queue");
+        assertEquals(List.of("severe"), written, "A SEVERE record was lost when the queue stayed full");
+
+        console.countDown();
+        queue.close();
+        assertEquals(0, dropped.count());
+        assertEquals(List.of("severe", "first", "queued 1", "queued 2"), written);
+    }
+
+    @Test
+    void writerThreadWarningsNeverWait() throws Exception
+    {
+        // The writer is held on a record whose handler logs a warning, while the queue fills up behind it
+        queue.publish(new LogRecord(Level.INFO, "reentrant"));
+        assertTrue(writing.await(5, TimeUnit.SECONDS), "The writer thread didn't pick up the first record");
+        queue.publish(new LogRecord(Level.INFO, "queued 1"));
+        queue.publish(new LogRecord(Level.INFO, "queued 2"));
+
+        long started = System.nanoTime();
+        console.countDown();
+        queue.close();
+        assertTrue(System.nanoTime() - started < WAIT.toNanos(), "The writer thread waited on its own queue");
+        assertEquals(List.of("reentrant", "from the writer", "queued 1", "queued 2"), written);
+    }
+
+    private void fillQueue() throws InterruptedException
+    {
+        queue.publish(new LogRecord(Level.INFO, "first"));
+        assertTrue(writing.await(5, TimeUnit.SECONDS), "The writer thread didn't pick up the first record");
+        queue.publish(new LogRecord(Level.INFO, "queued 1"));
+        queue.publish(new LogRecord(Level.INFO, "queued 2"));
+        assertEquals(0, dropped.count());
+    }
+}
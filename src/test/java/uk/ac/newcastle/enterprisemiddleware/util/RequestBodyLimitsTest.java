@@ -0,0 +1,116 @@
+package uk.ac.newcastle.enterprisemiddleware.util;
+
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.h2.H2DatabaseTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * <p>Only the bulk import accepts bodies over {@code app.http.max-body-size} (10M in tests, as in production).</p>
+ *
+ * @author aryamanpatronia
+ */
+@QuarkusTest
+@QuarkusTestResource(H2DatabaseTestResource.class)
+class RequestBodyLimitsTest
+{
+    private static final int OVER_LIMIT = 11 * 1024 * 1024;
+
+    @TestHTTPResource
+    URL server;
+
+    @Test
+    void largeBodyIsRejectedElsewhere() throws IOException
+    {
+        // Only the headers are sent: the Content-Length alone should be enough to turn it away
+        try (Socket socket = connect())
+        {
+            send(socket, "Content-Length: " + OVER_LIMIT);
+            assertEquals("HTTP/1.1 413 Request Entity Too Large", statusLine(socket));
+        }
+    }
+
+    @Test
+    void largeChunkedBodyIsRejectedElsewhere() throws IOException
+    {
+        try (Socket socket = connect())
+        {
+            send(socket, "Transfer-Encoding: chunked");
+            byte[] chunk = new byte[64 * 1024];
+            Arrays.fill(chunk, (byte) ' ');
+            try
+            {
+                OutputStream out = socket.getOutputStream();
+                for (int sent = 0; sent < OVER_LIMIT; sent += chunk.length)
+                {
+                    out.write((Integer.toHexString(chunk.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                    out.write(chunk);
+                    out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+                }
+                out.write("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+            } catch (IOException e)
+            {
+                // The server may close the connection before the body is all sent
+            }
+            assertEquals("HTTP/1.1 413 Request Entity Too Large", statusLine(socket));
+        }
+    }
+
+    @Test
+    void largeImportIsAccepted()
+    {
+        // A header and 11M of blank lines, which the import skips
+        given()
+                .contentType("text/csv")
+                .body(padded("customerName,customerEmail,customerPhoneNumber\n", '\n'))
+        .when()
+                .post("/customers/import")
+        .then()
+                .statusCode(200)
+                .body("rowsRead", equalTo(0));
+    }
+
+    private static byte[] padded(String start, char padding)
+    {
+        byte[] body = new byte[OVER_LIMIT];
+        Arrays.fill(body, (byte) padding);
+        byte[] bytes = start.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(bytes, 0, body, 0, bytes.length);
+        return body;
+    }
+
+    private Socket connect() throws IOException
+    {
+        Socket socket = new Socket(server.getHost(), server.getPort());
+        socket.setSoTimeout(10_000);
+        return socket;
+    }
+
+    private static void send(Socket socket, String bodyHeader) throws IOException
+    {
+        String headers = "POST /hotels HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                + bodyHeader + "\r\n\r\n";
+        socket.getOutputStream().write(headers.getBytes(StandardCharsets.US_ASCII));
+        socket.getOutputStream().flush();
+    }
+
+    private static String statusLine(Socket socket) throws IOException
+    {
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII)).readLine();
+    }
+}